@@ -0,0 +1,166 @@
+package org.bionlpst.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.app.Task;
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.AnnotationVisitor;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.fragment.ImmutableFragment;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Benchmark data built from the bundled corpora.
+ * The predictions are synthetic: the reference annotations are copied one or more times into the prediction set.
+ * The first copy is identical to the reference, the text-bound annotations of further copies are shifted by as many characters as the copy rank, so that they partially match.
+ * @author rbossy
+ *
+ */
+public class BenchmarkData {
+	private static final Location SYNTHETIC_LOCATION = new Location("synthetic predictions", 0);
+
+	private final Task task;
+	private final Corpus corpus;
+
+	/**
+	 * Loads the development corpus of the specified task and adds synthetic predictions.
+	 * @param taskName name of a task in the bundled task definitions.
+	 * @param copies number of copies of each reference annotation in the predictions.
+	 * @throws Exception if the task or the corpus cannot be loaded.
+	 */
+	public BenchmarkData(String taskName, int copies) throws Exception {
+		super();
+		this.task = Task.loadTask(Collections.<String>emptyList(), taskName);
+		if (task == null) {
+			throw new BioNLPSTException("unknown task: " + taskName);
+		}
+		CheckLogger logger = new CheckLogger();
+		this.corpus = task.getDevCorpus(logger);
+		corpus.resolveReferences(logger);
+		for (Document doc : corpus.getDocuments()) {
+			addPredictions(logger, doc, copies);
+		}
+		corpus.resolveReferences(logger);
+		task.getCorpusPostprocessing().postprocess(corpus);
+	}
+
+	public Task getTask() {
+		return task;
+	}
+
+	public Corpus getCorpus() {
+		return corpus;
+	}
+
+	/**
+	 * Returns the main evaluation of the task.
+	 */
+	public AnnotationEvaluation getMainEvaluation() {
+		return task.getEvaluations().get(0);
+	}
+
+	/**
+	 * Returns the evaluations of the task that pair reference and predicted annotations.
+	 */
+	public List<AnnotationEvaluation> getPairingEvaluations() {
+		List<AnnotationEvaluation> result = new ArrayList<AnnotationEvaluation>();
+		for (AnnotationEvaluation eval : task.getEvaluations()) {
+			if (!eval.isInputIteration()) {
+				result.add(eval);
+			}
+		}
+		return result;
+	}
+
+	private static void addPredictions(CheckLogger logger, Document doc, int copies) {
+		AnnotationSet prediction = doc.getPredictionAnnotationSet();
+		Collection<Annotation> reference = doc.getReferenceAnnotationSet().getAnnotations();
+		int length = doc.getContents().length();
+		for (int copy = 0; copy < copies; ++copy) {
+			AnnotationCopier copier = new AnnotationCopier(logger, prediction, copy, length);
+			for (Annotation ann : reference) {
+				ann.accept(copier, null);
+			}
+		}
+		prediction.setParsed();
+	}
+
+	/**
+	 * Copies reference annotations into the prediction set, references to reference annotations are redirected to the copies of the same rank.
+	 */
+	private static class AnnotationCopier implements AnnotationVisitor<Void,Void> {
+		private final CheckLogger logger;
+		private final AnnotationSet prediction;
+		private final int copy;
+		private final int length;
+
+		private AnnotationCopier(CheckLogger logger, AnnotationSet prediction, int copy, int length) {
+			super();
+			this.logger = logger;
+			this.prediction = prediction;
+			this.copy = copy;
+			this.length = length;
+		}
+
+		private String getId(Annotation ann) {
+			if (copy == 0 || ann.getAnnotationSet() != ann.getDocument().getReferenceAnnotationSet()) {
+				return ann.getId();
+			}
+			return ann.getId() + "-" + copy;
+		}
+
+		@Override
+		public Void visit(TextBound textBound, Void param) {
+			List<ImmutableFragment> fragments = new ArrayList<ImmutableFragment>(textBound.getFragments().size());
+			for (ImmutableFragment frag : textBound.getFragments()) {
+				int start = Math.min(frag.getStart() + copy, length);
+				int end = Math.min(frag.getEnd() + copy, length);
+				fragments.add(new ImmutableFragment(start, end));
+			}
+			new TextBound(logger, prediction, SYNTHETIC_LOCATION, getId(textBound), textBound.getType(), fragments);
+			return null;
+		}
+
+		@Override
+		public Void visit(Relation relation, Void param) {
+			Map<String,String> args = new LinkedHashMap<String,String>();
+			for (Map.Entry<String,Annotation> e : relation.getArgumentMap().entrySet()) {
+				args.put(e.getKey(), getId(e.getValue()));
+			}
+			new Relation(logger, prediction, SYNTHETIC_LOCATION, getId(relation), relation.getType(), args);
+			return null;
+		}
+
+		@Override
+		public Void visit(Normalization normalization, Void param) {
+			new Normalization(logger, prediction, SYNTHETIC_LOCATION, getId(normalization), normalization.getType(), getId(normalization.getAnnotation()), normalization.getReferent());
+			return null;
+		}
+
+		@Override
+		public Void visit(Modifier modifier, Void param) {
+			new Modifier(logger, prediction, SYNTHETIC_LOCATION, getId(modifier), modifier.getType(), getId(modifier.getAnnotation()));
+			return null;
+		}
+
+		@Override
+		public Void visit(DummyAnnotation dummy, Void param) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package org.bionlpst.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bionlpst.app.Task;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.util.message.CheckLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Task.evaluate with all evaluations of the task on the whole corpus, as the command line does after loading and checking.
+ * @author rbossy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+	@Param({ "BioCreative5-CDR", "BB19-rel+ner", "BB-cat+ner", "BB-kb+ner", "SeeDev-binary", "SeeDev-full" })
+	public String task;
+
+	@Param({ "1", "2", "4" })
+	public int copies;
+
+	private Task taskObject;
+	private Corpus corpus;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkData data = new BenchmarkData(task, copies);
+		taskObject = data.getTask();
+		corpus = data.getCorpus();
+	}
+
+	@Benchmark
+	public void evaluate(Blackhole bh) {
+		bh.consume(taskObject.evaluate(new CheckLogger(), corpus, false, null));
+	}
+}
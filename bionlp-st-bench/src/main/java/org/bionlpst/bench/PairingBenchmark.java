@@ -0,0 +1,74 @@
+package org.bionlpst.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.evaluation.HeuristicPairing;
+import org.bionlpst.evaluation.Pair;
+import org.bionlpst.evaluation.TextBoundBlocking;
+import org.bionlpst.evaluation.similarity.Similarity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * HeuristicPairing.bestPairing on all documents, with the matching similarity of each evaluation that pairs reference and predicted annotations.
+ * @author rbossy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PairingBenchmark {
+	@Param({ "BB19-rel+ner", "BB-cat+ner", "BB-kb+ner", "SeeDev-binary", "SeeDev-full" })
+	public String task;
+
+	@Param({ "1", "2", "4" })
+	public int copies;
+
+	@Param({ "none", "text-bound" })
+	public String blocking;
+
+	private final List<Similarity<Annotation>> similarities = new ArrayList<Similarity<Annotation>>();
+	private final List<Collection<Annotation>> references = new ArrayList<Collection<Annotation>>();
+	private final List<Collection<Annotation>> predictions = new ArrayList<Collection<Annotation>>();
+	private HeuristicPairing<Annotation> pairing;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkData data = new BenchmarkData(task, copies);
+		for (AnnotationEvaluation eval : data.getPairingEvaluations()) {
+			for (Document doc : data.getCorpus().getDocuments()) {
+				similarities.add(eval.getMatchingSimilarity());
+				references.add(doc.getReferenceAnnotationSet().getAnnotations(eval.getPreFilter()));
+				predictions.add(doc.getPredictionAnnotationSet().getAnnotations(eval.getPreFilter()));
+			}
+		}
+		pairing = new HeuristicPairing<Annotation>("none".equals(blocking) ? null : TextBoundBlocking.INSTANCE);
+	}
+
+	@Benchmark
+	public void bestPairing(Blackhole bh) {
+		for (int i = 0; i < similarities.size(); ++i) {
+			List<Pair<Annotation>> pairs = pairing.bestPairing(references.get(i), predictions.get(i), similarities.get(i));
+			bh.consume(pairs);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.bionlpst.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.evaluation.BootstrapConfig;
+import org.bionlpst.evaluation.Pair;
+import org.bionlpst.evaluation.Scoring;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scoring.getResult for all scorings of the main evaluation, on the pairs of the whole corpus, with and without bootstrap.
+ * Pairs are computed once during setup.
+ * @author rbossy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+	@Param({ "BioCreative5-CDR", "BB19-rel+ner", "BB-cat+ner", "BB-kb+ner", "SeeDev-binary", "SeeDev-full" })
+	public String task;
+
+	@Param({ "1", "2", "4" })
+	public int copies;
+
+	@Param({ "0", "100" })
+	public int resamples;
+
+	private AnnotationEvaluation evaluation;
+	private List<Pair<Annotation>> pairs;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkData data = new BenchmarkData(task, copies);
+		evaluation = data.getMainEvaluation();
+		pairs = evaluation.getPairs(data.getCorpus());
+	}
+
+	@Benchmark
+	public void getResult(Blackhole bh) {
+		BootstrapConfig bootstrap = resamples == 0 ? null : new BootstrapConfig(new Random(0), resamples);
+		for (Scoring<Annotation> scoring : evaluation.getScorings()) {
+			bh.consume(scoring.getResult(pairs, bootstrap));
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.bionlpst.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.evaluation.similarity.AnnotationKindSimilarity;
+import org.bionlpst.evaluation.similarity.Max;
+import org.bionlpst.evaluation.similarity.Min;
+import org.bionlpst.evaluation.similarity.NormalizationJaccard;
+import org.bionlpst.evaluation.similarity.Similarity;
+import org.bionlpst.evaluation.similarity.SimilarityCutoff;
+import org.bionlpst.evaluation.similarity.TextBoundJaccard;
+import org.bionlpst.evaluation.similarity.TextBoundOverlap;
+import org.bionlpst.evaluation.similarity.WangSimilarity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Similarity.compute for each similarity implementation, on the arguments it receives in a task.
+ * The parameter similarity is CLASS@TASK: the first instance of CLASS in the evaluations of TASK is computed on the pairs that its evaluation would compute.
+ * Annotation similarities receive all reference/prediction pairs of each document, or the (input, input) pairs if the evaluation iterates on input annotations.
+ * Referent set similarities receive the referents of all reference/prediction pairs of normalizations with the same type.
+ * Similarities that no bundled task uses are built around TextBoundJaccard and computed on the pairs of the first evaluation of TASK.
+ * @author rbossy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarityBenchmark {
+	@Param({
+		"AnnotationKindSimilarity@BB19-rel+ner",
+		"AnnotationTypeDispatchSimilarity@BB19-rel+ner",
+		"AnnotationTypeSimilarity@BB19-rel+ner",
+		"ConstantSimilarity@BB19-rel+ner",
+		"Identity@BB19-rel",
+		"Max@BB19-rel+ner",
+		"MaxFromEquivalence@BB19-rel+ner",
+		"Min@BB19-rel+ner",
+		"NormalizationJaccard@BioCreative5-CDR",
+		"NormalizationSimilarity@BioCreative5-CDR",
+		"NormalizationSimilarity@BB-kb+ner",
+		"Product@BB19-rel+ner",
+		"RelationArgumentSimilarity@BB19-rel+ner",
+		"SameTypeAndArgumentsSimilarity@SeeDev-binary",
+		"SeeDevFull@SeeDev-full",
+		"SimilarityCutoff@BB19-rel+ner",
+		"TextBoundJaccard@BB-cat+ner",
+		"TextBoundOverlap@BB-cat+ner",
+		"WangSimilarity@BioCreative5-CDR",
+		"WangSimilarity@BB-kb+ner"
+	})
+	public String similarity;
+
+	@Param({ "1", "2", "4" })
+	public int copies;
+
+	private Similarity<Object> sim;
+	private Object[] as;
+	private Object[] bs;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		int at = similarity.indexOf('@');
+		String className = similarity.substring(0, at);
+		BenchmarkData data = new BenchmarkData(similarity.substring(at + 1), copies);
+		SimilarityCollector collector = new SimilarityCollector();
+		for (AnnotationEvaluation eval : data.getTask().getEvaluations()) {
+			collector.collect(eval);
+		}
+		Similarity<?> s;
+		AnnotationEvaluation eval;
+		if (collector.getSimilarities().containsKey(className)) {
+			s = collector.getSimilarities().get(className);
+			eval = collector.getEvaluation(className);
+		}
+		else {
+			s = createSimilarity(className);
+			eval = data.getMainEvaluation();
+		}
+		sim = (Similarity<Object>) s;
+		List<Object> aList = new ArrayList<Object>();
+		List<Object> bList = new ArrayList<Object>();
+		if (s instanceof WangSimilarity || s instanceof NormalizationJaccard) {
+			collectReferentPairs(data, aList, bList);
+		}
+		else {
+			collectAnnotationPairs(data, eval, aList, bList);
+		}
+		as = aList.toArray();
+		bs = bList.toArray();
+	}
+
+	private static Similarity<?> createSimilarity(String className) {
+		switch (className) {
+			case "AnnotationKindSimilarity": return AnnotationKindSimilarity.INSTANCE;
+			case "TextBoundOverlap": return new TextBoundOverlap();
+			case "Max": return new Max<Annotation>(Arrays.<Similarity<Annotation>>asList(TextBoundJaccard.INSTANCE, new TextBoundOverlap()));
+			case "Min": return new Min<Annotation>(Arrays.<Similarity<Annotation>>asList(TextBoundJaccard.INSTANCE, AnnotationKindSimilarity.INSTANCE));
+			case "SimilarityCutoff": return new SimilarityCutoff<Annotation>(TextBoundJaccard.INSTANCE, 0.5, false);
+		}
+		throw new BioNLPSTException("no similarity " + className + " in this task");
+	}
+
+	private static void collectAnnotationPairs(BenchmarkData data, AnnotationEvaluation eval, List<Object> aList, List<Object> bList) {
+		for (Document doc : data.getCorpus().getDocuments()) {
+			if (eval.isInputIteration()) {
+				for (Annotation a : doc.getInputAnnotationSet().getAnnotations(eval.getPreFilter())) {
+					aList.add(a);
+					bList.add(a);
+				}
+				continue;
+			}
+			Collection<Annotation> reference = doc.getReferenceAnnotationSet().getAnnotations(eval.getPreFilter());
+			Collection<Annotation> prediction = doc.getPredictionAnnotationSet().getAnnotations(eval.getPreFilter());
+			for (Annotation a : reference) {
+				for (Annotation b : prediction) {
+					aList.add(a);
+					bList.add(b);
+				}
+			}
+		}
+	}
+
+	private static void collectReferentPairs(BenchmarkData data, List<Object> aList, List<Object> bList) {
+		for (Document doc : data.getCorpus().getDocuments()) {
+			List<Normalization> reference = getNormalizations(doc.getReferenceAnnotationSet());
+			List<Normalization> prediction = getNormalizations(doc.getPredictionAnnotationSet());
+			for (Normalization a : reference) {
+				for (Normalization b : prediction) {
+					if (a.getType().equals(b.getType())) {
+						aList.add(Collections.singleton(a.getReferent()));
+						bList.add(Collections.singleton(b.getReferent()));
+					}
+				}
+			}
+		}
+	}
+
+	private static List<Normalization> getNormalizations(AnnotationSet aset) {
+		List<Normalization> result = new ArrayList<Normalization>();
+		for (Annotation ann : aset.getAnnotations()) {
+			Normalization norm = ann.asNormalization();
+			if (norm != null) {
+				result.add(norm);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public double compute() {
+		double result = 0;
+		for (int i = 0; i < as.length; ++i) {
+			result += sim.compute(as[i], bs[i]);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,103 @@
+package org.bionlpst.bench;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.evaluation.Scoring;
+import org.bionlpst.evaluation.similarity.Similarity;
+
+/**
+ * Collects the similarity objects of evaluations by walking the fields of similarities, collections and maps.
+ * Similarities are not exposed as a tree by the evaluation API, this collector only serves benchmark setup.
+ * @author rbossy
+ *
+ */
+public class SimilarityCollector {
+	private final Map<Object,Boolean> visited = new IdentityHashMap<Object,Boolean>();
+	private final Map<String,Similarity<?>> similarities = new LinkedHashMap<String,Similarity<?>>();
+	private final Map<String,AnnotationEvaluation> evaluations = new LinkedHashMap<String,AnnotationEvaluation>();
+	private AnnotationEvaluation currentEvaluation = null;
+
+	public SimilarityCollector() {
+		super();
+	}
+
+	/**
+	 * Returns the first similarity object found for each similarity class, keyed by the class simple name.
+	 */
+	public Map<String,Similarity<?>> getSimilarities() {
+		return similarities;
+	}
+
+	/**
+	 * Returns the evaluation where the similarity of the specified class was found first.
+	 */
+	public AnnotationEvaluation getEvaluation(String name) {
+		return evaluations.get(name);
+	}
+
+	public void collect(AnnotationEvaluation eval) {
+		currentEvaluation = eval;
+		walk(eval.getMatchingSimilarity());
+		for (Scoring<?> scoring : eval.getScorings()) {
+			walk(scoring.getSimilarity());
+		}
+	}
+
+	private void walk(Object obj) {
+		if (obj == null || visited.containsKey(obj)) {
+			return;
+		}
+		visited.put(obj, true);
+		if (obj instanceof Collection) {
+			for (Object item : (Collection<?>) obj) {
+				walk(item);
+			}
+			return;
+		}
+		if (obj instanceof Map) {
+			for (Object value : ((Map<?,?>) obj).values()) {
+				walk(value);
+			}
+			return;
+		}
+		if (obj.getClass().isArray()) {
+			if (obj instanceof Object[]) {
+				for (Object item : (Object[]) obj) {
+					walk(item);
+				}
+			}
+			return;
+		}
+		if (!obj.getClass().getName().startsWith("org.bionlpst.")) {
+			return;
+		}
+		if (obj instanceof Similarity) {
+			Class<?> klass = obj.getClass().isAnonymousClass() ? obj.getClass().getSuperclass() : obj.getClass();
+			String name = klass.getSimpleName();
+			if (!similarities.containsKey(name)) {
+				similarities.put(name, (Similarity<?>) obj);
+				evaluations.put(name, currentEvaluation);
+			}
+		}
+		for (Class<?> klass = obj.getClass(); klass != null && klass.getName().startsWith("org.bionlpst."); klass = klass.getSuperclass()) {
+			for (Field field : klass.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+					continue;
+				}
+				field.setAccessible(true);
+				try {
+					walk(field.get(obj));
+				}
+				catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+	}
+}
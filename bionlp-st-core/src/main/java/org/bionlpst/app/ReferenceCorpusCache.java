@@ -0,0 +1,113 @@
+package org.bionlpst.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.util.message.CheckLogger;
+import org.bionlpst.util.message.CheckMessage;
+
+/**
+ * Cache of reference corpora, keyed by task name and set.
+ * Each corpus is parsed and its references are resolved once, the messages issued while loading are recorded.
+ * Each call of getCorpus() returns a copy of the cached corpus with its own prediction annotation sets, so that evaluations do not interfere with each other.
+ * Copies are built from the parsed annotations, the sources are not read again.
+ * Tasks with the same name are assumed to have the same sources.
+ * This class is thread-safe, each corpus is loaded by a single thread.
+ * @author rbossy
+ *
+ */
+public class ReferenceCorpusCache {
+	private final ConcurrentMap<String,FutureTask<CachedCorpus>> corpora = new ConcurrentHashMap<String,FutureTask<CachedCorpus>>();
+
+	public ReferenceCorpusCache() {
+		super();
+	}
+
+	private static class CachedCorpus {
+		private final Corpus corpus;
+		private final Collection<CheckMessage> messages;
+
+		private CachedCorpus(Corpus corpus, Collection<CheckMessage> messages) {
+			super();
+			this.corpus = corpus;
+			this.messages = messages;
+		}
+	}
+
+	/**
+	 * Returns a copy of the reference corpus of the specified task and set, references are resolved.
+	 * The messages issued when the corpus was loaded are added to the specified logger.
+	 * @param logger message container where to store the load messages.
+	 * @param task task.
+	 * @param set either "train", "dev", "train+dev" or "test".
+	 * @param executor executor for parsing documents concurrently if the corpus is not in the cache yet, null to parse sequentially.
+	 * @throws BioNLPSTException if the set name is unknown, or if the test set is not available for the specified task.
+	 * @throws IOException if the corpus cannot be read.
+	 */
+	public Corpus getCorpus(CheckLogger logger, Task task, String set, ExecutorService executor) throws BioNLPSTException, IOException {
+		CachedCorpus cached = getCachedCorpus(task, set, executor);
+		for (CheckMessage msg : cached.messages) {
+			logger.addMessage(msg);
+		}
+		return cached.corpus.copyReference();
+	}
+
+	private CachedCorpus getCachedCorpus(final Task task, final String set, final ExecutorService executor) throws BioNLPSTException, IOException {
+		String key = task.getName() + "/" + set;
+		FutureTask<CachedCorpus> future = corpora.get(key);
+		if (future == null) {
+			FutureTask<CachedCorpus> newFuture = new FutureTask<CachedCorpus>(new Callable<CachedCorpus>() {
+				@Override
+				public CachedCorpus call() throws Exception {
+					CheckLogger logger = new CheckLogger();
+					Corpus corpus = task.getCorpus(logger, set, executor);
+					corpus.resolveReferences(logger);
+					return new CachedCorpus(corpus, new ArrayList<CheckMessage>(logger.getMessages()));
+				}
+			});
+			future = corpora.putIfAbsent(key, newFuture);
+			if (future == null) {
+				future = newFuture;
+				future.run();
+			}
+		}
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BioNLPSTException("interrupted while loading " + key, e);
+		}
+		catch (ExecutionException e) {
+			// failed loads are not cached
+			corpora.remove(key, future);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new BioNLPSTException(cause);
+		}
+	}
+
+	/**
+	 * Removes all corpora from this cache.
+	 */
+	public void clear() {
+		corpora.clear();
+	}
+}
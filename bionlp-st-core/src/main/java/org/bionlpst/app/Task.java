@@ -15,13 +15,15 @@ import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.bionlpst.BioNLPSTException;
+import org.bionlpst.app.xml.CompiledTaskDefinitions;
 import org.bionlpst.app.xml.TaskConverter;
-import org.bionlpst.app.xml.TaskMapConverter;
 import org.bionlpst.corpus.Annotation;
 import org.bionlpst.corpus.AnnotationSet;
 import org.bionlpst.corpus.Corpus;
@@ -44,7 +46,9 @@ public class Task {
 	private final String name;
 	private final StringBuilder description = new StringBuilder();
 	private Schema<Corpus> schema;
+	private Callable<Schema<Corpus>> deferredSchema = null;
 	private final List<AnnotationEvaluation> evaluations = new ArrayList<AnnotationEvaluation>();
+	private Callable<List<AnnotationEvaluation>> deferredEvaluations = null;
 	private ContentAndReferenceSource trainSource;
 	private ContentAndReferenceSource devSource;
 	private ContentAndReferenceSource testSource;
@@ -65,14 +69,42 @@ public class Task {
 		return description.toString();
 	}
 
-	public Schema<Corpus> getSchema() {
+	/**
+	 * Returns the schema of this task, a deferred schema is converted on the first call.
+	 * @throws BioNLPSTException if the deferred schema could not be converted.
+	 */
+	public synchronized Schema<Corpus> getSchema() throws BioNLPSTException {
+		if (deferredSchema != null) {
+			schema = materialize(deferredSchema, "schema");
+			deferredSchema = null;
+		}
 		return schema;
 	}
 
-	public List<AnnotationEvaluation> getEvaluations() {
+	/**
+	 * Returns the evaluations of this task, deferred evaluations are converted on the first call.
+	 * @throws BioNLPSTException if the deferred evaluations could not be converted.
+	 */
+	public synchronized List<AnnotationEvaluation> getEvaluations() throws BioNLPSTException {
+		if (deferredEvaluations != null) {
+			evaluations.addAll(materialize(deferredEvaluations, "evaluations"));
+			deferredEvaluations = null;
+		}
 		return Collections.unmodifiableList(evaluations);
 	}
 
+	private <T> T materialize(Callable<T> deferred, String part) throws BioNLPSTException {
+		try {
+			return deferred.call();
+		}
+		catch (RuntimeException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new BioNLPSTException("could not convert " + part + " of task " + name + ": " + e.getMessage(), e);
+		}
+	}
+
 	public ContentAndReferenceSource getTrainSource() {
 		return trainSource;
 	}
@@ -108,12 +140,31 @@ public class Task {
 		description.append(descr);
 	}
 	
-	public void addEvaluation(AnnotationEvaluation eval) {
+	public synchronized void addEvaluation(AnnotationEvaluation eval) {
 		evaluations.add(eval);
 	}
 
-	public void setSchema(Schema<Corpus> schema) {
+	/**
+	 * Sets the conversion of the evaluations of this task, the conversion is called once, on the first call to getEvaluations().
+	 * The evaluations returned by the conversion are appended to the evaluations added with addEvaluation().
+	 * @param deferredEvaluations
+	 */
+	public synchronized void setDeferredEvaluations(Callable<List<AnnotationEvaluation>> deferredEvaluations) {
+		this.deferredEvaluations = deferredEvaluations;
+	}
+
+	public synchronized void setSchema(Schema<Corpus> schema) {
 		this.schema = schema;
+		this.deferredSchema = null;
+	}
+
+	/**
+	 * Sets the conversion of the schema of this task, the conversion is called once, on the first call to getSchema().
+	 * @param deferredSchema
+	 */
+	public synchronized void setDeferredSchema(Callable<Schema<Corpus>> deferredSchema) {
+		this.schema = null;
+		this.deferredSchema = deferredSchema;
 	}
 
 	public void setTrainSource(ContentAndReferenceSource trainSource) {
@@ -133,28 +184,76 @@ public class Task {
 	}
 	
 	public Corpus getTrainCorpus(CheckLogger logger) throws BioNLPSTException, IOException {
-		return trainSource.fillContentAndReference(logger, true);
+		return getTrainCorpus(logger, null);
+	}
+
+	/**
+	 * Loads the training corpus.
+	 * @param executor executor for parsing documents concurrently, null to parse sequentially.
+	 */
+	public Corpus getTrainCorpus(CheckLogger logger, ExecutorService executor) throws BioNLPSTException, IOException {
+		return trainSource.fillContentAndReference(logger, true, executor);
 	}
 	
 	public Corpus getDevCorpus(CheckLogger logger) throws BioNLPSTException, IOException {
-		return devSource.fillContentAndReference(logger, true);
+		return getDevCorpus(logger, null);
+	}
+
+	/**
+	 * Loads the development corpus.
+	 * @param executor executor for parsing documents concurrently, null to parse sequentially.
+	 */
+	public Corpus getDevCorpus(CheckLogger logger, ExecutorService executor) throws BioNLPSTException, IOException {
+		return devSource.fillContentAndReference(logger, true, executor);
 	}
 	
 	public Corpus getTrainAndDevCorpus(CheckLogger logger) throws BioNLPSTException, IOException {
-		Corpus result = getTrainCorpus(logger);
-		devSource.fillContentAndReference(logger, result, true);
+		return getTrainAndDevCorpus(logger, null);
+	}
+
+	/**
+	 * Loads the training and development corpora into a single corpus.
+	 * @param executor executor for parsing documents concurrently, null to parse sequentially.
+	 */
+	public Corpus getTrainAndDevCorpus(CheckLogger logger, ExecutorService executor) throws BioNLPSTException, IOException {
+		Corpus result = getTrainCorpus(logger, executor);
+		devSource.fillContentAndReference(logger, result, true, executor);
 		return result;
 	}
 	
 	public Corpus getTestCorpus(CheckLogger logger) throws BioNLPSTException, IOException {
+		return getTestCorpus(logger, null);
+	}
+
+	/**
+	 * Loads the test corpus.
+	 * @param executor executor for parsing documents concurrently, null to parse sequentially.
+	 */
+	public Corpus getTestCorpus(CheckLogger logger, ExecutorService executor) throws BioNLPSTException, IOException {
 		if (testSource == null) {
 			throw new BioNLPSTException("test set is not available for " + name);
 		}
-		return testSource.fillContentAndReference(logger, true);
+		return testSource.fillContentAndReference(logger, true, executor);
+	}
+	
+	/**
+	 * Loads the corpus of the specified set.
+	 * @param set either "train", "dev", "train+dev" or "test".
+	 * @param executor executor for parsing documents concurrently, null to parse sequentially.
+	 * @throws BioNLPSTException if the set name is unknown, or if the test set is not available for this task.
+	 */
+	public Corpus getCorpus(CheckLogger logger, String set, ExecutorService executor) throws BioNLPSTException, IOException {
+		switch (set) {
+			case "train": return getTrainCorpus(logger, executor);
+			case "dev": return getDevCorpus(logger, executor);
+			case "train+dev": return getTrainAndDevCorpus(logger, executor);
+			case "test": return getTestCorpus(logger, executor);
+			default: throw new BioNLPSTException("unknown set: " + set);
+		}
 	}
 	
 	public void checkSchema(CheckLogger logger, Corpus corpus) {
-		schema.check(logger, corpus);
+		getSchema().check(logger, corpus);
 	}
 	
 	public static void checkParsedPredictions(CheckLogger logger, Corpus corpus, String source) {
@@ -170,23 +269,57 @@ public class Task {
 		}
 	}
 
-	public Map<String,EvaluationResult<Annotation>> evaluate(@SuppressWarnings("unused") CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
+	public Map<String,EvaluationResult<Annotation>> evaluate(CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
+		return evaluate(logger, documentCollection, keepPairs, bootstrap, null);
+	}
+
+	/**
+	 * Evaluates the predictions in the specified document collection with all evaluations of this task.
+	 * @param executor executor for pairing documents concurrently, null to pair sequentially.
+	 */
+	public Map<String,EvaluationResult<Annotation>> evaluate(CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor) {
+		return evaluate(logger, documentCollection, keepPairs, bootstrap, executor, false);
+	}
+
+	/**
+	 * Evaluates the predictions in the specified document collection with all evaluations of this task.
+	 * @param executor executor for pairing documents concurrently, null to pair sequentially.
+	 * @param memoize either to memoize similarities during each evaluation.
+	 */
+	public Map<String,EvaluationResult<Annotation>> evaluate(@SuppressWarnings("unused") CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor, boolean memoize) {
 		Map<String,EvaluationResult<Annotation>> result = new LinkedHashMap<String,EvaluationResult<Annotation>>();
-		for (AnnotationEvaluation eval : evaluations) {
-			EvaluationResult<Annotation> er = eval.getResult(documentCollection, keepPairs, bootstrap);
+		for (AnnotationEvaluation eval : getEvaluations()) {
+			EvaluationResult<Annotation> er = eval.getResult(documentCollection, keepPairs, bootstrap, executor, memoize);
 			result.put(eval.getName(), er);
 		}
 		return result;
 	}
 
-	public EvaluationResult<Annotation> evaluateMain(@SuppressWarnings("unused") CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
-		AnnotationEvaluation mainEvaluation = evaluations.get(0);
-		return mainEvaluation.getMainResult(documentCollection, keepPairs, bootstrap);
+	public EvaluationResult<Annotation> evaluateMain(CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
+		return evaluateMain(logger, documentCollection, keepPairs, bootstrap, null);
+	}
+
+	/**
+	 * Evaluates the predictions in the specified document collection with the main evaluation of this task.
+	 * @param executor executor for pairing documents concurrently, null to pair sequentially.
+	 */
+	public EvaluationResult<Annotation> evaluateMain(CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor) {
+		return evaluateMain(logger, documentCollection, keepPairs, bootstrap, executor, false);
+	}
+
+	/**
+	 * Evaluates the predictions in the specified document collection with the main evaluation of this task.
+	 * @param executor executor for pairing documents concurrently, null to pair sequentially.
+	 * @param memoize either to memoize similarities during the evaluation.
+	 */
+	public EvaluationResult<Annotation> evaluateMain(@SuppressWarnings("unused") CheckLogger logger, DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor, boolean memoize) {
+		AnnotationEvaluation mainEvaluation = getEvaluations().get(0);
+		return mainEvaluation.getMainResult(documentCollection, keepPairs, bootstrap, executor, memoize);
 	}
 
 	public void loadPredictions(CheckLogger logger, Corpus corpus, PredictionSource predictionParser) throws BioNLPSTException, IOException {
 		predictionParser.fillPredictions(logger, corpus);
-		schema.check(logger, corpus);
+		getSchema().check(logger, corpus);
 	}
 	
 	public Map<String,EvaluationResult<Annotation>> evaluateTrain(CheckLogger logger, PredictionSource predictionParser, boolean keepPairs, BootstrapConfig bootstrap) throws BioNLPSTException, IOException {
@@ -238,7 +371,7 @@ public class Task {
 	public EvaluationResult<Annotation> evaluateMainTest(CheckLogger logger, PredictionSource predictionParser, BootstrapConfig bootstrap) throws BioNLPSTException, IOException {
 		if (!testHasReferenceAnnotations) {
 			logger.serious(new Location(predictionParser.getName(), 0), "evaluation for the test set is not available for " + name);
-			return new EvaluationResult<Annotation>(evaluations.get(0));
+			return new EvaluationResult<Annotation>(getEvaluations().get(0));
 		}
 		Corpus corpus = getTestCorpus(logger);
 		loadPredictions(logger, corpus, predictionParser);
@@ -259,24 +392,15 @@ public class Task {
 		return loadTasks(classLoader, Collections.<String>emptyList());
 	}
 
+	/**
+	 * Loads all tasks, the schema and evaluations of each task are converted on first use.
+	 * @see TaskRegistry
+	 */
 	public static Map<String,Task> loadTasks(ClassLoader classLoader, List<String> additionalTaskDefs) throws Exception {
-		TaskMapConverter converter = new TaskMapConverter(classLoader);
-		Enumeration<URL> urlEnum = getURLEnum(classLoader);
-		while (urlEnum.hasMoreElements()) {
-			URL url = urlEnum.nextElement();
-			try (InputStream is = url.openStream()) {
-				DOMUtil.convert(converter, is);
-			}
-		}
-		for (String tdf : additionalTaskDefs) {
-			try (InputStream is = Files.newInputStream(Paths.get(tdf))) {
-				DOMUtil.convert(converter, is);
-			}
-		}
-		return converter.getResult();
+		return TaskRegistry.load(classLoader, additionalTaskDefs).getTaskMap();
 	}
 	
-	private static Enumeration<URL> getURLEnum(ClassLoader classLoader) throws IOException {
+	static Enumeration<URL> getURLEnum(ClassLoader classLoader) throws IOException {
 		if (classLoader == null) {
 			return ClassLoader.getSystemResources(TASK_DEFINITION_RESOURCE_NAME);
 		}
@@ -292,7 +416,7 @@ public class Task {
 		for (Element child : DOMUtil.getChildrenElements(element, false)) {
 			String name = child.getAttribute("name");
 			if (taskName.equals(name)) {
-				TaskConverter converter = new TaskConverter(classLoader);
+				TaskConverter converter = new TaskConverter(classLoader, true);
 				return converter.convert(child);
 			}
 		}
@@ -303,6 +427,14 @@ public class Task {
 		Enumeration<URL> urlEnum = getURLEnum(classLoader);
 		while (urlEnum.hasMoreElements()) {
 			URL url = urlEnum.nextElement();
+			CompiledTaskDefinitions compiled = CompiledTaskDefinitions.read(url);
+			if (compiled != null) {
+				if (compiled.hasTask(taskName)) {
+					TaskConverter converter = new TaskConverter(classLoader, true);
+					return converter.convert(compiled.getTaskElement(taskName));
+				}
+				continue;
+			}
 			try (InputStream is = url.openStream()) {
 				Task result = loadTask(classLoader, taskName, is);
 				if (result != null) {
@@ -0,0 +1,253 @@
+package org.bionlpst.app;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.app.xml.CompiledTaskDefinitions;
+import org.bionlpst.app.xml.TaskConverter;
+import org.bionlpst.util.dom.DOMAliases;
+import org.bionlpst.util.dom.DOMUtil;
+import org.w3c.dom.Element;
+
+/**
+ * Index of the tasks defined in task definition files.
+ * Task definition files are parsed and aliases are expanded when they are added, but tasks are only converted on first request.
+ * Bundled task definition files are read from their precompiled form if available, see CompiledTaskDefinitions.
+ * The schema and evaluations of converted tasks are themselves converted on first use.
+ * Task summaries are read from the definitions without converting tasks, listings should use them rather than tasks.
+ * This class is thread-safe.
+ * @author rbossy
+ *
+ */
+public class TaskRegistry {
+	private final TaskConverter taskConverter;
+	private final Map<String,Entry> entries = new LinkedHashMap<String,Entry>();
+
+	/**
+	 * Creates an empty registry.
+	 * @param classLoader class loader for resources and classes referenced by task definitions.
+	 */
+	public TaskRegistry(ClassLoader classLoader) {
+		super();
+		this.taskConverter = new TaskConverter(classLoader, true);
+	}
+
+	/**
+	 * Creates a registry with the task definitions bundled in the specified class loader and the specified task definition files.
+	 * @param classLoader
+	 * @param additionalTaskDefs paths to task definition files.
+	 * @throws Exception
+	 */
+	public static TaskRegistry load(ClassLoader classLoader, List<String> additionalTaskDefs) throws Exception {
+		TaskRegistry result = new TaskRegistry(classLoader);
+		Enumeration<URL> urlEnum = Task.getURLEnum(classLoader);
+		while (urlEnum.hasMoreElements()) {
+			URL url = urlEnum.nextElement();
+			CompiledTaskDefinitions compiled = CompiledTaskDefinitions.read(url);
+			if (compiled != null) {
+				result.addCompiledTaskDefinitions(compiled);
+				continue;
+			}
+			try (InputStream is = url.openStream()) {
+				result.addTaskDefinitions(is);
+			}
+		}
+		for (String tdf : additionalTaskDefs) {
+			try (InputStream is = Files.newInputStream(Paths.get(tdf))) {
+				result.addTaskDefinitions(is);
+			}
+		}
+		if (result.entries.isEmpty()) {
+			throw new BioNLPSTException("missing task descriptions");
+		}
+		return result;
+	}
+
+	public static TaskRegistry load(ClassLoader classLoader) throws Exception {
+		return load(classLoader, Collections.<String>emptyList());
+	}
+
+	public static TaskRegistry load(List<String> additionalTaskDefs) throws Exception {
+		return load(Task.class.getClassLoader(), additionalTaskDefs);
+	}
+
+	/**
+	 * Indexes the tasks defined in the specified stream.
+	 * @param is task definition XML stream.
+	 * @throws BioNLPSTException if a task is already defined in this registry.
+	 * @throws Exception
+	 */
+	public synchronized void addTaskDefinitions(InputStream is) throws Exception {
+		DocumentBuilder docBuilder = DOMUtil.createDocumentBuilder();
+		org.w3c.dom.Document doc = docBuilder.parse(is);
+		DOMAliases aliases = DOMUtil.createAliases(doc);
+		Element element = doc.getDocumentElement();
+		aliases.replace(element);
+		for (Element child : DOMUtil.getChildrenElements(element, false)) {
+			String name = DOMUtil.getMandatoryAttribute(child, "name");
+			if (entries.containsKey(name)) {
+				throw new BioNLPSTException("duplicate task: " + name);
+			}
+			entries.put(name, new Entry(name, TaskConverter.getDescription(child), child, null));
+		}
+	}
+
+	/**
+	 * Indexes the specified precompiled tasks.
+	 * @param compiled
+	 * @throws BioNLPSTException if a task is already defined in this registry.
+	 */
+	public synchronized void addCompiledTaskDefinitions(CompiledTaskDefinitions compiled) throws BioNLPSTException {
+		for (String name : compiled.getTaskNames()) {
+			if (entries.containsKey(name)) {
+				throw new BioNLPSTException("duplicate task: " + name);
+			}
+			entries.put(name, new Entry(name, compiled.getDescription(name), null, compiled));
+		}
+	}
+
+	/**
+	 * Returns the names of the tasks in this registry, in definition order.
+	 */
+	public synchronized Collection<String> getTaskNames() {
+		return Collections.unmodifiableCollection(new ArrayList<String>(entries.keySet()));
+	}
+
+	public synchronized boolean hasTask(String name) {
+		return entries.containsKey(name);
+	}
+
+	/**
+	 * Returns the description of the specified task without converting it, or null if there is no such task.
+	 * @param name
+	 */
+	public String getDescription(String name) {
+		Entry entry = getEntry(name);
+		if (entry == null) {
+			return null;
+		}
+		return entry.description;
+	}
+
+	/**
+	 * Returns the summary of the specified task without converting it, or null if there is no such task.
+	 * @param name
+	 * @throws BioNLPSTException if the task definition is invalid.
+	 */
+	public TaskSummary getSummary(String name) throws BioNLPSTException {
+		Entry entry = getEntry(name);
+		if (entry == null) {
+			return null;
+		}
+		return entry.getSummary();
+	}
+
+	/**
+	 * Returns the summaries of all tasks in this registry, in definition order.
+	 * No task is converted.
+	 * @throws BioNLPSTException if a task definition is invalid.
+	 */
+	public List<TaskSummary> getSummaries() throws BioNLPSTException {
+		List<TaskSummary> result = new ArrayList<TaskSummary>();
+		for (String name : getTaskNames()) {
+			result.add(getSummary(name));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the specified task, or null if there is no such task.
+	 * The task is converted on the first call, subsequent calls return the same object.
+	 * @param name
+	 * @throws BioNLPSTException if the task definition is invalid.
+	 */
+	public Task getTask(String name) throws BioNLPSTException {
+		Entry entry = getEntry(name);
+		if (entry == null) {
+			return null;
+		}
+		return entry.getTask();
+	}
+
+	/**
+	 * Returns all tasks in this registry, in definition order, keyed by name.
+	 * All tasks are converted, their schema and evaluations are still converted on first use.
+	 * @throws BioNLPSTException if a task definition is invalid.
+	 */
+	public Map<String,Task> getTaskMap() throws BioNLPSTException {
+		Map<String,Task> result = new LinkedHashMap<String,Task>();
+		for (String name : getTaskNames()) {
+			result.put(name, getTask(name));
+		}
+		return result;
+	}
+
+	private synchronized Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	private class Entry {
+		private final String name;
+		private final String description;
+		private final Element element;
+		private final CompiledTaskDefinitions compiled;
+		private Task task = null;
+		private TaskSummary summary = null;
+
+		private Entry(String name, String description, Element element, CompiledTaskDefinitions compiled) {
+			super();
+			this.name = name;
+			this.description = description;
+			this.element = element;
+			this.compiled = compiled;
+		}
+
+		private synchronized TaskSummary getSummary() throws BioNLPSTException {
+			if (summary == null) {
+				Element elt = getElement();
+				synchronized (elt.getOwnerDocument()) {
+					summary = TaskConverter.getSummary(elt);
+				}
+			}
+			return summary;
+		}
+
+		private Element getElement() throws BioNLPSTException {
+			if (element == null) {
+				return compiled.getTaskElement(name);
+			}
+			return element;
+		}
+
+		private synchronized Task getTask() throws BioNLPSTException {
+			if (task == null) {
+				Element elt = getElement();
+				// DOM implementations are not thread-safe, even for reading
+				synchronized (elt.getOwnerDocument()) {
+					try {
+						task = taskConverter.convert(elt);
+					}
+					catch (RuntimeException e) {
+						throw e;
+					}
+					catch (Exception e) {
+						throw new BioNLPSTException("could not convert task " + name, e);
+					}
+				}
+			}
+			return task;
+		}
+	}
+}
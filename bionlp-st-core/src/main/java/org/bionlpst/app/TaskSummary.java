@@ -0,0 +1,91 @@
+package org.bionlpst.app;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.bionlpst.evaluation.Measure;
+
+/**
+ * Names and availability of a task, of its evaluations, scorings and measures.
+ * Summaries are read from task definitions without converting schemas and evaluations, so they do not read any vocabulary or resource.
+ * @author rbossy
+ *
+ */
+public class TaskSummary {
+	private final String name;
+	private final String description;
+	private final boolean test;
+	private final boolean testHasReferenceAnnotations;
+	private final List<EvaluationSummary> evaluations;
+
+	public TaskSummary(String name, String description, boolean test, boolean testHasReferenceAnnotations, List<EvaluationSummary> evaluations) {
+		super();
+		this.name = name;
+		this.description = description;
+		this.test = test;
+		this.testHasReferenceAnnotations = testHasReferenceAnnotations;
+		this.evaluations = Collections.unmodifiableList(evaluations);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public boolean hasTest() {
+		return test;
+	}
+
+	public boolean isTestHasReferenceAnnotations() {
+		return testHasReferenceAnnotations;
+	}
+
+	/**
+	 * Returns the evaluations of the task, in the same order as Task.getEvaluations().
+	 */
+	public List<EvaluationSummary> getEvaluations() {
+		return evaluations;
+	}
+
+	public static class EvaluationSummary {
+		private final String name;
+		private final List<ScoringSummary> scorings;
+
+		public EvaluationSummary(String name, List<ScoringSummary> scorings) {
+			super();
+			this.name = name;
+			this.scorings = Collections.unmodifiableList(scorings);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public List<ScoringSummary> getScorings() {
+			return scorings;
+		}
+	}
+
+	public static class ScoringSummary {
+		private final String name;
+		private final Collection<Measure> measures;
+
+		public ScoringSummary(String name, Collection<Measure> measures) {
+			super();
+			this.name = name;
+			this.measures = Collections.unmodifiableCollection(measures);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Collection<Measure> getMeasures() {
+			return measures;
+		}
+	}
+}
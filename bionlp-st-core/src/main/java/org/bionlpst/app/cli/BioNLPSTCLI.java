@@ -7,9 +7,15 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.app.Task;
+import org.bionlpst.app.TaskRegistry;
+import org.bionlpst.app.TaskSummary;
+import org.bionlpst.app.TaskSummary.EvaluationSummary;
+import org.bionlpst.app.TaskSummary.ScoringSummary;
 import org.bionlpst.corpus.Annotation;
 import org.bionlpst.corpus.Corpus;
 import org.bionlpst.corpus.Document;
@@ -23,11 +29,10 @@ import org.bionlpst.corpus.source.pubannotation.FileInputStreamFactory;
 import org.bionlpst.corpus.source.pubannotation.PubAnnotationSource;
 import org.bionlpst.corpus.writer.BioNLPSTWriter;
 import org.bionlpst.corpus.writer.PubAnnotationWriter;
-import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.corpus.writer.SnapshotWriter;
 import org.bionlpst.evaluation.BootstrapConfig;
 import org.bionlpst.evaluation.EvaluationResult;
 import org.bionlpst.evaluation.Measure;
-import org.bionlpst.evaluation.Scoring;
 import org.bionlpst.util.Location;
 import org.bionlpst.util.message.CheckLogger;
 import org.bionlpst.util.message.CheckMessage;
@@ -52,8 +57,13 @@ public class BioNLPSTCLI {
 	private double confidenceIntervalP = 0.95;
 	private long bootstrapRandomSeed = System.currentTimeMillis();
 	private BootstrapConfig bootstrapConfig = null;
+	private boolean parallelBootstrap = false;
+	private int threads = 1;
+	private boolean memoize = false;
+	private ExecutorService executor = null;
 	private File outputDir = null;
 	private String sourcedb = null;
+	private File snapshotFile = null;
 	private List<String> additionalTaskDefs = new ArrayList<String>();
 
 	private static enum Action {
@@ -88,14 +98,7 @@ public class BioNLPSTCLI {
 				break;
 			}
 			case LIST_TASKS: {
-				if (taskName == null) {
-					doListTasks();
-				}
-				else {
-					if (task != null) {
-						displayTask(task);
-					}
-				}
+				doListTasks();
 				exit(0);
 				break;
 			}
@@ -112,7 +115,14 @@ public class BioNLPSTCLI {
 			exit(1);
 		}
 		logger.information(COMMAND_LINE_LOCATION, "loading corpus and reference data");
-		Corpus corpus = loadReference(true);
+		Corpus corpus;
+		startExecutor();
+		try {
+			corpus = loadReference(true);
+		}
+		finally {
+			shutdownExecutor();
+		}
 		flushLogger();
 		
 		logger.information(COMMAND_LINE_LOCATION, "resolving references");
@@ -124,6 +134,11 @@ public class BioNLPSTCLI {
 			BioNLPSTWriter.write(corpus, outputDir);
 		}
 		
+		if (snapshotFile != null) {
+			logger.information(COMMAND_LINE_LOCATION, "writing annotations as snapshot into " + snapshotFile);
+			SnapshotWriter.write(corpus, snapshotFile);
+		}
+		
 		if (sourcedb != null) {
 			logger.information(COMMAND_LINE_LOCATION, "writing annotations in PubAnnotation format into standard output");
 			PubAnnotationWriter.write(corpus, sourcedb);
@@ -149,10 +164,34 @@ public class BioNLPSTCLI {
 		}
 	}
 
+	private void startExecutor() {
+		if (threads > 1) {
+			logger.information(COMMAND_LINE_LOCATION, "loading and pairing with " + threads + " threads");
+			executor = Executors.newFixedThreadPool(threads);
+		}
+	}
+
+	private void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
 	private void doCheckAndEvaluate(boolean evaluate) throws Exception {
 		if (task == null) {
 			exit(1);
 		}
+		startExecutor();
+		try {
+			doCheckAndEvaluateWithExecutor(evaluate);
+		}
+		finally {
+			shutdownExecutor();
+		}
+	}
+
+	private void doCheckAndEvaluateWithExecutor(boolean evaluate) throws Exception {
 		logger.information(COMMAND_LINE_LOCATION, "loading corpus and reference data");
 		Corpus corpus = loadReference(evaluate);
 		flushLogger();
@@ -196,8 +235,13 @@ public class BioNLPSTCLI {
 		task.getCorpusPostprocessing().postprocess(corpus);
 		logger.information(COMMAND_LINE_LOCATION, "evaluation");
 		if (bootstrapResamples != null) {
-			logger.information(COMMAND_LINE_LOCATION, String.format("bootstrap configuration: resamples = %d, confidence = %.2f, seed = %d", bootstrapResamples, confidenceIntervalP, bootstrapRandomSeed));
-			bootstrapConfig = new BootstrapConfig(new Random(bootstrapRandomSeed), bootstrapResamples);
+			logger.information(COMMAND_LINE_LOCATION, String.format("bootstrap configuration: resamples = %d, confidence = %.2f, seed = %d, parallel = %b", bootstrapResamples, confidenceIntervalP, bootstrapRandomSeed, parallelBootstrap));
+			if (parallelBootstrap) {
+				bootstrapConfig = new BootstrapConfig(bootstrapRandomSeed, bootstrapResamples, executor);
+			}
+			else {
+				bootstrapConfig = new BootstrapConfig(new Random(bootstrapRandomSeed), bootstrapResamples);
+			}
 		}
 		flushLogger();
 		doEvaluateCorpus(corpus);
@@ -211,13 +255,13 @@ public class BioNLPSTCLI {
 	private void doEvaluateCorpus(Corpus corpus) {
 		evalWriter.displayCorpusHeader(referenceSource, set);
 		if (alternateScores) {
-			Map<String,EvaluationResult<Annotation>> evalMap = task.evaluate(logger, corpus, false, bootstrapConfig);
+			Map<String,EvaluationResult<Annotation>> evalMap = task.evaluate(logger, corpus, false, bootstrapConfig, executor, memoize);
 			for (EvaluationResult<Annotation> eval : evalMap.values()) {
 				evalWriter.displayEvaluationResult(eval, false, (bootstrapConfig == null ? -1.0 : confidenceIntervalP));
 			}
 		}
 		else {
-			EvaluationResult<Annotation> eval = task.evaluateMain(logger, corpus, false, bootstrapConfig);
+			EvaluationResult<Annotation> eval = task.evaluateMain(logger, corpus, false, bootstrapConfig, executor, memoize);
 			evalWriter.displayEvaluationResult(eval, false, (bootstrapConfig == null ? -1.0 : confidenceIntervalP));
 		}
 	}
@@ -236,19 +280,23 @@ public class BioNLPSTCLI {
 		}
 	}
 
-	@SuppressWarnings("static-method")
 	private void doListTasks() throws Exception {
-		Map<String,Task> taskMap = Task.loadTasks(additionalTaskDefs);
-		for (Task task : taskMap.values()) {
-			displayTask(task);
+		TaskRegistry taskRegistry = TaskRegistry.load(additionalTaskDefs);
+		if (taskName == null) {
+			for (TaskSummary summary : taskRegistry.getSummaries()) {
+				displayTask(summary);
+			}
+		}
+		else if (task != null) {
+			displayTask(taskRegistry.getSummary(taskName));
 		}
 	}
 	
-	private static void displayTask(Task task) {
+	private static void displayTask(TaskSummary task) {
 		System.out.println(task.getName());
-		for (AnnotationEvaluation eval : task.getEvaluations()) {
+		for (EvaluationSummary eval : task.getEvaluations()) {
 			System.out.println("  " + eval.getName());
-			for (Scoring<Annotation> scoring : eval.getScorings()) {
+			for (ScoringSummary scoring : eval.getScorings()) {
 				System.out.print("    " + scoring.getName() + ":");
 				for (Measure measure : scoring.getMeasures()) {
 					System.out.print(' ');
@@ -261,12 +309,12 @@ public class BioNLPSTCLI {
 
 	private Corpus loadReference(boolean loadOutput) throws BioNLPSTException, IOException {
 		if (referenceSource != null) {
-			return referenceSource.fillContentAndReference(logger, loadOutput);
+			return referenceSource.fillContentAndReference(logger, loadOutput, executor);
 		}
 		switch (set) {
-			case "train": return task.getTrainCorpus(logger);
-			case "dev": return task.getDevCorpus(logger);
-			case "train+dev": return task.getTrainAndDevCorpus(logger);
+			case "train": return task.getTrainCorpus(logger, executor);
+			case "dev": return task.getDevCorpus(logger, executor);
+			case "train+dev": return task.getTrainAndDevCorpus(logger, executor);
 			case "test": {
 				if (!task.hasTest()) {
 					logger.serious(COMMAND_LINE_LOCATION, "test set is not available for " + task.getName());
@@ -276,7 +324,7 @@ public class BioNLPSTCLI {
 					logger.serious(COMMAND_LINE_LOCATION, "test set has no reference annotations for " + task.getName());
 					exit(1);
 				}
-				return task.getTestCorpus(logger);
+				return task.getTestCorpus(logger, executor);
 			}
 			default: {
 				throw new RuntimeException();
@@ -288,7 +336,11 @@ public class BioNLPSTCLI {
 		Task result = Task.loadTask(additionalTaskDefs, taskName);
 		if (result == null) {
 			logger.serious(COMMAND_LINE_LOCATION, "unknown task: " + taskName);
+			return null;
 		}
+		// the schema and evaluations are needed anyway, report invalid definitions with the option
+		result.getSchema();
+		result.getEvaluations();
 		return result;
 	}
 	
@@ -431,6 +483,12 @@ public class BioNLPSTCLI {
 					outputDir = new File(arg);
 					break;
 				}
+				case "-write-snapshot": {
+					action = Action.WRITE;
+					String arg = requireArgument(argsIt, opt, null);
+					snapshotFile = new File(arg);
+					break;
+				}
 				case "-write-pubannotation": {
 					action = Action.WRITE;
 					sourcedb = requireArgument(argsIt, opt, null);
@@ -474,6 +532,10 @@ public class BioNLPSTCLI {
 					}
 					break;
 				}
+				case "-parallel-bootstrap": {
+					parallelBootstrap = true;
+					break;
+				}
 				case "-confidence": {
 					String arg = requireArgument(argsIt, opt, null);
 					if (arg != null) {
@@ -489,6 +551,25 @@ public class BioNLPSTCLI {
 					}
 					break;
 				}
+				case "-memoize": {
+					memoize = true;
+					break;
+				}
+				case "-threads": {
+					String arg = requireArgument(argsIt, opt, null);
+					if (arg != null) {
+						try {
+							threads = Integer.parseInt(arg);
+							if (threads < 1) {
+								logger.serious(COMMAND_LINE_LOCATION, opt + " expects a positive non-zero integer");
+							}
+						}
+						catch (NumberFormatException e) {
+							logger.serious(COMMAND_LINE_LOCATION, opt + " expects a positive non-zero integer");
+						}
+					}
+					break;
+				}
 				default: {
 					if (opt.charAt(0) == '-') {
 						logger.serious(COMMAND_LINE_LOCATION, "unknown option: " + opt);
@@ -0,0 +1,327 @@
+package org.bionlpst.app.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.util.dom.DOMAliases;
+import org.bionlpst.util.dom.DOMUtil;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Task definitions precompiled at build time.
+ * A compiled file contains the task elements of a task definition file with aliases expanded, task names and descriptions are indexed.
+ * Task elements are rebuilt as DOM elements on request, without parsing XML nor expanding aliases.
+ * The compiled file records a checksum of the task definition file, compiled files that do not match the task definition file are ignored.
+ * Usage: CompiledTaskDefinitions XMLFILE [OUTFILE], the output file defaults to the XML file with the extension .bin.
+ * @author rbossy
+ *
+ */
+public class CompiledTaskDefinitions {
+	public static final String EXTENSION = ".bin";
+	static final int MAGIC = 0x424e5444;
+	static final int VERSION = 1;
+	static final byte ELEMENT = 1;
+	static final byte TEXT = 2;
+	static final byte CDATA = 3;
+
+	private final ByteBuffer buffer;
+	private final Map<String,TaskIndex> tasks = new LinkedHashMap<String,TaskIndex>();
+
+	private CompiledTaskDefinitions(ByteBuffer buffer) {
+		super();
+		this.buffer = buffer;
+		int taskCount = buffer.getInt();
+		for (int i = 0; i < taskCount; ++i) {
+			String name = readString(buffer);
+			String description = readString(buffer);
+			int length = buffer.getInt();
+			tasks.put(name, new TaskIndex(description, buffer.position()));
+			buffer.position(buffer.position() + length);
+		}
+	}
+
+	/**
+	 * Reads the compiled file of the specified task definition file.
+	 * The compiled file has the same location as the task definition file, with the extension .bin.
+	 * @param taskDefinitionURL URL of the task definition file.
+	 * @return the compiled task definitions, or null if there is no compiled file, or if it does not match the task definition file.
+	 * @throws IOException
+	 */
+	public static CompiledTaskDefinitions read(URL taskDefinitionURL) throws IOException {
+		byte[] compiled;
+		try (InputStream is = new URL(taskDefinitionURL, getCompiledFileName(taskDefinitionURL.getPath())).openStream()) {
+			compiled = readAll(is);
+		}
+		catch (FileNotFoundException e) {
+			return null;
+		}
+		byte[] xml;
+		try (InputStream is = taskDefinitionURL.openStream()) {
+			xml = readAll(is);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(compiled);
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != checksum(xml)) {
+				return null;
+			}
+			return new CompiledTaskDefinitions(buffer);
+		}
+		catch (BufferUnderflowException|IndexOutOfBoundsException|IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static String getCompiledFileName(String path) {
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		int dot = name.lastIndexOf('.');
+		if (dot == -1) {
+			return name + EXTENSION;
+		}
+		return name.substring(0, dot) + EXTENSION;
+	}
+
+	/**
+	 * Returns the names of the compiled tasks, in definition order.
+	 */
+	public List<String> getTaskNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(tasks.keySet()));
+	}
+
+	public boolean hasTask(String name) {
+		return tasks.containsKey(name);
+	}
+
+	/**
+	 * Returns the description of the specified task, or null if there is no such task.
+	 * @param name
+	 */
+	public String getDescription(String name) {
+		TaskIndex index = tasks.get(name);
+		if (index == null) {
+			return null;
+		}
+		return index.description;
+	}
+
+	/**
+	 * Rebuilds the element of the specified task, or returns null if there is no such task.
+	 * Each call returns an element in a new document.
+	 * @param name
+	 * @throws BioNLPSTException if the compiled file is corrupted.
+	 */
+	public Element getTaskElement(String name) throws BioNLPSTException {
+		TaskIndex index = tasks.get(name);
+		if (index == null) {
+			return null;
+		}
+		try {
+			Document doc = DOMUtil.createDocumentBuilder().newDocument();
+			ByteBuffer buf = buffer.duplicate();
+			buf.position(index.offset);
+			if (buf.get() != ELEMENT) {
+				throw new BioNLPSTException("corrupted compiled task definitions");
+			}
+			Element result = readElement(doc, buf);
+			doc.appendChild(result);
+			return result;
+		}
+		catch (BufferUnderflowException|IndexOutOfBoundsException|IllegalArgumentException e) {
+			throw new BioNLPSTException("corrupted compiled task definitions", e);
+		}
+		catch (ParserConfigurationException e) {
+			throw new BioNLPSTException(e);
+		}
+	}
+
+	private static Element readElement(Document doc, ByteBuffer buf) {
+		Element result = doc.createElement(readString(buf));
+		int attributeCount = buf.getInt();
+		for (int i = 0; i < attributeCount; ++i) {
+			String attrName = readString(buf);
+			result.setAttribute(attrName, readString(buf));
+		}
+		int childCount = buf.getInt();
+		for (int i = 0; i < childCount; ++i) {
+			byte kind = buf.get();
+			switch (kind) {
+				case ELEMENT: {
+					result.appendChild(readElement(doc, buf));
+					break;
+				}
+				case TEXT: {
+					result.appendChild(doc.createTextNode(readString(buf)));
+					break;
+				}
+				case CDATA: {
+					result.appendChild(doc.createCDATASection(readString(buf)));
+					break;
+				}
+				default: {
+					throw new BioNLPSTException("corrupted compiled task definitions");
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String readString(ByteBuffer buf) {
+		int length = buf.getInt();
+		String result = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+		buf.position(buf.position() + length);
+		return result;
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		while (true) {
+			int n = is.read(buf);
+			if (n == -1) {
+				break;
+			}
+			result.write(buf, 0, n);
+		}
+		return result.toByteArray();
+	}
+
+	private static long checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	/**
+	 * Compiles the specified task definitions.
+	 * @param xml contents of the task definition file.
+	 * @param out output stream.
+	 * @throws Exception
+	 */
+	public static void compile(byte[] xml, OutputStream out) throws Exception {
+		DocumentBuilder docBuilder = DOMUtil.createDocumentBuilder();
+		Document doc = docBuilder.parse(new ByteArrayInputStream(xml));
+		DOMAliases aliases = DOMUtil.createAliases(doc);
+		Element root = doc.getDocumentElement();
+		aliases.replace(root);
+		root.normalize();
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeInt(VERSION);
+		dos.writeLong(checksum(xml));
+		List<Element> taskElements = DOMUtil.getChildrenElements(root, false);
+		dos.writeInt(taskElements.size());
+		for (Element task : taskElements) {
+			writeString(dos, DOMUtil.getMandatoryAttribute(task, "name"));
+			writeString(dos, TaskConverter.getDescription(task));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream taskOut = new DataOutputStream(bytes);
+			writeNode(taskOut, task);
+			taskOut.flush();
+			dos.writeInt(bytes.size());
+			bytes.writeTo(dos);
+		}
+		dos.flush();
+	}
+
+	/**
+	 * Writes elements, text and CDATA sections, other nodes (comments, processing instructions) are not significant to converters.
+	 */
+	private static void writeNode(DataOutputStream out, Node node) throws IOException {
+		switch (node.getNodeType()) {
+			case Node.ELEMENT_NODE: {
+				out.writeByte(ELEMENT);
+				writeString(out, node.getNodeName());
+				NamedNodeMap attributes = node.getAttributes();
+				out.writeInt(attributes.getLength());
+				for (int i = 0; i < attributes.getLength(); ++i) {
+					Attr attr = (Attr) attributes.item(i);
+					writeString(out, attr.getName());
+					writeString(out, attr.getValue());
+				}
+				NodeList children = node.getChildNodes();
+				List<Node> significant = new ArrayList<Node>(children.getLength());
+				for (int i = 0; i < children.getLength(); ++i) {
+					Node child = children.item(i);
+					switch (child.getNodeType()) {
+						case Node.ELEMENT_NODE:
+						case Node.TEXT_NODE:
+						case Node.CDATA_SECTION_NODE: {
+							significant.add(child);
+							break;
+						}
+					}
+				}
+				out.writeInt(significant.size());
+				for (Node child : significant) {
+					writeNode(out, child);
+				}
+				break;
+			}
+			case Node.TEXT_NODE: {
+				out.writeByte(TEXT);
+				writeString(out, node.getNodeValue());
+				break;
+			}
+			case Node.CDATA_SECTION_NODE: {
+				out.writeByte(CDATA);
+				writeString(out, node.getNodeValue());
+				break;
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("usage: CompiledTaskDefinitions XMLFILE [OUTFILE]");
+			System.exit(1);
+		}
+		File xmlFile = new File(args[0]);
+		File outFile = args.length == 2 ? new File(args[1]) : new File(xmlFile.getParentFile(), getCompiledFileName(xmlFile.getName()));
+		byte[] xml = Files.readAllBytes(xmlFile.toPath());
+		try (OutputStream out = Files.newOutputStream(outFile.toPath())) {
+			compile(xml, out);
+		}
+	}
+
+	private static class TaskIndex {
+		private final String description;
+		private final int offset;
+
+		private TaskIndex(String description, int offset) {
+			super();
+			this.description = description;
+			this.offset = offset;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package org.bionlpst.app.xml;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -8,32 +9,46 @@ import org.bionlpst.corpus.source.ContentAndReferenceSource;
 import org.bionlpst.corpus.source.bionlpst.BioNLPSTSource;
 import org.bionlpst.corpus.source.bionlpst.InputStreamCollection;
 import org.bionlpst.corpus.source.pubtator.PubTatorSource;
+import org.bionlpst.corpus.source.snapshot.SnapshotSource;
 import org.bionlpst.util.dom.DOMElementConverter;
 import org.bionlpst.util.dom.DOMUtil;
 import org.w3c.dom.Element;
 
 public class ContentAndReferenceSourceConverter implements DOMElementConverter<ContentAndReferenceSource> {
+	private final ClassLoader classLoader;
 	private final InputStreamCollectionConverter corpusSourceConverter;
 
 	public ContentAndReferenceSourceConverter(ClassLoader classLoader) {
 		super();
+		this.classLoader = classLoader;
 		this.corpusSourceConverter = new InputStreamCollectionConverter(classLoader);
 	}
 
 	@Override
 	public ContentAndReferenceSource convert(Element element) throws Exception {
-		InputStreamCollection inputStreamCollection = corpusSourceConverter.convert(element);
 		String format = DOMUtil.getAttribute(element, "format", "bionlp-st");
 		switch (format) {
 			case "bionlp-st":
-				return new BioNLPSTSource(inputStreamCollection);
+				return new BioNLPSTSource(corpusSourceConverter.convert(element));
 			case "pubtator":
-				return convertPubTatorSource(element, inputStreamCollection);
+				return convertPubTatorSource(element, corpusSourceConverter.convert(element));
+			case "snapshot":
+				return convertSnapshotSource(element);
 			default:
 				throw new BioNLPSTException("unknown format " + format);
 		}
 	}
 	
+	private SnapshotSource convertSnapshotSource(Element element) {
+		if (element.hasAttribute("file")) {
+			return new SnapshotSource(new File(element.getAttribute("file")));
+		}
+		if (element.hasAttribute("resource")) {
+			return new SnapshotSource(classLoader, element.getAttribute("resource"));
+		}
+		return new SnapshotSource(classLoader, element.getTextContent());
+	}
+	
 	private static PubTatorSource convertPubTatorSource(Element element, InputStreamCollection inputStreamCollection) {
 		PubTatorSource result = new PubTatorSource(inputStreamCollection, DOMUtil.getBooleanAttribute(element, "ignore-relations", false));
 		if (element.hasAttribute("sections")) {
@@ -1,12 +1,22 @@
 package org.bionlpst.app.xml;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.app.CorpusPostprocessing;
 import org.bionlpst.app.Task;
+import org.bionlpst.app.TaskSummary;
+import org.bionlpst.app.TaskSummary.EvaluationSummary;
+import org.bionlpst.app.TaskSummary.ScoringSummary;
 import org.bionlpst.corpus.Corpus;
 import org.bionlpst.corpus.source.ContentAndReferenceSource;
 import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.evaluation.Measure;
 import org.bionlpst.evaluation.xml.EvaluationConverter;
+import org.bionlpst.evaluation.xml.ScoringConverter;
 import org.bionlpst.schema.Schema;
 import org.bionlpst.schema.xml.CorpusSchemaConverter;
 import org.bionlpst.util.Util;
@@ -17,11 +27,22 @@ import org.w3c.dom.Element;
 public class TaskConverter implements DOMElementConverter<Task> {
 	private final ClassLoader classLoader;
 	private final ContentAndReferenceSourceConverter corpusAndReferenceParserConverter;
+	private final boolean deferred;
 	
-	public TaskConverter(ClassLoader classLoader) {
+	/**
+	 * Creates a task converter.
+	 * @param classLoader class loader for resources and classes referenced by task definitions.
+	 * @param deferred either to defer the conversion of the schema and evaluations until their first use.
+	 */
+	public TaskConverter(ClassLoader classLoader, boolean deferred) {
 		Util.notnull(classLoader);
 		this.classLoader = classLoader;
 		this.corpusAndReferenceParserConverter = new ContentAndReferenceSourceConverter(classLoader);
+		this.deferred = deferred;
+	}
+	
+	public TaskConverter(ClassLoader classLoader) {
+		this(classLoader, false);
 	}
 
 	public ClassLoader getClassLoader() {
@@ -32,10 +53,110 @@ public class TaskConverter implements DOMElementConverter<Task> {
 		return corpusAndReferenceParserConverter;
 	}
 
+	public boolean isDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Returns the description of the specified task element, as the description of the converted task, without converting it.
+	 * @param element
+	 */
+	public static String getDescription(Element element) {
+		StringBuilder sb = new StringBuilder();
+		for (Element child : DOMUtil.getChildrenElements(element, false)) {
+			if (child.getTagName().equals("description")) {
+				if (sb.length() > 0) {
+					sb.append('\n');
+				}
+				sb.append(child.getTextContent().trim());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the summary of the specified task element without converting its schema and evaluations.
+	 * @param element
+	 * @throws BioNLPSTException if a scoring has no measures, or if type scorings have no types.
+	 */
+	public static TaskSummary getSummary(Element element) throws BioNLPSTException {
+		String name = DOMUtil.getMandatoryAttribute(element, "name");
+		boolean test = false;
+		boolean testHasReferenceAnnotations = false;
+		List<EvaluationSummary> evaluations = new ArrayList<EvaluationSummary>();
+		for (Element child : DOMUtil.getChildrenElements(element, false)) {
+			switch (child.getTagName()) {
+				case "evaluation": {
+					evaluations.add(getEvaluationSummary(child));
+					break;
+				}
+				case "test": {
+					test = true;
+					testHasReferenceAnnotations = DOMUtil.getBooleanAttribute(child, "with-reference", false);
+					break;
+				}
+			}
+		}
+		return new TaskSummary(name, getDescription(element), test, testHasReferenceAnnotations, evaluations);
+	}
+
+	/**
+	 * Scorings are named and ordered as by EvaluationConverter.
+	 */
+	private static EvaluationSummary getEvaluationSummary(Element element) {
+		String name = DOMUtil.getMandatoryAttribute(element, "name");
+		List<ScoringSummary> scorings = new ArrayList<ScoringSummary>();
+		for (Element child : DOMUtil.getChildrenElements(element, false)) {
+			switch (child.getTagName()) {
+				case "scoring": {
+					String scoringName = DOMUtil.getMandatoryAttribute(child, "name");
+					scorings.add(new ScoringSummary(scoringName, getScoringMeasures(child, null)));
+					break;
+				}
+				case "type-scorings": {
+					Collection<Measure> measures = getScoringMeasures(child, scorings.isEmpty() ? null : scorings.get(0).getMeasures());
+					String[] types = null;
+					for (Element typesElement : DOMUtil.getChildrenElements(child, false)) {
+						if (typesElement.getTagName().equals("types")) {
+							types = DOMUtil.getArrayContents(typesElement);
+						}
+					}
+					if (types == null) {
+						throw new BioNLPSTException("missing tag: types");
+					}
+					for (String type : types) {
+						scorings.add(new ScoringSummary(type, measures));
+					}
+					break;
+				}
+			}
+		}
+		return new EvaluationSummary(name, scorings);
+	}
+
+	private static Collection<Measure> getScoringMeasures(Element element, Collection<Measure> defaultMeasures) {
+		List<Measure> result = new ArrayList<Measure>();
+		for (Element child : DOMUtil.getChildrenElements(element, false)) {
+			Collection<? extends Measure> measures = ScoringConverter.getMeasures(child);
+			if (measures != null) {
+				result.addAll(measures);
+			}
+		}
+		if (result.isEmpty()) {
+			if (defaultMeasures == null || defaultMeasures.isEmpty()) {
+				throw new BioNLPSTException("missing measures in scoring");
+			}
+			return defaultMeasures;
+		}
+		return result;
+	}
+
 	@Override
 	public Task convert(Element element) throws Exception {
 		String name = DOMUtil.getMandatoryAttribute(element, "name");
 		Task result = new Task(name);
+		Element schemaElement = null;
+		List<Element> evaluationElements = new ArrayList<Element>();
 		for (Element child : DOMUtil.getChildrenElements(element, false)) {
 			String tag = child.getTagName();
 			switch (tag) {
@@ -50,18 +171,14 @@ public class TaskConverter implements DOMElementConverter<Task> {
 					break;
 				}
 				case "schema": {
-					Schema<Corpus> schema = result.getSchema();
-					if (schema != null) {
+					if (schemaElement != null) {
 						throw new BioNLPSTException("duplicate schema");
 					}
-					schema = new CorpusSchemaConverter(classLoader).convert(child);
-					schema = schema.reduce();
-					result.setSchema(schema);
+					schemaElement = child;
 					break;
 				}
 				case "evaluation": {
-					AnnotationEvaluation eval = new EvaluationConverter(classLoader).convert(child);
-					result.addEvaluation(eval);
+					evaluationElements.add(child);
 					break;
 				}
 				case "train": {
@@ -98,7 +215,7 @@ public class TaskConverter implements DOMElementConverter<Task> {
 				}
 			}
 		}
-		if (result.getSchema() == null) {
+		if (schemaElement == null) {
 			throw new BioNLPSTException("missing schema");
 		}
 //		if (result.getTrainSource() == null) {
@@ -107,9 +224,65 @@ public class TaskConverter implements DOMElementConverter<Task> {
 //		if (result.getDevSource() == null) {
 //			throw new BioNLPSTException("missing dev corpus for " + name);
 //		}
-		if (result.getEvaluations().isEmpty()) {
+		if (evaluationElements.isEmpty()) {
 			throw new BioNLPSTException("missing evaluations for " + name);
 		}
+		SchemaConversion schemaConversion = new SchemaConversion(schemaElement);
+		EvaluationsConversion evaluationsConversion = new EvaluationsConversion(evaluationElements);
+		if (deferred) {
+			result.setDeferredSchema(schemaConversion);
+			result.setDeferredEvaluations(evaluationsConversion);
+		}
+		else {
+			result.setSchema(schemaConversion.call());
+			for (AnnotationEvaluation eval : evaluationsConversion.call()) {
+				result.addEvaluation(eval);
+			}
+		}
 		return result;
 	}
+
+	/**
+	 * Conversion of the schema of a task.
+	 * DOM implementations are not thread-safe, even for reading, deferred conversions lock the owner document.
+	 */
+	private class SchemaConversion implements Callable<Schema<Corpus>> {
+		private final Element element;
+
+		private SchemaConversion(Element element) {
+			super();
+			this.element = element;
+		}
+
+		@Override
+		public Schema<Corpus> call() throws Exception {
+			synchronized (element.getOwnerDocument()) {
+				Schema<Corpus> schema = new CorpusSchemaConverter(classLoader).convert(element);
+				return schema.reduce();
+			}
+		}
+	}
+
+	/**
+	 * Conversion of the evaluations of a task, in document order.
+	 */
+	private class EvaluationsConversion implements Callable<List<AnnotationEvaluation>> {
+		private final List<Element> elements;
+
+		private EvaluationsConversion(List<Element> elements) {
+			super();
+			this.elements = elements;
+		}
+
+		@Override
+		public List<AnnotationEvaluation> call() throws Exception {
+			List<AnnotationEvaluation> result = new ArrayList<AnnotationEvaluation>(elements.size());
+			for (Element element : elements) {
+				synchronized (element.getOwnerDocument()) {
+					result.add(new EvaluationConverter(classLoader).convert(element));
+				}
+			}
+			return result;
+		}
+	}
 }
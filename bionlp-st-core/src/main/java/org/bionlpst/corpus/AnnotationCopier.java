@@ -0,0 +1,57 @@
+package org.bionlpst.corpus;
+
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Copies annotations into another annotation set.
+ * References are copied as identifiers, they must be resolved in the target document.
+ * @author rbossy
+ *
+ */
+class AnnotationCopier implements AnnotationVisitor<Annotation,AnnotationSet> {
+	private final CheckLogger logger;
+
+	AnnotationCopier(CheckLogger logger) {
+		super();
+		this.logger = logger;
+	}
+
+	/**
+	 * Copies all annotations of the source annotation set into the target annotation set, in the same order.
+	 */
+	void copy(AnnotationSet source, AnnotationSet target) {
+		for (Annotation ann : source.getAnnotations()) {
+			ann.accept(this, target);
+		}
+		if (source.isParsed()) {
+			target.setParsed();
+		}
+	}
+
+	@Override
+	public Annotation visit(TextBound textBound, AnnotationSet param) {
+		return new TextBound(logger, param, textBound);
+	}
+
+	@Override
+	public Annotation visit(Relation relation, AnnotationSet param) {
+		return new Relation(logger, param, relation.getLocation(), relation.getId(), relation.getType(), relation.getArgumentReferences());
+	}
+
+	@Override
+	public Annotation visit(Normalization normalization, AnnotationSet param) {
+		Normalization result = new Normalization(logger, param, normalization.getLocation(), normalization.getId(), normalization.getType(), normalization.getAnnotationReference(), normalization.getReferent());
+		result.setLabel(normalization.getLabel());
+		return result;
+	}
+
+	@Override
+	public Annotation visit(Modifier modifier, AnnotationSet param) {
+		return new Modifier(logger, param, modifier.getLocation(), modifier.getId(), modifier.getType(), modifier.getAnnotationReference());
+	}
+
+	@Override
+	public Annotation visit(DummyAnnotation dummy, AnnotationSet param) {
+		return new DummyAnnotation(logger, param, dummy.getLocation(), dummy.getId(), dummy.getType());
+	}
+}
@@ -2,7 +2,9 @@ package org.bionlpst.corpus;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.bionlpst.BioNLPSTException;
@@ -57,6 +59,28 @@ public class Corpus implements DocumentCollection {
 		}
 		documents.put(id, doc);
 	}
+
+	/**
+	 * Adds documents created with Document.createUnpublished() to this corpus in a single step.
+	 * Either all documents are added, or none.
+	 * @param docs documents to add.
+	 * @throws BioNLPSTException if one of the documents was created for another corpus, or if two documents, or a document and a document of this corpus, have the same identifier.
+	 */
+	public void addDocuments(Collection<Document> docs) throws BioNLPSTException {
+		Set<String> ids = new HashSet<String>();
+		for (Document doc : docs) {
+			if (doc.getCorpus() != this) {
+				throw new BioNLPSTException("document " + doc.getId() + " belongs to another corpus");
+			}
+			String id = doc.getId();
+			if (documents.containsKey(id) || !ids.add(id)) {
+				throw new BioNLPSTException("duplicate document identifier: " + id);
+			}
+		}
+		for (Document doc : docs) {
+			documents.put(doc.getId(), doc);
+		}
+	}
 	
 	/**
 	 * Returns all the documents in this corpus. The result is an unmodifiable collection.
@@ -67,6 +91,19 @@ public class Corpus implements DocumentCollection {
 		return Collections.unmodifiableCollection(documents.values());
 	}
 
+	/**
+	 * Creates a corpus containing copies of the documents of this corpus, with their input and reference annotations and their equivalences.
+	 * Prediction annotations are not copied. This corpus is only read, so several copies can be created concurrently as long as this corpus is not modified.
+	 * @return the copy.
+	 */
+	public Corpus copyReference() {
+		Corpus result = new Corpus();
+		for (Document doc : documents.values()) {
+			doc.copyReference(result);
+		}
+		return result;
+	}
+
 	/**
 	 * Resolve all references in all annotations in this corpus. This method should be called after the corpus is fully constructed (e.g. parsed) and before any further processing (e.g. schema checking).
 	 * @param logger message container where to store warnings and errors.
@@ -26,6 +26,7 @@ public class Document implements DocumentCollection {
 	private final AnnotationSet referenceAnnotationSet = new AnnotationSet(this, AnnotationSetSelector.REFERENCE, inputAnnotationSet);
 	private final AnnotationSet predictionAnnotationSet = new AnnotationSet(this, AnnotationSetSelector.PREDICTION, inputAnnotationSet);
 	private final Collection<Equivalence> equivalences = new ArrayList<Equivalence>();
+	private boolean referenceResolved = false;
 
 	/**
 	 * Creates a new document.
@@ -36,11 +37,29 @@ public class Document implements DocumentCollection {
 	 * @throws NullPointerException if one of the specified parameters is null.
 	 */
 	public Document(Corpus corpus, String id, String contents) throws BioNLPSTException, NullPointerException {
+		this(corpus, id, contents, true);
+	}
+
+	private Document(Corpus corpus, String id, String contents, boolean add) throws BioNLPSTException, NullPointerException {
 		super();
 		this.corpus = Util.notnull(corpus);
 		this.id = Util.notnull(id);
 		this.contents = Util.notnull(contents);
-		corpus.addDocument(this);
+		if (add) {
+			corpus.addDocument(this);
+		}
+	}
+
+	/**
+	 * Creates a new document that is not added to the specified corpus yet.
+	 * Unpublished documents can be filled with annotations in other threads, then added to the corpus with Corpus.addDocuments().
+	 * @param corpus collection to which will belong this document.
+	 * @param id identifier of this document.
+	 * @param contents text contents of this document.
+	 * @throws NullPointerException if one of the specified parameters is null.
+	 */
+	public static Document createUnpublished(Corpus corpus, String id, String contents) throws NullPointerException {
+		return new Document(corpus, id, contents, false);
 	}
 
 	/**
@@ -149,16 +168,44 @@ public class Document implements DocumentCollection {
 
 	/**
 	 * Resolve all references of all annotations and equivalences in this document.
+	 * Input and reference annotations, and equivalences, are resolved only by the first call, prediction annotations are resolved by every call.
 	 * @param logger message container where to store warnings and errors.
 	 * @see Corpus#resolveReferences(CheckLogger)
 	 */
 	public void resolveReferences(CheckLogger logger) {
-		inputAnnotationSet.resolveReferences(logger);
-		referenceAnnotationSet.resolveReferences(logger);
+		if (!referenceResolved) {
+			inputAnnotationSet.resolveReferences(logger);
+			referenceAnnotationSet.resolveReferences(logger);
+		}
 		predictionAnnotationSet.resolveReferences(logger);
+		if (!referenceResolved) {
+			for (Equivalence equiv : equivalences) {
+				equiv.resolveReferences(logger);
+			}
+			referenceResolved = true;
+		}
+	}
+
+	/**
+	 * Creates a copy of this document in the specified corpus, with copies of the input and reference annotations and of the equivalences.
+	 * Prediction annotations are not copied. If references of this document were resolved, then references of the copy are resolved.
+	 * @param corpus corpus to which will belong the copy.
+	 * @throws BioNLPSTException if the specified corpus already contains a document with the same identifier as this document.
+	 */
+	Document copyReference(Corpus corpus) throws BioNLPSTException {
+		Document result = new Document(corpus, id, contents);
+		// messages were reported when this document was parsed and resolved
+		CheckLogger logger = new CheckLogger();
+		AnnotationCopier copier = new AnnotationCopier(logger);
+		copier.copy(inputAnnotationSet, result.inputAnnotationSet);
+		copier.copy(referenceAnnotationSet, result.referenceAnnotationSet);
 		for (Equivalence equiv : equivalences) {
-			equiv.resolveReferences(logger);
+			new Equivalence(logger, result, equiv.getLocation(), equiv.getAnnotationReferences());
+		}
+		if (referenceResolved) {
+			result.resolveReferences(logger);
 		}
+		return result;
 	}
 
 	@Override
@@ -71,6 +71,13 @@ public class Equivalence {
 		return Collections.unmodifiableCollection(annotations);
 	}
 	
+	/**
+	 * Returns the references of equivalent annotations, as read from the source.
+	 */
+	public Collection<String> getAnnotationReferences() {
+		return Collections.unmodifiableCollection(annotationReferences);
+	}
+
 	/**
 	 * Returns either this equivalence contains no annotation.
 	 * @return either this equivalence contains no annotation.
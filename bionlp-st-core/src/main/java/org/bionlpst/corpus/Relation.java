@@ -50,6 +50,14 @@ public class Relation extends Annotation {
 		}
 	}
 
+	/**
+	 * Returns the argument references of this relation with their roles, as read from the source.
+	 * @return the argument references of this relation with their roles. The returned map is an unmodifiable view.
+	 */
+	public Map<String,String> getArgumentReferences() {
+		return Collections.unmodifiableMap(argumentReferences);
+	}
+
 	/**
 	 * Returns the arguments of this relation with their roles.
 	 * @return the arguments of this relation with their roles. The returned map is an unmodifiable view.
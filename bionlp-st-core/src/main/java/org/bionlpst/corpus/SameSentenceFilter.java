@@ -66,7 +66,7 @@ public class SameSentenceFilter implements Filter<Annotation>, AnnotationVisitor
 		return this;
 	}
 	
-	private List<Fragment> getDocumentSentences(Document doc) {
+	private synchronized List<Fragment> getDocumentSentences(Document doc) {
 		String docId = doc.getId();
 		if (!sentences.containsKey(docId)) {
 			String contents = doc.getContents();
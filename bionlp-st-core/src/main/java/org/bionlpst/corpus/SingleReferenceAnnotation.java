@@ -28,6 +28,14 @@ public abstract class SingleReferenceAnnotation extends Annotation {
 		this.annotationReference = annotationReference;
 	}
 
+	/**
+	 * Returns the reference to the annotation, as read from the source.
+	 * @return the reference to the annotation.
+	 */
+	public String getAnnotationReference() {
+		return annotationReference;
+	}
+
 	/**
 	 * Returns the referenced annotation.
 	 * @return the referenced annotation.
@@ -69,6 +69,17 @@ public class TextBound extends Annotation implements Fragment {
 		}
 	}
 
+	/**
+	 * Creates a copy of the specified text bound annotation in another annotation set. Fragments are copied as is, without checks.
+	 * @param logger message container where to store warnings and errors.
+	 * @param annotationSet annotation set to which belongs this annotation.
+	 * @param textBound text bound annotation to copy.
+	 */
+	TextBound(CheckLogger logger, AnnotationSet annotationSet, TextBound textBound) {
+		super(logger, annotationSet, textBound.getLocation(), textBound.getId(), textBound.getType());
+		this.fragments = new ArrayList<ImmutableFragment>(textBound.fragments);
+	}
+
 	/**
 	 * Returns this text bound annotation fragments.
 	 * @return this text bound annotation fragments. The returned list is an unmodifiable view.
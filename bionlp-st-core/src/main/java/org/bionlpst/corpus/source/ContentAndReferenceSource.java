@@ -1,6 +1,7 @@
 package org.bionlpst.corpus.source;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.corpus.Corpus;
@@ -10,4 +11,17 @@ import org.bionlpst.util.message.CheckLogger;
 public interface ContentAndReferenceSource extends Named {
 	void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput) throws BioNLPSTException, IOException;
 	Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput) throws BioNLPSTException, IOException;
+
+	/**
+	 * Fills the specified corpus, documents may be parsed concurrently by the specified executor.
+	 * Messages are added to the logger in the same order whatever the executor.
+	 * @param executor executor for parsing documents, null to parse in the current thread.
+	 */
+	void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException;
+
+	/**
+	 * Creates a corpus filled by this source, documents may be parsed concurrently by the specified executor.
+	 * @param executor executor for parsing documents, null to parse in the current thread.
+	 */
+	Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException;
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.util.Collection;
+
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.AnnotationSetSelector;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Equivalence;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.Util;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Parser of single lines in the BioNLP-ST annotation format.
+ * Subclasses parse the line of each annotation kind, ill-formed lines are reported to the logger and yield dummy annotations.
+ * @author rbossy
+ *
+ */
+public abstract class AnnotationLineParser {
+	protected AnnotationLineParser() {
+		super();
+	}
+
+	/**
+	 * Parses a single annotation line and adds the annotation to the specified annotation set.
+	 * @param logger message container where to store parse warnings and errors.
+	 * @param aset annotation set where to add the annotation.
+	 * @param location location of the line.
+	 * @param line trimmed line, must not be empty.
+	 */
+	public void parseAnnotation(CheckLogger logger, AnnotationSet aset, Location location, String line) {
+		int tab = line.indexOf('\t');
+		if (tab == -1) {
+			logger.serious(location, "expected tab character");
+			return;
+		}
+		String id = line.substring(0, tab);
+		String rest = line.substring(tab+1);
+		if (id.equals("*")) {
+			if (aset.getSelector() == AnnotationSetSelector.PREDICTION) {
+				logger.suspicious(location, "predictions are not supposed to provide equivalences");
+			}
+			else {
+				parseEquivalence(logger, aset, location, rest);
+			}
+			return;
+		}
+		char idType = id.charAt(0);
+		switch (idType) {
+			case 'T':
+			case 'W':
+				parseTextBound(logger, aset, location, id, rest);
+				break;
+			case 'R':
+			case 'E':
+				parseRelation(logger, aset, location, id, rest);
+				break;
+			case 'N':
+				parseNormalization(logger, aset, location, id, rest);
+				break;
+			case 'M':
+				parseModifier(logger, aset, location, id, rest);
+				break;
+			default:
+				logger.serious(location, "unknown annotation kind " + idType);
+				new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+		}
+	}
+
+	private static void parseEquivalence(CheckLogger logger, AnnotationSet aset, Location location, String rest) {
+		if (!rest.startsWith("Equiv ")) {
+			logger.serious(location, "ill formed equivalence, expected 'Equiv'");
+			return;
+		}
+		Collection<String> annotationReferences = Util.split(rest.substring(6), ' ');
+		new Equivalence(logger, aset.getDocument(), location, annotationReferences);
+	}
+
+	/**
+	 * Parses a text-bound annotation line.
+	 * @param rest line contents after the identifier and the tab character.
+	 */
+	protected abstract void parseTextBound(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest);
+
+	/**
+	 * Parses a relation or event line.
+	 * @param rest line contents after the identifier and the tab character.
+	 */
+	protected abstract void parseRelation(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest);
+
+	/**
+	 * Parses a normalization line.
+	 * @param rest line contents after the identifier and the tab character.
+	 */
+	protected abstract void parseNormalization(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest);
+
+	/**
+	 * Parses a modifier line.
+	 * @param rest line contents after the identifier and the tab character.
+	 */
+	protected abstract void parseModifier(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest);
+
+	/**
+	 * Returns the type of the dummy annotation created for an ill-formed line.
+	 * @param rest line contents after the identifier and the tab character.
+	 */
+	protected abstract String getDummyType(String rest);
+}
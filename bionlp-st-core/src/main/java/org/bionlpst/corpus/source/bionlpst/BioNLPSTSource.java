@@ -12,26 +12,22 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.corpus.AnnotationSet;
 import org.bionlpst.corpus.AnnotationSetSelector;
 import org.bionlpst.corpus.Corpus;
 import org.bionlpst.corpus.Document;
-import org.bionlpst.corpus.DummyAnnotation;
-import org.bionlpst.corpus.Equivalence;
-import org.bionlpst.corpus.Modifier;
-import org.bionlpst.corpus.Normalization;
-import org.bionlpst.corpus.Relation;
-import org.bionlpst.corpus.TextBound;
 import org.bionlpst.corpus.source.ContentAndReferenceSource;
 import org.bionlpst.corpus.source.PredictionSource;
 import org.bionlpst.util.Location;
 import org.bionlpst.util.Util;
-import org.bionlpst.util.fragment.ImmutableFragment;
 import org.bionlpst.util.message.CheckLogger;
+import org.bionlpst.util.message.CheckMessage;
 
 public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSource {
 	public static final String EXT_CONTENTS = ".txt";
@@ -39,13 +35,27 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 	public static final String EXT_OUTPUT = ".a2";
 	
 	private static final String[] EXTS_ALL = { EXT_CONTENTS, EXT_INPUT, EXT_OUTPUT };
-	private static final String[] EXTS_OUTPUT_ONLY = { EXT_CONTENTS, EXT_INPUT, EXT_OUTPUT };
+
+	/**
+	 * Annotation line parser used by default.
+	 */
+	public static final AnnotationLineParser DEFAULT_LINE_PARSER = ScannerAnnotationLineParser.INSTANCE;
 
 	private final InputStreamCollection inputStreamCollection;
+	private final AnnotationLineParser lineParser;
 	
-	public BioNLPSTSource(InputStreamCollection inputStreamCollection) {
+	public BioNLPSTSource(InputStreamCollection inputStreamCollection, AnnotationLineParser lineParser) {
 		super();
 		this.inputStreamCollection = inputStreamCollection;
+		this.lineParser = lineParser;
+	}
+
+	public BioNLPSTSource(InputStreamCollection inputStreamCollection) {
+		this(inputStreamCollection, DEFAULT_LINE_PARSER);
+	}
+
+	public AnnotationLineParser getLineParser() {
+		return lineParser;
 	}
 
 	private static String getDocumentIdFromPath(String path) {
@@ -65,7 +75,7 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 	 * @param r stream to parse.
 	 * @throws IOException if there's a I/O error reading the specified file.
 	 */
-	private static void parseAnnotations(CheckLogger logger, Corpus corpus, AnnotationSetSelector asetSelect, String source, Reader r) throws IOException {
+	private void parseAnnotations(CheckLogger logger, Corpus corpus, AnnotationSetSelector asetSelect, String source, Reader r) throws IOException {
 		String docId = getDocumentIdFromPath(source);
 		if (!corpus.hasDocument(docId)) {
 			logger.serious(new Location(source, -1), "unknown document " + docId);
@@ -77,8 +87,31 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 		parseAnnotations(logger, aset, source, reader);
 	}
 
+	/**
+	 * Returns either the streams of this source can be opened by name.
+	 */
+	private boolean isRandomAccess() {
+		return (inputStreamCollection instanceof RandomAccessInputStreamCollection) && ((RandomAccessInputStreamCollection) inputStreamCollection).isRandomAccess();
+	}
+
 	@Override
 	public void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput) throws BioNLPSTException, IOException {
+		fillContentAndReference(logger, corpus, loadOutput, (ExecutorService) null);
+	}
+
+	/**
+	 * Documents are parsed concurrently only if the streams of this source can be opened by name, otherwise the executor is ignored.
+	 * Collections that cannot be opened by name (e.g. uploaded archives) are read once, and all entries are buffered in memory before parsing, since contents must be loaded before annotations.
+	 * Bundled references and files are always opened by name.
+	 */
+	@Override
+	public void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		if (isRandomAccess()) {
+			try (RandomAccessEntries entries = ((RandomAccessInputStreamCollection) inputStreamCollection).openEntries()) {
+				fillContentAndReference(logger, corpus, loadOutput, entries, executor);
+			}
+			return;
+		}
 		Collection<InputStreamEntry> records = collectEntries(EXTS_ALL);
 		loadDocuments(corpus, records);
 		loadInputAnnotations(logger, corpus, records);
@@ -93,11 +126,36 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 		fillContentAndReference(logger, result, loadOutput);
 		return result;
 	}
+
+	@Override
+	public Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		Corpus result = new Corpus();
+		fillContentAndReference(logger, result, loadOutput, executor);
+		return result;
+	}
 	
+	/**
+	 * Prediction files are parsed directly from their stream, including for collections that cannot be opened by name.
+	 */
 	@Override
 	public void fillPredictions(CheckLogger logger, Corpus corpus) throws BioNLPSTException, IOException {
-		Collection<InputStreamEntry> entries = collectEntries(EXTS_OUTPUT_ONLY);
-		loadOutputAnnotations(logger, corpus, entries, AnnotationSetSelector.PREDICTION);
+		if (isRandomAccess()) {
+			try (RandomAccessEntries entries = ((RandomAccessInputStreamCollection) inputStreamCollection).openEntries()) {
+				for (String name : entries.getNames()) {
+					if (name.endsWith(EXT_OUTPUT)) {
+						parseAnnotations(logger, corpus, AnnotationSetSelector.PREDICTION, entries, name);
+					}
+				}
+			}
+			return;
+		}
+		InputStreamIterator it = inputStreamCollection.getIterator();
+		while (it.next()) {
+			String name = it.getName();
+			if (name.endsWith(EXT_OUTPUT)) {
+				parseAnnotations(logger, corpus, AnnotationSetSelector.PREDICTION, name, new InputStreamReader(it.getContents()));
+			}
+		}
 	}
 
 	@Override
@@ -105,6 +163,189 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 		return inputStreamCollection.getName();
 	}
 
+	/**
+	 * Annotation files of a single document.
+	 */
+	private static class DocumentEntries {
+		private final List<String> input = new ArrayList<String>(1);
+		private final List<String> output = new ArrayList<String>(1);
+		private boolean loaded = false;
+	}
+
+	/**
+	 * Loads documents and annotations one document at a time, each file is parsed directly from its stream.
+	 * Documents are created in the order of their contents files, the input and output annotations of each document are parsed right after its contents.
+	 * If an executor is specified, then documents are loaded concurrently and added to the corpus at once, messages are logged in the same order as a sequential load.
+	 */
+	private void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput, RandomAccessEntries entries, ExecutorService executor) throws IOException {
+		Map<String,DocumentEntries> documentEntries = new LinkedHashMap<String,DocumentEntries>();
+		List<String> contentsNames = new ArrayList<String>();
+		for (String name : entries.getNames()) {
+			if (name.endsWith(EXT_CONTENTS)) {
+				contentsNames.add(name);
+			}
+			else if (name.endsWith(EXT_INPUT)) {
+				getDocumentEntries(documentEntries, name).input.add(name);
+			}
+			else if (name.endsWith(EXT_OUTPUT)) {
+				getDocumentEntries(documentEntries, name).output.add(name);
+			}
+		}
+		if (executor == null) {
+			for (String name : contentsNames) {
+				String docId = getDocumentIdFromPath(name);
+				try (InputStream is = entries.getContents(name)) {
+					new Document(corpus, docId, is);
+				}
+				DocumentEntries de = documentEntries.get(docId);
+				if (de != null && !de.loaded) {
+					loadAnnotations(logger, corpus, loadOutput, entries, de);
+				}
+			}
+		}
+		else {
+			loadDocuments(logger, corpus, loadOutput, entries, executor, documentEntries, contentsNames);
+		}
+		for (DocumentEntries de : documentEntries.values()) {
+			if (!de.loaded) {
+				loadAnnotations(logger, corpus, loadOutput, entries, de);
+			}
+		}
+	}
+
+	private void loadDocuments(CheckLogger logger, Corpus corpus, boolean loadOutput, RandomAccessEntries entries, ExecutorService executor, Map<String,DocumentEntries> documentEntries, List<String> contentsNames) throws IOException {
+		List<Future<DocumentLoader>> futures = new ArrayList<Future<DocumentLoader>>(contentsNames.size());
+		for (String name : contentsNames) {
+			DocumentEntries de = documentEntries.get(getDocumentIdFromPath(name));
+			if (de != null) {
+				if (de.loaded) {
+					de = null;
+				}
+				else {
+					de.loaded = true;
+				}
+			}
+			DocumentLoader loader = new DocumentLoader(corpus, loadOutput, entries, name, de);
+			futures.add(executor.submit(loader));
+		}
+		List<DocumentLoader> loaders = new ArrayList<DocumentLoader>(futures.size());
+		try {
+			for (Future<DocumentLoader> f : futures) {
+				loaders.add(f.get());
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new BioNLPSTException("interrupted while loading documents", e);
+		}
+		catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new BioNLPSTException(cause);
+		}
+		List<Document> docs = new ArrayList<Document>(loaders.size());
+		for (DocumentLoader loader : loaders) {
+			docs.add(loader.doc);
+		}
+		corpus.addDocuments(docs);
+		for (DocumentLoader loader : loaders) {
+			for (CheckMessage msg : loader.logger.getMessages()) {
+				logger.addMessage(msg);
+			}
+		}
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> f : futures) {
+			f.cancel(true);
+		}
+	}
+
+	/**
+	 * Reads the contents and parses the annotations of a single document, the document is not added to the corpus.
+	 * Messages are stored in a private logger.
+	 */
+	private class DocumentLoader implements Callable<DocumentLoader> {
+		private final Corpus corpus;
+		private final boolean loadOutput;
+		private final RandomAccessEntries entries;
+		private final String contentsName;
+		private final DocumentEntries documentEntries;
+		private final CheckLogger logger = new CheckLogger();
+		private Document doc;
+
+		private DocumentLoader(Corpus corpus, boolean loadOutput, RandomAccessEntries entries, String contentsName, DocumentEntries documentEntries) {
+			super();
+			this.corpus = corpus;
+			this.loadOutput = loadOutput;
+			this.entries = entries;
+			this.contentsName = contentsName;
+			this.documentEntries = documentEntries;
+		}
+
+		@Override
+		public DocumentLoader call() throws IOException {
+			try (InputStream is = entries.getContents(contentsName)) {
+				doc = Document.createUnpublished(corpus, getDocumentIdFromPath(contentsName), Util.readWholeStream(is));
+			}
+			if (documentEntries != null) {
+				for (String name : documentEntries.input) {
+					parseAnnotations(doc.getInputAnnotationSet(), name);
+				}
+				if (loadOutput) {
+					for (String name : documentEntries.output) {
+						parseAnnotations(doc.getReferenceAnnotationSet(), name);
+					}
+				}
+			}
+			return this;
+		}
+
+		private void parseAnnotations(AnnotationSet aset, String name) throws IOException {
+			try (InputStream is = entries.getContents(name)) {
+				BioNLPSTSource.this.parseAnnotations(logger, aset, name, new BufferedReader(new InputStreamReader(is)));
+			}
+		}
+	}
+
+	private static DocumentEntries getDocumentEntries(Map<String,DocumentEntries> documentEntries, String name) {
+		String docId = getDocumentIdFromPath(name);
+		if (documentEntries.containsKey(docId)) {
+			return documentEntries.get(docId);
+		}
+		DocumentEntries result = new DocumentEntries();
+		documentEntries.put(docId, result);
+		return result;
+	}
+
+	private void loadAnnotations(CheckLogger logger, Corpus corpus, boolean loadOutput, RandomAccessEntries entries, DocumentEntries de) throws IOException {
+		de.loaded = true;
+		for (String name : de.input) {
+			parseAnnotations(logger, corpus, AnnotationSetSelector.INPUT, entries, name);
+		}
+		if (loadOutput) {
+			for (String name : de.output) {
+				parseAnnotations(logger, corpus, AnnotationSetSelector.REFERENCE, entries, name);
+			}
+		}
+	}
+
+	private void parseAnnotations(CheckLogger logger, Corpus corpus, AnnotationSetSelector asetSelect, RandomAccessEntries entries, String name) throws IOException {
+		try (InputStream is = entries.getContents(name)) {
+			parseAnnotations(logger, corpus, asetSelect, name, new InputStreamReader(is));
+		}
+	}
+
 	private Collection<InputStreamEntry> collectEntries(String... exts) throws IOException {
 		Collection<InputStreamEntry> result = new ArrayList<InputStreamEntry>();
 		InputStreamIterator it = inputStreamCollection.getIterator();
@@ -136,18 +377,18 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 		}
 	}
 	
-	private static void loadInputAnnotations(CheckLogger logger, Corpus corpus, Collection<InputStreamEntry> record) throws IOException {
+	private void loadInputAnnotations(CheckLogger logger, Corpus corpus, Collection<InputStreamEntry> record) throws IOException {
 		for (InputStreamEntry u : record) {
 			if (u.isInputAnnotationSet()) {
-				u.createInputAnnotations(logger, corpus);
+				u.createInputAnnotations(this, logger, corpus);
 			}
 		}
 	}
 	
-	private static void loadOutputAnnotations(CheckLogger logger, Corpus corpus, Collection<InputStreamEntry> entries, AnnotationSetSelector loadOutput) throws IOException {
+	private void loadOutputAnnotations(CheckLogger logger, Corpus corpus, Collection<InputStreamEntry> entries, AnnotationSetSelector loadOutput) throws IOException {
 		for (InputStreamEntry u : entries) {
 			if (u.isOutputAnnotationSet()) {
-				u.createOutputAnnotations(logger, corpus, loadOutput);
+				u.createOutputAnnotations(this, logger, corpus, loadOutput);
 			}
 		}
 	}
@@ -174,22 +415,22 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 			return name.endsWith(EXT_INPUT);
 		}
 		
-		private void createInputAnnotations(CheckLogger logger, Corpus corpus) throws IOException {
+		private void createInputAnnotations(BioNLPSTSource source, CheckLogger logger, Corpus corpus) throws IOException {
 			Reader reader = new StringReader(contents);
-			BioNLPSTSource.parseAnnotations(logger, corpus, AnnotationSetSelector.INPUT, name, reader);
+			source.parseAnnotations(logger, corpus, AnnotationSetSelector.INPUT, name, reader);
 		}
 		
 		private boolean isOutputAnnotationSet() {
 			return name.endsWith(EXT_OUTPUT);
 		}
 		
-		private void createOutputAnnotations(CheckLogger logger, Corpus corpus, AnnotationSetSelector loadOutput) throws IOException {
+		private void createOutputAnnotations(BioNLPSTSource source, CheckLogger logger, Corpus corpus, AnnotationSetSelector loadOutput) throws IOException {
 			Reader reader = new StringReader(contents);
-			BioNLPSTSource.parseAnnotations(logger, corpus, loadOutput, name, reader);
+			source.parseAnnotations(logger, corpus, loadOutput, name, reader);
 		}
 	}
 
-	private static void parseAnnotations(CheckLogger logger, AnnotationSet aset, String source, BufferedReader reader) throws IOException {
+	private void parseAnnotations(CheckLogger logger, AnnotationSet aset, String source, BufferedReader reader) throws IOException {
 		aset.setParsed();
 		int lineno = 0;
 		while (true) {
@@ -202,159 +443,7 @@ public class BioNLPSTSource implements ContentAndReferenceSource, PredictionSour
 			if (line.isEmpty()) {
 				continue;
 			}
-			parseAnnotation(logger, aset, new Location(source, lineno), line);
-		}
-	}
-	
-	private static void parseAnnotation(CheckLogger logger, AnnotationSet aset, Location location, String line) {
-		int tab = line.indexOf('\t');
-		if (tab == -1) {
-			logger.serious(location, "expected tab character");
-			return;
-		}
-		String id = line.substring(0, tab);
-		String rest = line.substring(tab+1);
-		if (id.equals("*")) {
-			if (aset.getSelector() == AnnotationSetSelector.PREDICTION) {
-				logger.suspicious(location, "predictions are not supposed to provide equivalences");
-			}
-			else {
-				parseEquivalence(logger, aset, location, rest);
-			}
-			return;
-		}
-		char idType = id.charAt(0);
-		switch (idType) {
-			case 'T':
-			case 'W':
-				parseTextBound(logger, aset, location, id, rest);
-				break;
-			case 'R':
-			case 'E':
-				parseRelation(logger, aset, location, id, rest);
-				break;
-			case 'N':
-				parseNormalization(logger, aset, location, id, rest);
-				break;
-			case 'M':
-				parseModifier(logger, aset, location, id, rest);
-				break;
-			default:
-				logger.serious(location, "unknown annotation kind " + idType);
-				new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
-		}
-	}
-
-	private static void parseEquivalence(CheckLogger logger, AnnotationSet aset, Location location, String rest) {
-		if (!rest.startsWith("Equiv ")) {
-			logger.serious(location, "ill formed equivalence, expected 'Equiv'");
-			return;
-		}
-		Collection<String> annotationReferences = Util.split(rest.substring(6), ' ');
-		new Equivalence(logger, aset.getDocument(), location, annotationReferences);
-	}
-
-	private static Pattern TEXT_BOUND_PARSER = Pattern.compile("(?<type>\\S+) (?<fragments>\\d+ \\d+(?:;\\d+ \\d+)*)\t(?<control>.*)");
-
-	private static void parseTextBound(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
-		Matcher m = TEXT_BOUND_PARSER.matcher(rest);
-		if (!m.matches()) {
-			logger.serious(location, "ill formed text-bound annotation: '" + rest + "'");
-			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
-			return;
-		}
-		String type = m.group("type");
-		String sFragments = m.group("fragments");
-		List<ImmutableFragment> fragments = parseFragments(sFragments);
-		new TextBound(logger, aset, location, id, type, fragments);
-	}
-
-	private static List<ImmutableFragment> parseFragments(String sFragments) {
-		List<ImmutableFragment> result = new ArrayList<ImmutableFragment>();
-		for (String sFrag : Util.split(sFragments, ';')) {
-			ImmutableFragment frag = parseFragment(sFrag);
-			result.add(frag);
-		}
-		return result;
-	}
-
-	private static ImmutableFragment parseFragment(String sFrag) {
-		int space = sFrag.indexOf(' ');
-		int start = Integer.parseInt(sFrag.substring(0, space));
-		int end = Integer.parseInt(sFrag.substring(space+1));
-		return new ImmutableFragment(start, end);
-	}
-
-	private static Pattern RELATION_PARSER = Pattern.compile("(?<type>\\S+) (?<args>.+)");
-	
-	private static void parseRelation(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
-		Matcher m = RELATION_PARSER.matcher(rest);
-		if (!m.matches()) {
-			logger.serious(location, "ill formed relation, expected type and arguments: '" + rest + "'");
-			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
-			return;
-		}
-		String type = m.group("type");
-		String sArgs = m.group("args");
-		Map<String,String> args = parseArgs(logger, location, sArgs);
-		new Relation(logger, aset, location, id, type, args);
-	}
-
-	private static Pattern ARGUMENT_PARSER = Pattern.compile("\\s*(?<role>[^:]+):(?<ref>\\S+)\\s*");
- 
-	private static Map<String,String> parseArgs(CheckLogger logger, Location location, String sArgs) {
-		Map<String,String> result = new LinkedHashMap<String,String>();
-		Matcher m = ARGUMENT_PARSER.matcher(sArgs);
-		while (m.find()) {
-			String role = m.group("role");
-			String ref = m.group("ref");
-			if (result.containsKey(role)) {
-				logger.suspicious(location, "duplicate argument: " + role);
-			}
-			result.put(role, ref);
-		}
-		if (result.isEmpty()) {
-			logger.serious(location, "no arguments");
-		}
-		return result;
-	}
-
-	private static final Pattern NORMALIZATION_PARSER = Pattern.compile("(?<type>\\S+) Annotation:(?<ann>\\S+) Referent:(?<ref>\\S+)");
-	
-	private static void parseNormalization(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
-		Matcher m = NORMALIZATION_PARSER.matcher(rest);
-		if (!m.matches()) {
-			logger.serious(location, "ill formed normalization, expected type, Annotation and Referent");
-			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
-			return;
-		}
-		String type = m.group("type");
-		String annRef = m.group("ann");
-		String dbRef = m.group("ref");
-		new Normalization(logger, aset, location, id, type, annRef, dbRef);
-	}
-
-	private static final Pattern MODIFIER_PARSER = Pattern.compile("(?<type>\\S+) Annotation:(?<ann>\\S+)");
-
-	private static void parseModifier(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
-		Matcher m = MODIFIER_PARSER.matcher(rest);
-		if (!m.matches()) {
-			logger.serious(location, "ill formed modfier, expected type and Annotation");
-			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
-			return;
-		}
-		String type = m.group("type");
-		String annRef = m.group("ann");
-		new Modifier(logger, aset, location, id, type, annRef);
-	}
-	
-	private static final Pattern DUMMY_TYPE_PARSER = Pattern.compile("(?<type>\\S+)\\s*.*");
-
-	private static String getDummyType(String rest) {
-		Matcher m = DUMMY_TYPE_PARSER.matcher(rest);
-		if (m.matches()) {
-			return m.group("type");
+			lineParser.parseAnnotation(logger, aset, new Location(source, lineno), line);
 		}
-		return DummyAnnotation.DUMMY_TYPE;
 	}
 }
@@ -5,8 +5,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-public class DirectoryInputStreamCollection implements InputStreamCollection {
+public class DirectoryInputStreamCollection implements RandomAccessInputStreamCollection {
 	private final File directory;
 	
 	public DirectoryInputStreamCollection(File directory) {
@@ -29,6 +32,35 @@ public class DirectoryInputStreamCollection implements InputStreamCollection {
 		return directory.getPath();
 	}
 
+	@Override
+	public boolean isRandomAccess() {
+		return true;
+	}
+
+	@Override
+	public RandomAccessEntries openEntries() {
+		String[] files = directory.list();
+		final List<String> names = new ArrayList<String>(files.length);
+		for (String f : files) {
+			names.add(new File(directory, f).getPath());
+		}
+		return new RandomAccessEntries() {
+			@Override
+			public List<String> getNames() {
+				return Collections.unmodifiableList(names);
+			}
+
+			@Override
+			public InputStream getContents(String name) throws FileNotFoundException {
+				return new FileInputStream(name);
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
 	private class DirectoryInputStreamIterator implements InputStreamIterator {
 		private final String[] files;
 		private int currentIndex = -1;
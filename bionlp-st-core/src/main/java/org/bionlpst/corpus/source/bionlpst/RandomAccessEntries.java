@@ -0,0 +1,27 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Entries of a random access stream collection.
+ * @author rbossy
+ *
+ */
+public interface RandomAccessEntries extends AutoCloseable {
+	/**
+	 * Returns the names of all entries, in the order of the collection.
+	 */
+	List<String> getNames();
+
+	/**
+	 * Opens the contents of the specified entry, the result must be closed by the caller.
+	 * @param name entry name as returned by getNames().
+	 * @throws IOException
+	 */
+	InputStream getContents(String name) throws IOException;
+
+	@Override
+	void close() throws IOException;
+}
@@ -0,0 +1,23 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.io.IOException;
+
+/**
+ * A collection of streams that can also be opened by name, in any order.
+ * @author rbossy
+ *
+ */
+public interface RandomAccessInputStreamCollection extends InputStreamCollection {
+	/**
+	 * Returns either the streams of this collection can be opened by name.
+	 * If not, then this collection must be read sequentially with getIterator().
+	 */
+	boolean isRandomAccess();
+
+	/**
+	 * Opens the entries of this collection for random access, the result must be closed.
+	 * Entry names are the same as the names yielded by getIterator().
+	 * @throws IOException
+	 */
+	RandomAccessEntries openEntries() throws IOException;
+}
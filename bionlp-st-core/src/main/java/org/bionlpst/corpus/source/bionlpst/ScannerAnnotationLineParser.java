@@ -0,0 +1,305 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.fragment.ImmutableFragment;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Annotation line parser that scans each line once, character by character.
+ * This parser accepts exactly the same lines, and yields the same annotations and messages, as the former regular expression parser, see AnnotationLineParserRegressionTest.
+ * Whitespace and line terminators follow the definitions of java.util.regex for \s and the dot.
+ * @author rbossy
+ *
+ */
+public class ScannerAnnotationLineParser extends AnnotationLineParser {
+	public static final ScannerAnnotationLineParser INSTANCE = new ScannerAnnotationLineParser();
+
+	private static final String ANNOTATION_PREFIX = "Annotation:";
+	private static final String REFERENT_PREFIX = " Referent:";
+
+	private ScannerAnnotationLineParser() {
+		super();
+	}
+
+	private static boolean isSpace(char c) {
+		switch (c) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\u000B':
+			case '\f':
+			case '\r':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isLineTerminator(char c) {
+		switch (c) {
+			case '\n':
+			case '\r':
+			case '\u0085':
+			case '\u2028':
+			case '\u2029':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Returns the position of the first whitespace character at or after the specified position, or the length of the string.
+	 */
+	private static int skipNonSpace(String s, int from) {
+		int n = s.length();
+		int i = from;
+		while (i < n && !isSpace(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipSpace(String s, int from) {
+		int n = s.length();
+		int i = from;
+		while (i < n && isSpace(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean hasLineTerminator(String s, int from) {
+		int n = s.length();
+		for (int i = from; i < n; ++i) {
+			if (isLineTerminator(s.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the position after the type token, -1 if the string does not start with a type followed by a space.
+	 */
+	private static int scanType(String s) {
+		int t = skipNonSpace(s, 0);
+		if (t == 0 || t == s.length() || s.charAt(t) != ' ') {
+			return -1;
+		}
+		return t;
+	}
+
+	/**
+	 * Scans a text-bound line: type, fragments, tab and control form.
+	 * Digit bounds are stored in the specified array, four per fragment, numbers are parsed after the whole line is known to be well formed.
+	 * @return the number of fragments, -1 if the line is ill formed.
+	 */
+	private static int scanTextBound(String rest, int typeEnd, int[] bounds) {
+		int n = rest.length();
+		int pos = typeEnd + 1;
+		int nFrags = 0;
+		while (true) {
+			int startEnd = skipDigits(rest, pos);
+			if (startEnd == pos || startEnd == n || rest.charAt(startEnd) != ' ') {
+				return -1;
+			}
+			int endEnd = skipDigits(rest, startEnd + 1);
+			if (endEnd == startEnd + 1) {
+				return -1;
+			}
+			bounds[nFrags * 4] = pos;
+			bounds[nFrags * 4 + 1] = startEnd;
+			bounds[nFrags * 4 + 2] = startEnd + 1;
+			bounds[nFrags * 4 + 3] = endEnd;
+			nFrags++;
+			pos = endEnd;
+			if (pos < n && rest.charAt(pos) == ';') {
+				pos++;
+				continue;
+			}
+			break;
+		}
+		if (pos == n || rest.charAt(pos) != '\t' || hasLineTerminator(rest, pos + 1)) {
+			return -1;
+		}
+		return nFrags;
+	}
+
+	private static int count(String s, char c, int from) {
+		int n = s.length();
+		int result = 0;
+		for (int i = from; i < n; ++i) {
+			if (s.charAt(i) == c) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	private static int skipDigits(String s, int from) {
+		int n = s.length();
+		int i = from;
+		while (i < n && isDigit(s.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Parses a sequence of decimal digits, throws the same exception as Integer.parseInt() on overflow.
+	 */
+	private static int parseInt(String s, int from, int to) throws NumberFormatException {
+		int result = 0;
+		for (int i = from; i < to; ++i) {
+			int digit = s.charAt(i) - '0';
+			if (result > (Integer.MAX_VALUE - digit) / 10) {
+				return Integer.parseInt(s.substring(from, to));
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	@Override
+	protected void parseTextBound(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		int typeEnd = scanType(rest);
+		int[] bounds = null;
+		int nFrags = -1;
+		if (typeEnd != -1) {
+			bounds = new int[4 * (count(rest, ';', typeEnd + 1) + 1)];
+			nFrags = scanTextBound(rest, typeEnd, bounds);
+		}
+		if (nFrags == -1) {
+			logger.serious(location, "ill formed text-bound annotation: '" + rest + "'");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = rest.substring(0, typeEnd);
+		List<ImmutableFragment> fragments = new ArrayList<ImmutableFragment>(nFrags);
+		for (int i = 0; i < nFrags; ++i) {
+			int start = parseInt(rest, bounds[i * 4], bounds[i * 4 + 1]);
+			int end = parseInt(rest, bounds[i * 4 + 2], bounds[i * 4 + 3]);
+			fragments.add(new ImmutableFragment(start, end));
+		}
+		new TextBound(logger, aset, location, id, type, fragments);
+	}
+
+	@Override
+	protected void parseRelation(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		int typeEnd = scanType(rest);
+		if (typeEnd == -1 || typeEnd + 1 == rest.length() || hasLineTerminator(rest, typeEnd + 1)) {
+			logger.serious(location, "ill formed relation, expected type and arguments: '" + rest + "'");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = rest.substring(0, typeEnd);
+		Map<String,String> args = parseArgs(logger, location, rest, typeEnd + 1);
+		new Relation(logger, aset, location, id, type, args);
+	}
+
+	/**
+	 * Parses arguments the same way as successive finds of the pattern \s*([^:]+):(\S+)\s* starting at the specified position.
+	 */
+	private static Map<String,String> parseArgs(CheckLogger logger, Location location, String s, int from) {
+		Map<String,String> result = new LinkedHashMap<String,String>();
+		int n = s.length();
+		int pos = from;
+		while (pos < n) {
+			int colon = s.indexOf(':', pos);
+			if (colon == -1) {
+				break;
+			}
+			int refStart = colon + 1;
+			if (colon == pos || refStart == n || isSpace(s.charAt(refStart))) {
+				pos = refStart;
+				continue;
+			}
+			int roleStart = pos;
+			while (roleStart < colon - 1 && isSpace(s.charAt(roleStart))) {
+				roleStart++;
+			}
+			int refEnd = skipNonSpace(s, refStart);
+			String role = s.substring(roleStart, colon);
+			String ref = s.substring(refStart, refEnd);
+			if (result.containsKey(role)) {
+				logger.suspicious(location, "duplicate argument: " + role);
+			}
+			result.put(role, ref);
+			pos = skipSpace(s, refEnd);
+		}
+		if (result.isEmpty()) {
+			logger.serious(location, "no arguments");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the position after the annotation reference of a normalization or modifier, -1 if the line does not start with a type and an annotation reference.
+	 */
+	private static int scanAnnotationReference(String rest, int typeEnd) {
+		int annStart = typeEnd + 1 + ANNOTATION_PREFIX.length();
+		if (!rest.startsWith(ANNOTATION_PREFIX, typeEnd + 1)) {
+			return -1;
+		}
+		int annEnd = skipNonSpace(rest, annStart);
+		if (annEnd == annStart) {
+			return -1;
+		}
+		return annEnd;
+	}
+
+	@Override
+	protected void parseNormalization(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		int typeEnd = scanType(rest);
+		int annEnd = typeEnd == -1 ? -1 : scanAnnotationReference(rest, typeEnd);
+		int refStart = annEnd + REFERENT_PREFIX.length();
+		if (annEnd == -1 || !rest.startsWith(REFERENT_PREFIX, annEnd) || refStart == rest.length() || skipNonSpace(rest, refStart) != rest.length()) {
+			logger.serious(location, "ill formed normalization, expected type, Annotation and Referent");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = rest.substring(0, typeEnd);
+		String annRef = rest.substring(typeEnd + 1 + ANNOTATION_PREFIX.length(), annEnd);
+		String dbRef = rest.substring(refStart);
+		new Normalization(logger, aset, location, id, type, annRef, dbRef);
+	}
+
+	@Override
+	protected void parseModifier(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		int typeEnd = scanType(rest);
+		int annEnd = typeEnd == -1 ? -1 : scanAnnotationReference(rest, typeEnd);
+		if (annEnd != rest.length()) {
+			logger.serious(location, "ill formed modfier, expected type and Annotation");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = rest.substring(0, typeEnd);
+		String annRef = rest.substring(typeEnd + 1 + ANNOTATION_PREFIX.length());
+		new Modifier(logger, aset, location, id, type, annRef);
+	}
+
+	@Override
+	protected String getDummyType(String rest) {
+		int typeEnd = skipNonSpace(rest, 0);
+		if (typeEnd == 0 || hasLineTerminator(rest, skipSpace(rest, typeEnd))) {
+			return DummyAnnotation.DUMMY_TYPE;
+		}
+		return rest.substring(0, typeEnd);
+	}
+}
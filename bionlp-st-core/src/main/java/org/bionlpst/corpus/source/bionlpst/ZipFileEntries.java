@@ -0,0 +1,68 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Random access entries of a zip archive, read with the central directory instead of scanning the whole archive.
+ * Entry names are prefixed with the collection name, like the names of AbstractZipInputStreamCollection iterators.
+ * Temporary archives are deleted when the entries are closed.
+ * @author rbossy
+ *
+ */
+class ZipFileEntries implements RandomAccessEntries {
+	private final File file;
+	private final boolean temporary;
+	private final ZipFile zipFile;
+	private final List<String> names = new ArrayList<String>();
+	private final Map<String,ZipEntry> entries = new HashMap<String,ZipEntry>();
+
+	ZipFileEntries(File file, String collectionName, boolean temporary) throws IOException {
+		super();
+		this.file = file;
+		this.temporary = temporary;
+		this.zipFile = new ZipFile(file);
+		Enumeration<? extends ZipEntry> entryEnum = zipFile.entries();
+		while (entryEnum.hasMoreElements()) {
+			ZipEntry entry = entryEnum.nextElement();
+			String name = collectionName + File.separator + entry.getName();
+			names.add(name);
+			entries.put(name, entry);
+		}
+	}
+
+	@Override
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+
+	@Override
+	public InputStream getContents(String name) throws IOException {
+		ZipEntry entry = entries.get(name);
+		if (entry == null) {
+			throw new IOException("no entry " + name);
+		}
+		return zipFile.getInputStream(entry);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			zipFile.close();
+		}
+		finally {
+			if (temporary) {
+				file.delete();
+			}
+		}
+	}
+}
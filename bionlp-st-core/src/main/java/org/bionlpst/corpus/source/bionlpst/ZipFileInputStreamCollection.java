@@ -5,7 +5,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-public class ZipFileInputStreamCollection extends AbstractZipInputStreamCollection {
+public class ZipFileInputStreamCollection extends AbstractZipInputStreamCollection implements RandomAccessInputStreamCollection {
 	private final File zipFile;
 
 	public ZipFileInputStreamCollection(File zipFile) {
@@ -26,4 +26,14 @@ public class ZipFileInputStreamCollection extends AbstractZipInputStreamCollecti
 	protected InputStream getInputStream() throws IOException {
 		return new FileInputStream(zipFile);
 	}
+
+	@Override
+	public boolean isRandomAccess() {
+		return true;
+	}
+
+	@Override
+	public RandomAccessEntries openEntries() throws IOException {
+		return new ZipFileEntries(zipFile, getName(), false);
+	}
 }
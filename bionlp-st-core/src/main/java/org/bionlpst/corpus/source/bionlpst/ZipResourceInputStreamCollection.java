@@ -1,9 +1,14 @@
 package org.bionlpst.corpus.source.bionlpst;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
-public class ZipResourceInputStreamCollection extends AbstractZipInputStreamCollection {
+public class ZipResourceInputStreamCollection extends AbstractZipInputStreamCollection implements RandomAccessInputStreamCollection {
 	private final ClassLoader classLoader;
 	private final String resourceName;
 
@@ -21,6 +26,69 @@ public class ZipResourceInputStreamCollection extends AbstractZipInputStreamColl
 		return classLoader.getResourceAsStream(resourceName);
 	}
 
+	private URL getResource() {
+		if (classLoader == null) {
+			return ClassLoader.getSystemResource(resourceName);
+		}
+		return classLoader.getResource(resourceName);
+	}
+
+	/**
+	 * Returns the file of the resource, or null if the resource is not a plain file (e.g. inside a jar).
+	 */
+	private File getResourceFile() {
+		URL url = getResource();
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		}
+		catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Resources that are plain files are opened directly.
+	 * Resources that are not plain files (e.g. inside a jar) are copied to a temporary file, which is deleted when the entries are closed.
+	 */
+	@Override
+	public boolean isRandomAccess() {
+		return getResource() != null;
+	}
+
+	@Override
+	public RandomAccessEntries openEntries() throws IOException {
+		File file = getResourceFile();
+		if (file != null) {
+			return new ZipFileEntries(file, getName(), false);
+		}
+		File tmp = copyToTemporaryFile();
+		try {
+			return new ZipFileEntries(tmp, getName(), true);
+		}
+		catch (IOException|RuntimeException e) {
+			tmp.delete();
+			throw e;
+		}
+	}
+
+	private File copyToTemporaryFile() throws IOException {
+		File result = File.createTempFile("bionlp-st-", ".zip");
+		try (InputStream is = getInputStream()) {
+			if (is == null) {
+				throw new IOException("resource not found: " + resourceName);
+			}
+			Files.copy(is, result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException|RuntimeException e) {
+			result.delete();
+			throw e;
+		}
+		return result;
+	}
+
 	@Override
 	public String getName() {
 		return resourceName;
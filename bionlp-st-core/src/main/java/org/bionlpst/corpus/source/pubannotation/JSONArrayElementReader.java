@@ -0,0 +1,171 @@
+package org.bionlpst.corpus.source.pubannotation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.codehaus.jettison.json.JSONException;
+
+/**
+ * Incremental reader of the elements of a JSON array.
+ * Each call to next() reads the source text of the next element, only one element is held in memory at a time.
+ * Elements are delimited by tracking brackets, braces and strings, their contents are not validated; the caller parses each element.
+ * Like Jettison, elements may be separated by ';', and missing elements are read as null.
+ * @author rbossy
+ *
+ */
+class JSONArrayElementReader {
+	private static final String VALUE_STARTS = "[{,:;=>";
+
+	private final Reader reader;
+	private int peeked = -2;
+	private boolean started = false;
+	private boolean finished = false;
+
+	JSONArrayElementReader(Reader reader) {
+		super();
+		this.reader = reader;
+	}
+
+	/**
+	 * Returns the source text of the next element, "null" for missing elements, or null if the array has no more elements.
+	 * @throws JSONException if the text is not a JSON array.
+	 * @throws IOException
+	 */
+	String next() throws JSONException, IOException {
+		if (finished) {
+			return null;
+		}
+		if (!started) {
+			started = true;
+			if (nextClean() != '[') {
+				throw new JSONException("expected '['");
+			}
+			if (peekClean() == ']') {
+				read();
+				finished = true;
+				return null;
+			}
+		}
+		String result = readElement();
+		int c = nextClean();
+		switch (c) {
+			case ',':
+			case ';': {
+				if (peekClean() == ']') {
+					read();
+					finished = true;
+				}
+				break;
+			}
+			case ']': {
+				finished = true;
+				break;
+			}
+			default: {
+				throw new JSONException("expected ',' or ']'");
+			}
+		}
+		return result;
+	}
+
+	private String readElement() throws JSONException, IOException {
+		int c = peekClean();
+		if (c == ',' || c == ';') {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder();
+		int depth = 0;
+		// quotes start a string only where a value or a key starts, elsewhere they are part of an unquoted token
+		int prev = '[';
+		while (true) {
+			c = peek();
+			if (c == -1) {
+				throw new JSONException("unterminated array");
+			}
+			if (depth == 0 && (c == ',' || c == ';' || c == ']')) {
+				break;
+			}
+			read();
+			sb.append((char) c);
+			switch (c) {
+				case '{':
+				case '[': {
+					depth++;
+					break;
+				}
+				case '}':
+				case ']': {
+					depth--;
+					break;
+				}
+				case '"':
+				case '\'': {
+					if (VALUE_STARTS.indexOf(prev) != -1) {
+						readString(sb, c);
+					}
+					break;
+				}
+			}
+			if (c > ' ') {
+				prev = c;
+			}
+			if (depth == 0 && (c == '}' || c == ']')) {
+				break;
+			}
+		}
+		return sb.toString().trim();
+	}
+
+	private void readString(StringBuilder sb, int quote) throws JSONException, IOException {
+		while (true) {
+			int c = read();
+			if (c == -1 || c == '\n' || c == '\r') {
+				throw new JSONException("unterminated string");
+			}
+			sb.append((char) c);
+			if (c == '\\') {
+				c = read();
+				if (c == -1) {
+					throw new JSONException("unterminated string");
+				}
+				sb.append((char) c);
+				continue;
+			}
+			if (c == quote) {
+				return;
+			}
+		}
+	}
+
+	private int read() throws IOException {
+		if (peeked != -2) {
+			int result = peeked;
+			peeked = -2;
+			return result;
+		}
+		return reader.read();
+	}
+
+	private int peek() throws IOException {
+		if (peeked == -2) {
+			peeked = reader.read();
+		}
+		return peeked;
+	}
+
+	private int nextClean() throws IOException {
+		int result = peekClean();
+		read();
+		return result;
+	}
+
+	private int peekClean() throws IOException {
+		while (true) {
+			int c = peek();
+			if (c == -1 || c > ' ') {
+				return c;
+			}
+			read();
+		}
+	}
+}
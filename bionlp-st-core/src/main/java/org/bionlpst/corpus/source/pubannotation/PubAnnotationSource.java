@@ -1,7 +1,10 @@
 package org.bionlpst.corpus.source.pubannotation;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,11 +34,29 @@ public class PubAnnotationSource implements PredictionSource {
 	private final InputStreamFactory inputStreamFactory;
 	private final Location location;
 	private final Random idGenerator = new Random();
+	private final boolean streaming;
 	
+	/**
+	 * Creates a source that reads the specified stream in streaming mode.
+	 * @param inputStreamFactory stream of a JSON array of document objects.
+	 */
 	public PubAnnotationSource(InputStreamFactory inputStreamFactory) {
+		this(inputStreamFactory, true);
+	}
+	
+	/**
+	 * Creates a source that reads the specified stream.
+	 * In streaming mode, each document object is converted as soon as it is read, then discarded, so that memory is bounded by the largest document.
+	 * If the stream is not valid JSON, then the documents read before the error are kept.
+	 * Otherwise the whole JSON array is read before conversion, and nothing is converted if the stream is not valid JSON.
+	 * @param inputStreamFactory stream of a JSON array of document objects.
+	 * @param streaming either to convert document objects as they are read.
+	 */
+	public PubAnnotationSource(InputStreamFactory inputStreamFactory, boolean streaming) {
 		super();
 		this.inputStreamFactory = inputStreamFactory;
 		this.location = new Location(getName(), -1);
+		this.streaming = streaming;
 	}
 
 	@Override
@@ -45,6 +66,10 @@ public class PubAnnotationSource implements PredictionSource {
 
 	@Override
 	public void fillPredictions(CheckLogger logger, Corpus corpus) throws BioNLPSTException, IOException {
+		if (streaming) {
+			streamPredictions(logger, corpus);
+			return;
+		}
 		JSONArray jsDocs = getJSONArrayDocs(logger);
 		for (int i = 0; i < jsDocs.length(); ++i) {
 			JSONObject jsDoc = jsDocs.optJSONObject(i);
@@ -56,6 +81,26 @@ public class PubAnnotationSource implements PredictionSource {
 		}
 	}
 	
+	private void streamPredictions(CheckLogger logger, Corpus corpus) throws IOException {
+		try (Reader r = new InputStreamReader(inputStreamFactory.getInputStream())) {
+			JSONArrayElementReader elements = new JSONArrayElementReader(new BufferedReader(r));
+			while (true) {
+				String element = elements.next();
+				if (element == null) {
+					break;
+				}
+				if (!element.startsWith("{")) {
+					logger.serious(location, "expected document annotations as JSON object, skipping");
+					continue;
+				}
+				getPredictions(logger, corpus, new JSONObject(element));
+			}
+		}
+		catch (JSONException e) {
+			logger.serious(location, "could not parse JSON array, aborting");
+		}
+	}
+	
 	private JSONArray getJSONArrayDocs(CheckLogger logger) throws IOException {
 		try {
 			String js = getJSONString();
@@ -9,7 +9,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -28,12 +33,14 @@ import org.bionlpst.corpus.source.bionlpst.InputStreamIterator;
 import org.bionlpst.util.Location;
 import org.bionlpst.util.fragment.ImmutableFragment;
 import org.bionlpst.util.message.CheckLogger;
+import org.bionlpst.util.message.CheckMessage;
 
 public class PubTatorSource implements ContentAndReferenceSource {
 	private static final Pattern CONTENT_LINE = Pattern.compile("(?<pmid>\\d+)\\|(?<sec>.+)\\|(?<txt>.+)");
 	private static final Pattern TEXT_BOUND_LINE = Pattern.compile("(?<pmid>\\d*)\t(?<start>\\d+)\t(?<end>\\d+)\t(?<form>[^\t]+)\t(?<type>[^\t]+)\t(?<ref>[^\t]+)(?:\t.*)?");
 	private static final Pattern RELATION_LINE = Pattern.compile("(?<pmid>\\d*)\t(?<type>[^\t]+)\t(?<left>[^\t]+)\t(?<right>[^\t]+)");
 	private static final String[] DEFAULT_ROLES = new String[] { "Left", "Right" };
+	private static final int CHUNK_LINES = 256;
 
 	private final InputStreamCollection inputStreamCollection;
 	private final Map<String,String> sectionNames = new LinkedHashMap<String,String>();
@@ -92,6 +99,134 @@ public class PubTatorSource implements ContentAndReferenceSource {
 		fillContentAndReference(logger, result, loadOutput);
 		return result;
 	}
+
+	/**
+	 * Documents are separated by blank lines, each stream is split into chunks of documents that are parsed concurrently.
+	 * Generated identifiers are numbered within each document, so they do not depend on the executor.
+	 */
+	@Override
+	public void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		if (executor == null) {
+			fillContentAndReference(logger, corpus, loadOutput);
+			return;
+		}
+		List<Future<ChunkParser>> futures = new ArrayList<Future<ChunkParser>>();
+		try (InputStreamIterator it = inputStreamCollection.getIterator()) {
+			while (it.next()) {
+				submitChunks(executor, futures, corpus, loadOutput, it.getName(), readLines(it.getContents()));
+			}
+		}
+		catch (IOException|RuntimeException e) {
+			cancel(futures);
+			throw e;
+		}
+		catch (Exception e) {
+			cancel(futures);
+			throw new BioNLPSTException(e);
+		}
+		List<ChunkParser> parsers = new ArrayList<ChunkParser>(futures.size());
+		try {
+			for (Future<ChunkParser> f : futures) {
+				parsers.add(f.get());
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new BioNLPSTException("interrupted while loading documents", e);
+		}
+		catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new BioNLPSTException(cause);
+		}
+		List<Document> docs = new ArrayList<Document>();
+		for (ChunkParser parser : parsers) {
+			docs.addAll(parser.docs);
+		}
+		corpus.addDocuments(docs);
+		for (ChunkParser parser : parsers) {
+			for (CheckMessage msg : parser.logger.getMessages()) {
+				logger.addMessage(msg);
+			}
+		}
+	}
+
+	@Override
+	public Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		Corpus result = new Corpus();
+		fillContentAndReference(logger, result, loadOutput, executor);
+		return result;
+	}
+
+	private static List<String> readLines(InputStream is) throws IOException {
+		List<String> result = new ArrayList<String>();
+		BufferedReader r = new BufferedReader(new InputStreamReader(is));
+		while (true) {
+			String line = r.readLine();
+			if (line == null) {
+				break;
+			}
+			result.add(line);
+		}
+		return result;
+	}
+
+	/**
+	 * Splits the lines of a stream into chunks of whole documents, and submits a parser for each chunk.
+	 * Chunks end at a blank line, after at least CHUNK_LINES lines.
+	 */
+	private void submitChunks(ExecutorService executor, List<Future<ChunkParser>> futures, Corpus corpus, boolean loadOutput, String sourceName, List<String> lines) {
+		int start = 0;
+		for (int i = 0; i < lines.size(); ++i) {
+			if (i - start >= CHUNK_LINES && lines.get(i).trim().isEmpty()) {
+				futures.add(executor.submit(new ChunkParser(corpus, loadOutput, sourceName, lines.subList(start, i), start)));
+				start = i;
+			}
+		}
+		if (start < lines.size()) {
+			futures.add(executor.submit(new ChunkParser(corpus, loadOutput, sourceName, lines.subList(start, lines.size()), start)));
+		}
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> f : futures) {
+			f.cancel(true);
+		}
+	}
+
+	/**
+	 * Parses a chunk of lines, documents are not added to the corpus.
+	 * Messages are stored in a private logger.
+	 */
+	private class ChunkParser implements Callable<ChunkParser> {
+		private final String sourceName;
+		private final List<String> lines;
+		private final int firstLine;
+		private final CheckLogger logger = new CheckLogger();
+		private final PubTatorParser parser;
+		private final List<Document> docs = new ArrayList<Document>();
+
+		private ChunkParser(Corpus corpus, boolean loadOutput, String sourceName, List<String> lines, int firstLine) {
+			super();
+			this.sourceName = sourceName;
+			this.lines = lines;
+			this.firstLine = firstLine;
+			this.parser = new PubTatorParser(logger, corpus, loadOutput, docs);
+		}
+
+		@Override
+		public ChunkParser call() {
+			parser.parse(sourceName, lines, firstLine);
+			return this;
+		}
+	}
 	
 	private static class Section {
 		private final String type;
@@ -125,12 +260,21 @@ public class PubTatorSource implements ContentAndReferenceSource {
 		private final Collection<Section> sections = new ArrayList<Section>();
 		private int lineno = 0;
 		private Location location = null;
+		private final List<Document> unpublishedDocs;
 
 		private PubTatorParser(CheckLogger logger, Corpus corpus, boolean loadOutput) {
+			this(logger, corpus, loadOutput, null);
+		}
+
+		/**
+		 * @param unpublishedDocs if not null, documents are not added to the corpus, they are added to this list.
+		 */
+		private PubTatorParser(CheckLogger logger, Corpus corpus, boolean loadOutput, List<Document> unpublishedDocs) {
 			super();
 			this.logger = logger;
 			this.corpus = corpus;
 			this.loadOutput = loadOutput;
+			this.unpublishedDocs = unpublishedDocs;
 		}
 		
 		private void parse(String sourceName, InputStream is) throws IOException {
@@ -152,6 +296,19 @@ public class PubTatorSource implements ContentAndReferenceSource {
 			}
 		}
 		
+		/**
+		 * Parses lines from the middle of a stream, the first line must be the first line of a document.
+		 * @param firstLine number of lines in the stream before the specified lines.
+		 */
+		private void parse(String sourceName, List<String> lines, int firstLine) {
+			this.sourceName = sourceName;
+			lineno = firstLine;
+			reset();
+			for (String line : lines) {
+				parseLine(line);
+			}
+		}
+		
 		private void reset() {
 			currentDoc = null;
 			currentPMID = null;
@@ -227,7 +384,13 @@ public class PubTatorSource implements ContentAndReferenceSource {
 				logger.suspicious(location, "no content at this point, ignoring line");
 				return false;
 			}
-			currentDoc = new Document(corpus, currentPMID, txt.toString());
+			if (unpublishedDocs == null) {
+				currentDoc = new Document(corpus, currentPMID, txt.toString());
+			}
+			else {
+				currentDoc = Document.createUnpublished(corpus, currentPMID, txt.toString());
+				unpublishedDocs.add(currentDoc);
+			}
 			for (Section sec : sections) {
 				sec.createAnnotation(logger, currentDoc, nextTextBoundId());
 			}
@@ -0,0 +1,315 @@
+package org.bionlpst.corpus.source.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Equivalence;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.corpus.source.ContentAndReferenceSource;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.fragment.ImmutableFragment;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Reads corpora from binary snapshots written by SnapshotWriter.
+ * A snapshot holds the documents with their input and reference annotations and equivalences, exactly as they were parsed.
+ * All strings (identifiers, types, roles, referents, contents and sources) are stored once in a string table, annotations refer to strings by their index in the table.
+ * Snapshot files are memory-mapped, resources that are not plain files are read in memory.
+ * Messages issued while parsing the original corpus are not stored in the snapshot, references are resolved as for any other source.
+ * @author rbossy
+ *
+ */
+public class SnapshotSource implements ContentAndReferenceSource {
+	public static final int MAGIC = 0x424e5353;
+	public static final int VERSION = 1;
+	
+	public static final byte TEXT_BOUND = 1;
+	public static final byte RELATION = 2;
+	public static final byte NORMALIZATION = 3;
+	public static final byte MODIFIER = 4;
+	public static final byte DUMMY = 5;
+
+	/**
+	 * String index of absent optional strings (e.g. normalization labels).
+	 */
+	public static final int NO_STRING = -1;
+
+	private final File file;
+	private final ClassLoader classLoader;
+	private final String resourceName;
+
+	/**
+	 * Creates a source that reads the specified snapshot file.
+	 * @param file snapshot file.
+	 */
+	public SnapshotSource(File file) {
+		super();
+		this.file = file;
+		this.classLoader = null;
+		this.resourceName = null;
+	}
+
+	/**
+	 * Creates a source that reads the specified snapshot resource.
+	 * @param classLoader class loader from which to get the resource, the system class loader if null.
+	 * @param resourceName name of the snapshot resource.
+	 */
+	public SnapshotSource(ClassLoader classLoader, String resourceName) {
+		super();
+		this.file = null;
+		this.classLoader = classLoader;
+		this.resourceName = resourceName;
+	}
+
+	@Override
+	public String getName() {
+		if (file != null) {
+			return file.getPath();
+		}
+		return resourceName;
+	}
+
+	@Override
+	public void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput) throws BioNLPSTException, IOException {
+		ByteBuffer buffer = openBuffer();
+		try {
+			new SnapshotReader(logger, corpus, loadOutput, buffer).read();
+		}
+		catch (BufferUnderflowException|IndexOutOfBoundsException|IllegalArgumentException e) {
+			throw new BioNLPSTException("corrupted snapshot " + getName(), e);
+		}
+	}
+
+	@Override
+	public Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput) throws BioNLPSTException, IOException {
+		Corpus result = new Corpus();
+		fillContentAndReference(logger, result, loadOutput);
+		return result;
+	}
+
+	/**
+	 * Snapshots are read sequentially, the executor is ignored.
+	 */
+	@Override
+	public void fillContentAndReference(CheckLogger logger, Corpus corpus, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		fillContentAndReference(logger, corpus, loadOutput);
+	}
+
+	@Override
+	public Corpus fillContentAndReference(CheckLogger logger, boolean loadOutput, ExecutorService executor) throws BioNLPSTException, IOException {
+		return fillContentAndReference(logger, loadOutput);
+	}
+
+	private ByteBuffer openBuffer() throws IOException {
+		File f = file == null ? getResourceFile() : file;
+		if (f != null) {
+			try (RandomAccessFile raf = new RandomAccessFile(f, "r"); FileChannel channel = raf.getChannel()) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+		try (InputStream is = getResourceAsStream()) {
+			if (is == null) {
+				throw new IOException("resource not found: " + resourceName);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buf = new byte[65536];
+			while (true) {
+				int n = is.read(buf);
+				if (n == -1) {
+					break;
+				}
+				bytes.write(buf, 0, n);
+			}
+			return ByteBuffer.wrap(bytes.toByteArray());
+		}
+	}
+
+	private InputStream getResourceAsStream() {
+		if (classLoader == null) {
+			return ClassLoader.getSystemResourceAsStream(resourceName);
+		}
+		return classLoader.getResourceAsStream(resourceName);
+	}
+
+	/**
+	 * Returns the file of the resource, or null if the resource is not a plain file (e.g. inside a jar).
+	 */
+	private File getResourceFile() {
+		URL url = classLoader == null ? ClassLoader.getSystemResource(resourceName) : classLoader.getResource(resourceName);
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		}
+		catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	private class SnapshotReader {
+		private final CheckLogger logger;
+		private final Corpus corpus;
+		private final boolean loadOutput;
+		private final ByteBuffer buffer;
+		private String[] strings;
+
+		private SnapshotReader(CheckLogger logger, Corpus corpus, boolean loadOutput, ByteBuffer buffer) {
+			super();
+			this.logger = logger;
+			this.corpus = corpus;
+			this.loadOutput = loadOutput;
+			this.buffer = buffer;
+		}
+
+		private void read() {
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+				throw new BioNLPSTException("not a snapshot: " + getName());
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new BioNLPSTException("unsupported snapshot version " + version + " in " + getName());
+			}
+			readStrings();
+			int ndocs = buffer.getInt();
+			for (int i = 0; i < ndocs; ++i) {
+				readDocument();
+			}
+		}
+
+		private void readStrings() {
+			int n = buffer.getInt();
+			strings = new String[n];
+			for (int i = 0; i < n; ++i) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+		}
+
+		private String readString() {
+			return strings[buffer.getInt()];
+		}
+
+		private String readOptionalString() {
+			int i = buffer.getInt();
+			if (i == NO_STRING) {
+				return null;
+			}
+			return strings[i];
+		}
+
+		private Location readLocation() {
+			String source = readString();
+			int lineno = buffer.getInt();
+			return new Location(source, lineno);
+		}
+
+		private void readDocument() {
+			String id = readString();
+			String contents = readString();
+			Document doc = new Document(corpus, id, contents);
+			readAnnotationSet(doc.getInputAnnotationSet());
+			int outputLength = buffer.getInt();
+			if (!loadOutput) {
+				buffer.position(buffer.position() + outputLength);
+				return;
+			}
+			readAnnotationSet(doc.getReferenceAnnotationSet());
+			int nequivs = buffer.getInt();
+			for (int i = 0; i < nequivs; ++i) {
+				Location location = readLocation();
+				int nrefs = buffer.getInt();
+				List<String> refs = new ArrayList<String>(nrefs);
+				for (int j = 0; j < nrefs; ++j) {
+					refs.add(readString());
+				}
+				new Equivalence(logger, doc, location, refs);
+			}
+		}
+
+		private void readAnnotationSet(AnnotationSet aset) {
+			boolean parsed = buffer.get() != 0;
+			int n = buffer.getInt();
+			for (int i = 0; i < n; ++i) {
+				readAnnotation(aset);
+			}
+			if (parsed) {
+				aset.setParsed();
+			}
+		}
+
+		private void readAnnotation(AnnotationSet aset) {
+			byte kind = buffer.get();
+			String id = readString();
+			String type = readString();
+			Location location = readLocation();
+			switch (kind) {
+				case TEXT_BOUND: {
+					int nfrags = buffer.getInt();
+					List<ImmutableFragment> fragments = new ArrayList<ImmutableFragment>(nfrags);
+					for (int i = 0; i < nfrags; ++i) {
+						int start = buffer.getInt();
+						int end = buffer.getInt();
+						fragments.add(new ImmutableFragment(start, end));
+					}
+					new TextBound(logger, aset, location, id, type, fragments);
+					break;
+				}
+				case RELATION: {
+					int nargs = buffer.getInt();
+					Map<String,String> args = new LinkedHashMap<String,String>();
+					for (int i = 0; i < nargs; ++i) {
+						String role = readString();
+						String ref = readString();
+						args.put(role, ref);
+					}
+					new Relation(logger, aset, location, id, type, args);
+					break;
+				}
+				case NORMALIZATION: {
+					String ref = readString();
+					String referent = readString();
+					String label = readOptionalString();
+					Normalization norm = new Normalization(logger, aset, location, id, type, ref, referent);
+					norm.setLabel(label);
+					break;
+				}
+				case MODIFIER: {
+					String ref = readString();
+					new Modifier(logger, aset, location, id, type, ref);
+					break;
+				}
+				case DUMMY: {
+					new DummyAnnotation(logger, aset, location, id, type);
+					break;
+				}
+				default: {
+					throw new BioNLPSTException("unknown annotation kind " + kind + " in " + getName());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package org.bionlpst.corpus.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.AnnotationVisitor;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Equivalence;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.corpus.source.snapshot.SnapshotSource;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.fragment.ImmutableFragment;
+
+/**
+ * Writes corpora as binary snapshots that can be read by SnapshotSource.
+ * Input and reference annotations are written, including dummy annotations, so that resolving references of the snapshot yields the same annotations.
+ * @author rbossy
+ *
+ */
+public enum SnapshotWriter {
+	;
+	
+	public static void write(Corpus corpus, File outputFile) throws IOException {
+		File dir = outputFile.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		StringTable strings = new StringTable();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(body);
+		out.writeInt(corpus.getDocuments().size());
+		for (Document doc : corpus.getDocuments()) {
+			writeDocument(out, strings, doc);
+		}
+		out.flush();
+		try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)))) {
+			file.writeInt(SnapshotSource.MAGIC);
+			file.writeInt(SnapshotSource.VERSION);
+			strings.write(file);
+			body.writeTo(file);
+		}
+	}
+
+	private static void writeDocument(DataOutputStream out, StringTable strings, Document doc) throws IOException {
+		out.writeInt(strings.get(doc.getId()));
+		out.writeInt(strings.get(doc.getContents()));
+		writeAnnotationSet(out, strings, doc.getInputAnnotationSet());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DataOutputStream outputOut = new DataOutputStream(output);
+		writeAnnotationSet(outputOut, strings, doc.getReferenceAnnotationSet());
+		outputOut.writeInt(doc.getEquivalences().size());
+		for (Equivalence equiv : doc.getEquivalences()) {
+			writeLocation(outputOut, strings, equiv.getLocation());
+			outputOut.writeInt(equiv.getAnnotationReferences().size());
+			for (String ref : equiv.getAnnotationReferences()) {
+				outputOut.writeInt(strings.get(ref));
+			}
+		}
+		outputOut.flush();
+		out.writeInt(output.size());
+		output.writeTo(out);
+	}
+
+	private static void writeLocation(DataOutputStream out, StringTable strings, Location location) throws IOException {
+		out.writeInt(strings.get(location.getSource()));
+		out.writeInt(location.getLineno());
+	}
+
+	private static void writeAnnotationSet(DataOutputStream out, StringTable strings, AnnotationSet aset) throws IOException {
+		out.writeBoolean(aset.isParsed());
+		out.writeInt(aset.getAnnotations().size());
+		AnnotationWriter writer = new AnnotationWriter(out, strings);
+		for (Annotation ann : aset.getAnnotations()) {
+			ann.accept(writer, null);
+		}
+	}
+
+	/**
+	 * Strings in order of first occurrence, each string is stored once.
+	 */
+	private static class StringTable {
+		private final Map<String,Integer> indexes = new LinkedHashMap<String,Integer>();
+
+		private int get(String s) {
+			Integer result = indexes.get(s);
+			if (result == null) {
+				result = indexes.size();
+				indexes.put(s, result);
+			}
+			return result;
+		}
+
+		private int getOptional(String s) {
+			if (s == null) {
+				return SnapshotSource.NO_STRING;
+			}
+			return get(s);
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(indexes.size());
+			for (String s : indexes.keySet()) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static class AnnotationWriter implements AnnotationVisitor<Void,Void> {
+		private final DataOutputStream out;
+		private final StringTable strings;
+
+		private AnnotationWriter(DataOutputStream out, StringTable strings) {
+			super();
+			this.out = out;
+			this.strings = strings;
+		}
+
+		private void writeHeader(byte kind, Annotation ann) throws IOException {
+			out.writeByte(kind);
+			out.writeInt(strings.get(ann.getId()));
+			out.writeInt(strings.get(ann.getType()));
+			writeLocation(out, strings, ann.getLocation());
+		}
+
+		@Override
+		public Void visit(TextBound textBound, Void param) {
+			try {
+				writeHeader(SnapshotSource.TEXT_BOUND, textBound);
+				out.writeInt(textBound.getFragments().size());
+				for (ImmutableFragment frag : textBound.getFragments()) {
+					out.writeInt(frag.getStart());
+					out.writeInt(frag.getEnd());
+				}
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(Relation relation, Void param) {
+			try {
+				writeHeader(SnapshotSource.RELATION, relation);
+				Map<String,String> args = relation.getArgumentReferences();
+				out.writeInt(args.size());
+				for (Map.Entry<String,String> e : args.entrySet()) {
+					out.writeInt(strings.get(e.getKey()));
+					out.writeInt(strings.get(e.getValue()));
+				}
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(Normalization normalization, Void param) {
+			try {
+				writeHeader(SnapshotSource.NORMALIZATION, normalization);
+				out.writeInt(strings.get(normalization.getAnnotationReference()));
+				out.writeInt(strings.get(normalization.getReferent()));
+				out.writeInt(strings.getOptional(normalization.getLabel()));
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(Modifier modifier, Void param) {
+			try {
+				writeHeader(SnapshotSource.MODIFIER, modifier);
+				out.writeInt(strings.get(modifier.getAnnotationReference()));
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(DummyAnnotation dummy, Void param) {
+			try {
+				writeHeader(SnapshotSource.DUMMY, dummy);
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return null;
+		}
+	}
+}
@@ -3,11 +3,17 @@ package org.bionlpst.evaluation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.bionlpst.BioNLPSTException;
 import org.bionlpst.corpus.Annotation;
 import org.bionlpst.corpus.AnnotationSet;
 import org.bionlpst.corpus.Document;
 import org.bionlpst.corpus.DocumentCollection;
+import org.bionlpst.evaluation.similarity.MemoizedSimilarities;
 import org.bionlpst.evaluation.similarity.Similarity;
 import org.bionlpst.util.Filter;
 
@@ -36,6 +42,14 @@ public class AnnotationEvaluation extends Evaluation<Annotation> {
 	}
 
 	public List<Pair<Annotation>> getDocumentPairs(Document doc) {
+		return getDocumentPairs(doc, null);
+	}
+
+	/**
+	 * Computes the pairs of the specified document.
+	 * @param memo memoized similarities of the current run, null to compute similarities without memoization.
+	 */
+	public List<Pair<Annotation>> getDocumentPairs(Document doc, MemoizedSimilarities<Annotation> memo) {
 		if (inputIteration) {
 			AnnotationSet aset = doc.getInputAnnotationSet();
 			Collection<Annotation> annotations = aset.getAnnotations(preFilter);
@@ -48,22 +62,105 @@ public class AnnotationEvaluation extends Evaluation<Annotation> {
 		}
 		Collection<Annotation> reference = doc.getReferenceAnnotationSet().getAnnotations(preFilter);
 		Collection<Annotation> prediction = doc.getPredictionAnnotationSet().getAnnotations(preFilter);
-		return getPairs(reference, prediction);
+		return getPairs(reference, prediction, memo);
 	}
 
 	public List<Pair<Annotation>> getPairs(DocumentCollection documentCollection) {
+		return getPairs(documentCollection, null, null);
+	}
+
+	public List<Pair<Annotation>> getPairs(DocumentCollection documentCollection, ExecutorService executor) {
+		return getPairs(documentCollection, executor, null);
+	}
+
+	/**
+	 * Computes the pairs of all documents in the specified collection.
+	 * Documents are paired concurrently by the specified executor, pairs are concatenated in document order so the result is the same as a sequential pairing.
+	 * @param documentCollection documents to pair.
+	 * @param executor executor for pairing documents, null to pair sequentially in the current thread.
+	 * @param memo memoized similarities of the current run, null to compute similarities without memoization.
+	 */
+	public List<Pair<Annotation>> getPairs(DocumentCollection documentCollection, ExecutorService executor, final MemoizedSimilarities<Annotation> memo) {
+		if (executor == null) {
+			List<Pair<Annotation>> result = new ArrayList<Pair<Annotation>>();
+			for (Document doc : documentCollection.getDocuments()) {
+				result.addAll(getDocumentPairs(doc, memo));
+			}
+			return result;
+		}
+		List<Future<List<Pair<Annotation>>>> futures = new ArrayList<Future<List<Pair<Annotation>>>>();
+		for (final Document doc : documentCollection.getDocuments()) {
+			futures.add(executor.submit(new Callable<List<Pair<Annotation>>>() {
+				@Override
+				public List<Pair<Annotation>> call() {
+					return getDocumentPairs(doc, memo);
+				}
+			}));
+		}
 		List<Pair<Annotation>> result = new ArrayList<Pair<Annotation>>();
-		for (Document doc : documentCollection.getDocuments()) {
-			result.addAll(getDocumentPairs(doc));
+		try {
+			for (Future<List<Pair<Annotation>>> f : futures) {
+				result.addAll(f.get());
+			}
+		}
+		catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new BioNLPSTException("interrupted while pairing " + getName(), e);
+		}
+		catch (ExecutionException e) {
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new BioNLPSTException(cause);
 		}
 		return result;
 	}
 
+	private static void cancel(Collection<? extends Future<?>> futures) {
+		for (Future<?> f : futures) {
+			f.cancel(true);
+		}
+	}
+
 	public EvaluationResult<Annotation> getResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
-		return getResult(getPairs(documentCollection), keepPairs, bootstrap);
+		return getResult(documentCollection, keepPairs, bootstrap, null);
+	}
+
+	public EvaluationResult<Annotation> getResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor) {
+		return getResult(documentCollection, keepPairs, bootstrap, executor, false);
+	}
+
+	/**
+	 * Computes pairs and all scorings of the specified document collection.
+	 * @param executor executor for pairing documents, null to pair sequentially in the current thread.
+	 * @param memoize either to memoize similarities, values are shared between pairing, scorings and resamples of this run.
+	 */
+	public EvaluationResult<Annotation> getResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor, boolean memoize) {
+		MemoizedSimilarities<Annotation> memo = memoize ? new MemoizedSimilarities<Annotation>() : null;
+		return getResult(getPairs(documentCollection, executor, memo), keepPairs, bootstrap, memo);
 	}
 	
 	public EvaluationResult<Annotation> getMainResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap) {
-		return getMainResult(getPairs(documentCollection), keepPairs, bootstrap);
+		return getMainResult(documentCollection, keepPairs, bootstrap, null);
+	}
+
+	public EvaluationResult<Annotation> getMainResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor) {
+		return getMainResult(documentCollection, keepPairs, bootstrap, executor, false);
+	}
+
+	/**
+	 * Computes pairs and the main scoring of the specified document collection.
+	 * @param executor executor for pairing documents, null to pair sequentially in the current thread.
+	 * @param memoize either to memoize similarities, values are shared between pairing, scoring and resamples of this run.
+	 */
+	public EvaluationResult<Annotation> getMainResult(DocumentCollection documentCollection, boolean keepPairs, BootstrapConfig bootstrap, ExecutorService executor, boolean memoize) {
+		MemoizedSimilarities<Annotation> memo = memoize ? new MemoizedSimilarities<Annotation>() : null;
+		return getMainResult(getPairs(documentCollection, executor, memo), keepPairs, bootstrap, memo);
 	}
 }
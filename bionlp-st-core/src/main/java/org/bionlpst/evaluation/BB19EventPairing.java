@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -98,7 +99,8 @@ public class BB19EventPairing implements PairingAlgorithm<Annotation> {
 	}
 	
 	private static Map<Relation,Collection<Relation>> saturateReference(CheckLogger logger, Collection<Annotation> reference) {
-		Map<Relation,Collection<Relation>> result = new HashMap<Relation,Collection<Relation>>();
+		// reference order, so that the extended reference and the pairs do not depend on identity hash codes
+		Map<Relation,Collection<Relation>> result = new LinkedHashMap<Relation,Collection<Relation>>();
 		for (Annotation a : reference) {
 			Relation livesIn = getRelation(a);
 			if (livesIn == null) {
@@ -0,0 +1,19 @@
+package org.bionlpst.evaluation;
+
+import java.util.List;
+
+/**
+ * A blocking selects the candidate pairs that may have a non-zero similarity, so that pairing algorithms do not have to consider the whole cross product.
+ * @author rbossy
+ *
+ * @param <T>
+ */
+public interface Blocking<T> {
+	/**
+	 * Returns the candidate pairs between the specified reference and predicted items.
+	 * @param reference reference items.
+	 * @param prediction predicted items.
+	 * @return for each reference item, the indexes of the candidate predicted items in ascending order.
+	 */
+	int[][] getCandidates(List<T> reference, List<T> prediction);
+}
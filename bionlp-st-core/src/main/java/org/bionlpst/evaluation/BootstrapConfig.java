@@ -3,14 +3,36 @@ package org.bionlpst.evaluation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 public class BootstrapConfig {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
 	private final Random random;
+	private final Long seed;
+	private final ExecutorService executor;
 	private final int resamples;
 	
 	public BootstrapConfig(Random random, int resamples) {
 		super();
 		this.random = random;
+		this.seed = null;
+		this.executor = null;
+		this.resamples = resamples;
+	}
+
+	/**
+	 * Creates a bootstrap configuration where each resample draws from its own random stream.
+	 * The stream of a resample only depends on the seed and on the resample index, so resamples can be computed in any order and on any number of threads with the same results.
+	 * @param seed random seed.
+	 * @param resamples number of resamples.
+	 * @param executor executor that computes resamples, null to compute them in the calling thread.
+	 */
+	public BootstrapConfig(long seed, int resamples, ExecutorService executor) {
+		super();
+		this.random = null;
+		this.seed = seed;
+		this.executor = executor;
 		this.resamples = resamples;
 	}
 
@@ -21,6 +43,46 @@ public class BootstrapConfig {
 	public int getResamples() {
 		return resamples;
 	}
+
+	/**
+	 * Returns either this configuration uses one random stream per resample.
+	 */
+	public boolean isSplit() {
+		return seed != null;
+	}
+
+	public Long getSeed() {
+		return seed;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Returns one random stream for each resample.
+	 * The seed of each stream is a SplitMix64 step over the seed of this configuration and the resample index, so that each call returns the same streams.
+	 * @throws IllegalStateException if this configuration does not use one random stream per resample.
+	 */
+	public Random[] getStreams() {
+		if (seed == null) {
+			throw new IllegalStateException();
+		}
+		Random[] result = new Random[resamples];
+		for (int r = 0; r < resamples; ++r) {
+			result[r] = new Random(mix64(seed + (r + 1) * GOLDEN_GAMMA));
+		}
+		return result;
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
 	
 	public <T> List<Pair<T>> resample(List<Pair<T>> pairs, List<Pair<T>> sample) {
 		final int n = pairs.size();
@@ -37,4 +99,31 @@ public class BootstrapConfig {
 		}
 		return sample;
 	}
+
+	/**
+	 * Draws a resample of indexes with replacement, consumes the random generator exactly as resample(pairs, sample) for n pairs.
+	 * @param n number of items.
+	 * @param sample array of size n where to store the resample indexes.
+	 * @return sample.
+	 */
+	public int[] resample(int n, int[] sample) {
+		for (int i = 0; i < n; ++i) {
+			sample[i] = random.nextInt(n);
+		}
+		return sample;
+	}
+
+	/**
+	 * Draws a resample of indexes with replacement from the specified stream.
+	 * @param stream random stream of the resample.
+	 * @param n number of items.
+	 * @param sample array of size n where to store the resample indexes.
+	 * @return sample.
+	 */
+	public static int[] resample(Random stream, int n, int[] sample) {
+		for (int i = 0; i < n; ++i) {
+			sample[i] = stream.nextInt(n);
+		}
+		return sample;
+	}
 }
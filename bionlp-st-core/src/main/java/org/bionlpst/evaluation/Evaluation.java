@@ -3,8 +3,12 @@ package org.bionlpst.evaluation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.bionlpst.evaluation.similarity.MemoizedSimilarities;
+import org.bionlpst.evaluation.similarity.PartitionedSimilarity;
 import org.bionlpst.evaluation.similarity.Similarity;
 
 /**
@@ -52,20 +56,86 @@ public class Evaluation<T> {
 	}
 	
 	public List<Pair<T>> getPairs(Collection<T> reference, Collection<T> prediction) {
-		return pairingAlgorithm.bestPairing(reference, prediction, matchingSimilarity);
+		return getPairs(reference, prediction, null);
+	}
+
+	/**
+	 * Computes the pairing between reference and prediction items.
+	 * If the matching similarity partitions items, then the pairing is computed independently in each partition.
+	 * @param reference
+	 * @param prediction
+	 * @param memo memoized similarities of the current run, null to compute similarities without memoization.
+	 */
+	public List<Pair<T>> getPairs(Collection<T> reference, Collection<T> prediction, MemoizedSimilarities<T> memo) {
+		Similarity<T> similarity = MemoizedSimilarities.get(memo, matchingSimilarity);
+		if (similarity instanceof PartitionedSimilarity) {
+			PartitionedSimilarity<T> partitionedSimilarity = (PartitionedSimilarity<T>) similarity;
+			if (partitionedSimilarity.isPartitioned()) {
+				return getPartitionedPairs(partitionedSimilarity, reference, prediction);
+			}
+		}
+		return pairingAlgorithm.bestPairing(reference, prediction, similarity);
+	}
+
+	private List<Pair<T>> getPartitionedPairs(PartitionedSimilarity<T> partitionedSimilarity, Collection<T> reference, Collection<T> prediction) {
+		Map<Object,Partition<T>> partitions = new LinkedHashMap<Object,Partition<T>>();
+		for (T ref : reference) {
+			getPartition(partitions, partitionedSimilarity.getPartitionKey(ref)).reference.add(ref);
+		}
+		for (T pred : prediction) {
+			getPartition(partitions, partitionedSimilarity.getPartitionKey(pred)).prediction.add(pred);
+		}
+		if (partitions.size() < 2) {
+			return pairingAlgorithm.bestPairing(reference, prediction, partitionedSimilarity);
+		}
+		List<Pair<T>> result = new ArrayList<Pair<T>>(reference.size() + prediction.size());
+		for (Partition<T> p : partitions.values()) {
+			result.addAll(pairingAlgorithm.bestPairing(p.reference, p.prediction, partitionedSimilarity));
+		}
+		return result;
+	}
+
+	private static <T> Partition<T> getPartition(Map<Object,Partition<T>> partitions, Object key) {
+		if (partitions.containsKey(key)) {
+			return partitions.get(key);
+		}
+		Partition<T> result = new Partition<T>();
+		partitions.put(key, result);
+		return result;
+	}
+
+	private static class Partition<T> {
+		private final List<T> reference = new ArrayList<T>();
+		private final List<T> prediction = new ArrayList<T>();
 	}
 	
 	public EvaluationResult<T> getResult(List<Pair<T>> pairs, boolean keepPairs, BootstrapConfig bootstrap) {
+		return getResult(pairs, keepPairs, bootstrap, null);
+	}
+
+	/**
+	 * Computes all scorings on the specified pairs.
+	 * @param memo memoized similarities of the current run, null to compute similarities without memoization.
+	 */
+	public EvaluationResult<T> getResult(List<Pair<T>> pairs, boolean keepPairs, BootstrapConfig bootstrap, MemoizedSimilarities<T> memo) {
 		List<ScoringResult<T>> scoringResults = new ArrayList<ScoringResult<T>>(scorings.size());
 		for (Scoring<T> score : scorings) {
-			scoringResults.add(score.getResult(pairs, bootstrap));
+			scoringResults.add(score.getResult(pairs, bootstrap, MemoizedSimilarities.get(memo, score.getSimilarity())));
 		}
 		return new EvaluationResult<T>(this, keepPairs ? pairs : null, scoringResults);
 	}
 	
 	public EvaluationResult<T> getMainResult(List<Pair<T>> pairs, boolean keepPairs, BootstrapConfig bootstrap) {
+		return getMainResult(pairs, keepPairs, bootstrap, null);
+	}
+
+	/**
+	 * Computes the main scoring on the specified pairs.
+	 * @param memo memoized similarities of the current run, null to compute similarities without memoization.
+	 */
+	public EvaluationResult<T> getMainResult(List<Pair<T>> pairs, boolean keepPairs, BootstrapConfig bootstrap, MemoizedSimilarities<T> memo) {
 		Scoring<T> mainScoring = scorings.get(0);
-		ScoringResult<T> mainScoringResult = mainScoring.getResult(pairs, bootstrap);
+		ScoringResult<T> mainScoringResult = mainScoring.getResult(pairs, bootstrap, MemoizedSimilarities.get(memo, mainScoring.getSimilarity()));
 		List<ScoringResult<T>> list = Collections.singletonList(mainScoringResult);
 		return new EvaluationResult<T>(this, keepPairs ? pairs : null, list);
 	}
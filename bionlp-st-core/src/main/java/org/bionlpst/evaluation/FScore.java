@@ -9,7 +9,7 @@ import org.bionlpst.evaluation.similarity.Similarity;
  * @author rbossy
  *
  */
-public class FScore implements Measure {
+public class FScore implements StatisticsMeasure {
 	private final double beta;
 	private final double betaSquared;
 
@@ -25,8 +25,13 @@ public class FScore implements Measure {
 
 	@Override
 	public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-		double recall = StandardMeasures.RECALL.compute(similarity, pairs).doubleValue();
-		double precision = StandardMeasures.PRECISION.compute(similarity, pairs).doubleValue();
+		return compute(PairStatistics.compute(similarity, pairs));
+	}
+
+	@Override
+	public Number compute(PairStatistics statistics) {
+		double recall = statistics.getRecall();
+		double precision = statistics.getPrecision();
 		return (1 + betaSquared) * ((recall * precision) / (recall + (betaSquared * precision)));
 	}
 
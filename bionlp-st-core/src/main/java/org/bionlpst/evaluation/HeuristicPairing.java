@@ -1,154 +1,261 @@
 package org.bionlpst.evaluation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 
 import org.bionlpst.evaluation.similarity.Similarity;
 
 /**
  * Heuristic for finding optimal pairs.
  * Because coding the Hungarian algorithm is a pain.
+ * Items are mapped to their index in the input collections, ties are broken by these indexes.
+ * The score matrix is stored as per-item candidate lists sorted by decreasing score, paired items are marked as removed instead of being deleted from the lists.
  * @author rbossy
  *
  * @param <T>
  */
 public class HeuristicPairing<T> implements PairingAlgorithm<T> {
-	@SuppressWarnings("serial")
-	private static class Matches<T> extends TreeMap<Double,Collection<T>> {
-		private void add(T value, double score) {
-			Collection<T> values;
-			if (containsKey(score)) {
-				values = get(score);
+	private final Blocking<T> blocking;
+
+	/**
+	 * Creates a heuristic pairing that only computes the similarity of candidate pairs selected by the specified blocking.
+	 * @param blocking candidate pairs selection, null to compute the similarity of all pairs.
+	 */
+	public HeuristicPairing(Blocking<T> blocking) {
+		super();
+		this.blocking = blocking;
+	}
+
+	public HeuristicPairing() {
+		this(null);
+	}
+
+	public Blocking<T> getBlocking() {
+		return blocking;
+	}
+
+	/**
+	 * Candidate lists of a set of items, sorted by decreasing score then by increasing candidate index.
+	 * Candidates of item i are in [start[i], start[i+1]).
+	 */
+	private static class Candidates {
+		private final int[] start;
+		private final int[] index;
+		private final double[] scores;
+		private final int[] head;
+		private final boolean[] removed;
+
+		/**
+		 * @param removed removed flags of candidate items.
+		 */
+		private Candidates(int size, int[] start, int[] index, double[] scores, boolean[] removed) {
+			this.start = start;
+			this.index = index;
+			this.scores = scores;
+			this.head = Arrays.copyOf(start, size);
+			this.removed = removed;
+			int maxLength = 0;
+			for (int i = 0; i < size; ++i) {
+				maxLength = Math.max(maxLength, start[i + 1] - start[i]);
 			}
-			else {
-				values = new HashSet<T>();
-				put(score, values);
+			double[] tmpScores = new double[maxLength];
+			int[] tmpIndex = new int[maxLength];
+			for (int i = 0; i < size; ++i) {
+				sort(scores, index, start[i], start[i + 1], tmpScores, tmpIndex);
 			}
-			values.add(value);
 		}
-		
-		private Collection<T> bestValues() {
-			return lastEntry().getValue();
-		}
-		
-		private void removeAllValues(Collection<T> values) {
-			Iterator<Collection<T>> it = values().iterator();
-			while (it.hasNext()) {
-				Collection<T> currentValues = it.next();
-				currentValues.removeAll(values);
-				if (currentValues.isEmpty()) {
-					it.remove();
-				}
+
+		/**
+		 * Skips removed candidates at the head of the list of the specified item, returns the position of the best remaining candidate.
+		 */
+		private int head(int i) {
+			int end = start[i + 1];
+			int h = head[i];
+			while (h < end && removed[index[h]]) {
+				h++;
 			}
+			head[i] = h;
+			return h;
 		}
-	}
-	
-	@SuppressWarnings("serial")
-	private static class MatchMap<T> extends HashMap<T,Matches<T>> {
-		private MatchMap(Collection<T> keys) {
-			for (T k : keys) {
-				put(k, new Matches<T>());
-			}
+
+		private boolean isEmpty(int i) {
+			return head(i) == start[i + 1];
 		}
-		
-		private void add(T key, T value, double score) {
-			get(key).add(value, score);
+
+		private double bestScore(int i) {
+			return scores[head(i)];
 		}
-		
-		private void removeAllValues(Collection<T> values) {
-			for (Matches<T> m : values()) {
-				m.removeAllValues(values);
+
+		/**
+		 * Returns the first best candidate of the specified item that also has the specified item among its best candidates, -1 if there is none.
+		 */
+		private int reciprocal(int i, Candidates back) {
+			int end = start[i + 1];
+			int h = head(i);
+			double best = scores[h];
+			for (int k = h; k < end && scores[k] == best; ++k) {
+				int j = index[k];
+				if (!removed[j] && back.bestScore(j) == best) {
+					return j;
+				}
 			}
+			return -1;
 		}
-		
-		private T reciprocal(T value, Matches<T> matches) {
-			for (T candidate : matches.bestValues()) {
-				if (containsKey(candidate)) {
-					Matches<T> backMatches = get(candidate);
-					Collection<T> bestBackMatches = backMatches.bestValues();
-					if (bestBackMatches.contains(value)) {
-						return candidate;
-					}
+
+		/**
+		 * Stable merge sort by decreasing score.
+		 */
+		private static void sort(double[] scores, int[] index, int from, int to, double[] tmpScores, int[] tmpIndex) {
+			if (to - from < 2) {
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			sort(scores, index, from, mid, tmpScores, tmpIndex);
+			sort(scores, index, mid, to, tmpScores, tmpIndex);
+			if (scores[mid - 1] >= scores[mid]) {
+				return;
+			}
+			int n = to - from;
+			System.arraycopy(scores, from, tmpScores, 0, n);
+			System.arraycopy(index, from, tmpIndex, 0, n);
+			int a = 0;
+			int b = mid - from;
+			for (int k = from; k < to; ++k) {
+				if (b == n || (a < mid - from && tmpScores[a] >= tmpScores[b])) {
+					scores[k] = tmpScores[a];
+					index[k] = tmpIndex[a];
+					a++;
+				}
+				else {
+					scores[k] = tmpScores[b];
+					index[k] = tmpIndex[b];
+					b++;
 				}
 			}
-			return null;
 		}
 	}
-	
-	private static <T> void addResult(Collection<Pair<T>> result, T ref, T pred, Collection<T> refSeen, Collection<T> predSeen) {
-		result.add(new Pair<T>(ref, pred));
-		if (ref != null) {
-			refSeen.add(ref);
-		}
-		if (pred != null) {
-			predSeen.add(pred);
+
+	private static <T> List<T> toList(Collection<T> items) {
+		if (items instanceof Set) {
+			return new ArrayList<T>(items);
 		}
+		return new ArrayList<T>(new LinkedHashSet<T>(items));
 	}
 
 	@Override
 	public List<Pair<T>> bestPairing(Collection<T> reference, Collection<T> prediction, Similarity<T> similarity) {
-		List<Pair<T>> result = new ArrayList<Pair<T>>();
-		
-		// initialize score matrix
-		MatchMap<T> ref2pred = new MatchMap<T>(reference);
-		MatchMap<T> pred2ref = new MatchMap<T>(prediction);
-		for (T ref : reference) {
-			for (T pred : prediction) {
-				double s = similarity.compute(ref, pred);
+		List<T> refs = toList(reference);
+		List<T> preds = toList(prediction);
+		final int nRefs = refs.size();
+		final int nPreds = preds.size();
+		List<Pair<T>> result = new ArrayList<Pair<T>>(nRefs + nPreds);
+
+		// initialize score matrix, cells are generated by increasing reference then prediction index
+		int[][] candidates = blocking == null ? null : blocking.getCandidates(refs, preds);
+		int[] cellRefs = new int[Math.max(16, nRefs)];
+		int[] cellPreds = new int[cellRefs.length];
+		double[] cellScores = new double[cellRefs.length];
+		int nCells = 0;
+		int[] refStart = new int[nRefs + 1];
+		int[] predStart = new int[nPreds + 1];
+		for (int r = 0; r < nRefs; ++r) {
+			T ref = refs.get(r);
+			int nCandidates = candidates == null ? nPreds : candidates[r].length;
+			for (int i = 0; i < nCandidates; ++i) {
+				int p = candidates == null ? i : candidates[r][i];
+				double s = similarity.compute(ref, preds.get(p));
 				if (s > 0) {
-					ref2pred.add(ref, pred, s);
-					pred2ref.add(pred, ref, s);
+					if (nCells == cellRefs.length) {
+						cellRefs = Arrays.copyOf(cellRefs, nCells * 2);
+						cellPreds = Arrays.copyOf(cellPreds, nCells * 2);
+						cellScores = Arrays.copyOf(cellScores, nCells * 2);
+					}
+					cellRefs[nCells] = r;
+					cellPreds[nCells] = p;
+					cellScores[nCells] = s;
+					nCells++;
+					refStart[r + 1]++;
+					predStart[p + 1]++;
 				}
 			}
 		}
-		
+		for (int r = 0; r < nRefs; ++r) {
+			refStart[r + 1] += refStart[r];
+		}
+		for (int p = 0; p < nPreds; ++p) {
+			predStart[p + 1] += predStart[p];
+		}
+		int[] refCandidates = new int[nCells];
+		double[] refScores = new double[nCells];
+		int[] predCandidates = new int[nCells];
+		double[] predScores = new double[nCells];
+		int[] predFill = Arrays.copyOf(predStart, nPreds);
+		for (int i = 0; i < nCells; ++i) {
+			refCandidates[i] = cellPreds[i];
+			refScores[i] = cellScores[i];
+			int k = predFill[cellPreds[i]]++;
+			predCandidates[k] = cellRefs[i];
+			predScores[k] = cellScores[i];
+		}
+		boolean[] refRemoved = new boolean[nRefs];
+		boolean[] predRemoved = new boolean[nPreds];
+		Candidates ref2pred = new Candidates(nRefs, refStart, refCandidates, refScores, predRemoved);
+		Candidates pred2ref = new Candidates(nPreds, predStart, predCandidates, predScores, refRemoved);
+
 		// iterations of reciprocal best matches AND remove empties
-		boolean cont = true;
-		while (cont) {
-			Collection<T> refSeen = new HashSet<T>();
-			Collection<T> predSeen = new HashSet<T>();
-			for (Map.Entry<T,Matches<T>> e : ref2pred.entrySet()) {
-				T ref = e.getKey();
-				Matches<T> predMatches = e.getValue();
-				if (predMatches.isEmpty()) {
-					addResult(result, ref, null, refSeen, predSeen);
+		int refsLeft = nRefs;
+		int predsLeft = nPreds;
+		while (refsLeft > 0 || predsLeft > 0) {
+			boolean cont = false;
+			int pairRef = -1;
+			int pairPred = -1;
+			for (int r = 0; r < nRefs; ++r) {
+				if (refRemoved[r]) {
 					continue;
 				}
-				T pred = pred2ref.reciprocal(ref, predMatches);
-				if (pred != null) {
-					addResult(result, ref, pred, refSeen, predSeen);
+				if (ref2pred.isEmpty(r)) {
+					result.add(new Pair<T>(refs.get(r), null));
+					refRemoved[r] = true;
+					refsLeft--;
+					cont = true;
+					continue;
+				}
+				int p = ref2pred.reciprocal(r, pred2ref);
+				if (p != -1) {
+					result.add(new Pair<T>(refs.get(r), preds.get(p)));
+					pairRef = r;
+					pairPred = p;
+					cont = true;
 					break;
 				}
 			}
-			for (Map.Entry<T,Matches<T>> e : pred2ref.entrySet()) {
-				T pred = e.getKey();
-				Matches<T> refMatches = e.getValue();
-				if (refMatches.isEmpty()) {
-					addResult(result, null, pred, refSeen, predSeen);
+			for (int p = 0; p < nPreds; ++p) {
+				if (predRemoved[p]) {
+					continue;
+				}
+				if (pred2ref.isEmpty(p)) {
+					result.add(new Pair<T>(null, preds.get(p)));
+					predRemoved[p] = true;
+					predsLeft--;
+					cont = true;
 				}
 			}
-			ref2pred.keySet().removeAll(refSeen);
-			ref2pred.removeAllValues(predSeen);
-			pred2ref.keySet().removeAll(predSeen);
-			pred2ref.removeAllValues(refSeen);
-			
-			cont = !(refSeen.isEmpty() && predSeen.isEmpty());
-//			System.err.println("cont = " + cont);
-		}
-		
-		if (!ref2pred.isEmpty()) {
-			throw new RuntimeException();
-		}
-		if (!pred2ref.isEmpty()) {
-			throw new RuntimeException();
+			// paired items are removed after the iteration so that their candidates are not seen as empty before the next one
+			if (pairRef != -1) {
+				refRemoved[pairRef] = true;
+				refsLeft--;
+				predRemoved[pairPred] = true;
+				predsLeft--;
+			}
+			if (!cont) {
+				throw new RuntimeException();
+			}
 		}
-		
+
 		return result;
 	}
 }
@@ -0,0 +1,327 @@
+package org.bionlpst.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.bionlpst.evaluation.similarity.Similarity;
+
+/**
+ * Exact pairing that maximizes the sum of similarities.
+ * The assignment is solved with shortest augmenting paths (as in Jonker-Volgenant) on a sparse cost matrix that only holds pairs with a positive similarity.
+ * Each reference item has a private dummy column so that leaving it unpaired is always an option.
+ * @author rbossy
+ *
+ * @param <T>
+ */
+public class OptimalPairing<T> implements PairingAlgorithm<T> {
+	private final Blocking<T> blocking;
+
+	/**
+	 * Creates an optimal pairing that only computes the similarity of candidate pairs selected by the specified blocking.
+	 * @param blocking candidate pairs selection, null to compute the similarity of all pairs.
+	 */
+	public OptimalPairing(Blocking<T> blocking) {
+		super();
+		this.blocking = blocking;
+	}
+
+	public OptimalPairing() {
+		this(null);
+	}
+
+	public Blocking<T> getBlocking() {
+		return blocking;
+	}
+
+	@Override
+	public List<Pair<T>> bestPairing(Collection<T> reference, Collection<T> prediction, Similarity<T> similarity) {
+		List<T> refs = new ArrayList<T>(reference);
+		List<T> preds = new ArrayList<T>(prediction);
+		final int nRefs = refs.size();
+		final int nPreds = preds.size();
+		int[][] candidates = blocking == null ? null : blocking.getCandidates(refs, preds);
+
+		// sparse score matrix, row-compressed
+		int[] rowStart = new int[nRefs + 1];
+		int[] cols = new int[Math.max(16, nRefs)];
+		double[] scores = new double[cols.length];
+		int nCells = 0;
+		double maxScore = 0;
+		for (int r = 0; r < nRefs; ++r) {
+			rowStart[r] = nCells;
+			T ref = refs.get(r);
+			int nCandidates = candidates == null ? nPreds : candidates[r].length;
+			for (int i = 0; i < nCandidates; ++i) {
+				int c = candidates == null ? i : candidates[r][i];
+				double s = similarity.compute(ref, preds.get(c));
+				if (s > 0) {
+					if (nCells == cols.length) {
+						cols = Arrays.copyOf(cols, nCells * 2);
+						scores = Arrays.copyOf(scores, nCells * 2);
+					}
+					cols[nCells] = c;
+					scores[nCells] = s;
+					nCells++;
+					maxScore = Math.max(maxScore, s);
+				}
+			}
+		}
+		rowStart[nRefs] = nCells;
+
+		int[] rowMatch = new Assignment(nRefs, nPreds, rowStart, cols, scores, maxScore).solve();
+
+		List<Pair<T>> result = new ArrayList<Pair<T>>(nRefs + nPreds);
+		boolean[] predSeen = new boolean[nPreds];
+		for (int r = 0; r < nRefs; ++r) {
+			int c = rowMatch[r];
+			if (c < nPreds) {
+				result.add(new Pair<T>(refs.get(r), preds.get(c)));
+				predSeen[c] = true;
+			}
+			else {
+				result.add(new Pair<T>(refs.get(r), null));
+			}
+		}
+		for (int c = 0; c < nPreds; ++c) {
+			if (!predSeen[c]) {
+				result.add(new Pair<T>(null, preds.get(c)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Min-cost assignment of rows to columns.
+	 * Real cells cost (maxScore - score), the dummy column of each row costs maxScore, so minimizing the cost maximizes the sum of scores.
+	 * Columns [0, nCols) are real, column nCols + r is the dummy column of row r.
+	 */
+	private static class Assignment {
+		private final int nRows;
+		private final int nCols;
+		private final int[] rowStart;
+		private final int[] cols;
+		private final double[] costs;
+		private final double dummyCost;
+		private final double[] rowPotential;
+		private final double[] colPotential;
+		private final int[] rowMatch;
+		private final int[] colMatch;
+		private final double[] colDist;
+		private final int[] colPred;
+		private final boolean[] colDone;
+		private final int[] touched;
+		private final ColumnHeap heap;
+
+		private Assignment(int nRows, int nCols, int[] rowStart, int[] cols, double[] scores, double maxScore) {
+			this.nRows = nRows;
+			this.nCols = nCols;
+			this.rowStart = rowStart;
+			this.cols = cols;
+			int nCells = rowStart[nRows];
+			this.costs = new double[nCells];
+			for (int i = 0; i < nCells; ++i) {
+				costs[i] = maxScore - scores[i];
+			}
+			this.dummyCost = maxScore;
+			int nAllCols = nCols + nRows;
+			rowPotential = new double[nRows];
+			colPotential = new double[nAllCols];
+			rowMatch = new int[nRows];
+			Arrays.fill(rowMatch, -1);
+			colMatch = new int[nAllCols];
+			Arrays.fill(colMatch, -1);
+			colDist = new double[nAllCols];
+			Arrays.fill(colDist, Double.POSITIVE_INFINITY);
+			colPred = new int[nAllCols];
+			colDone = new boolean[nAllCols];
+			touched = new int[nAllCols];
+			heap = new ColumnHeap(nAllCols, colDist);
+		}
+
+		private int[] solve() {
+			for (int r = 0; r < nRows; ++r) {
+				if (rowStart[r] == rowStart[r + 1]) {
+					assign(r, nCols + r);
+					continue;
+				}
+				augment(r);
+			}
+			return rowMatch;
+		}
+
+		private void assign(int row, int col) {
+			rowMatch[row] = col;
+			colMatch[col] = row;
+		}
+
+		/**
+		 * Dijkstra on reduced costs from the specified free row, then flips the shortest augmenting path and updates potentials.
+		 */
+		private void augment(int source) {
+			int nTouched = 0;
+			int row = source;
+			double rowDist = 0;
+			int sink;
+			while (true) {
+				nTouched = relax(row, rowDist, nTouched);
+				int col = heap.pop();
+				colDone[col] = true;
+				if (colMatch[col] == -1) {
+					sink = col;
+					break;
+				}
+				row = colMatch[col];
+				rowDist = colDist[col];
+			}
+			double sinkDist = colDist[sink];
+
+			// potentials of settled nodes, reduced costs stay non-negative and the path becomes tight
+			rowPotential[source] += sinkDist;
+			for (int i = 0; i < nTouched; ++i) {
+				int col = touched[i];
+				if (colDone[col] && col != sink) {
+					double delta = sinkDist - colDist[col];
+					colPotential[col] -= delta;
+					rowPotential[colMatch[col]] += delta;
+				}
+			}
+
+			// flip the path
+			int col = sink;
+			while (true) {
+				int r = colPred[col];
+				int prev = rowMatch[r];
+				assign(r, col);
+				if (r == source) {
+					break;
+				}
+				col = prev;
+			}
+
+			// reset
+			for (int i = 0; i < nTouched; ++i) {
+				int c = touched[i];
+				colDist[c] = Double.POSITIVE_INFINITY;
+				colDone[c] = false;
+			}
+			heap.clear();
+		}
+
+		private int relax(int row, double rowDist, int nTouched) {
+			double base = rowDist - rowPotential[row];
+			for (int i = rowStart[row]; i < rowStart[row + 1]; ++i) {
+				nTouched = relax(row, cols[i], base + costs[i], nTouched);
+			}
+			return relax(row, nCols + row, base + dummyCost, nTouched);
+		}
+
+		private int relax(int row, int col, double d, int nTouched) {
+			if (colDone[col]) {
+				return nTouched;
+			}
+			d -= colPotential[col];
+			if (d < colDist[col]) {
+				if (colDist[col] == Double.POSITIVE_INFINITY) {
+					touched[nTouched++] = col;
+				}
+				colDist[col] = d;
+				colPred[col] = row;
+				heap.update(col);
+			}
+			return nTouched;
+		}
+	}
+
+	/**
+	 * Indexed binary min-heap of columns keyed by their tentative distance.
+	 * Ties are broken by column index so that the pairing is deterministic.
+	 */
+	private static class ColumnHeap {
+		private final int[] heap;
+		private final int[] position;
+		private final double[] key;
+		private int size = 0;
+
+		private ColumnHeap(int capacity, double[] key) {
+			this.heap = new int[capacity];
+			this.position = new int[capacity];
+			Arrays.fill(position, -1);
+			this.key = key;
+		}
+
+		private boolean less(int a, int b) {
+			double ka = key[a];
+			double kb = key[b];
+			return ka < kb || (ka == kb && a < b);
+		}
+
+		private void update(int col) {
+			int i = position[col];
+			if (i == -1) {
+				i = size++;
+				heap[i] = col;
+				position[col] = i;
+			}
+			siftUp(i);
+		}
+
+		private int pop() {
+			int result = heap[0];
+			position[result] = -1;
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				position[heap[0]] = 0;
+				siftDown(0);
+			}
+			return result;
+		}
+
+		private void clear() {
+			for (int i = 0; i < size; ++i) {
+				position[heap[i]] = -1;
+			}
+			size = 0;
+		}
+
+		private void siftUp(int i) {
+			int col = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				int pcol = heap[parent];
+				if (!less(col, pcol)) {
+					break;
+				}
+				heap[i] = pcol;
+				position[pcol] = i;
+				i = parent;
+			}
+			heap[i] = col;
+			position[col] = i;
+		}
+
+		private void siftDown(int i) {
+			int col = heap[i];
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && less(heap[child + 1], heap[child])) {
+					child++;
+				}
+				int ccol = heap[child];
+				if (!less(ccol, col)) {
+					break;
+				}
+				heap[i] = ccol;
+				position[ccol] = i;
+				i = child;
+			}
+			heap[i] = col;
+			position[col] = i;
+		}
+	}
+}
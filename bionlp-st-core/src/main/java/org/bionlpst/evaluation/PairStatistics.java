@@ -0,0 +1,132 @@
+package org.bionlpst.evaluation;
+
+import java.util.Collection;
+
+import org.bionlpst.evaluation.similarity.Similarity;
+
+/**
+ * Sufficient statistics of a pairing for standard measures, collected in a single pass over pairs.
+ * The similarity of each pair is computed once.
+ * @author rbossy
+ *
+ */
+public class PairStatistics {
+	private long references = 0;
+	private long predictions = 0;
+	private long both = 0;
+	private long falsePositives = 0;
+	private long falseNegatives = 0;
+	private double matches = 0;
+	private double mismatches = 0;
+
+	public PairStatistics() {
+		super();
+	}
+
+	/**
+	 * Collects the statistics of the specified pairs.
+	 * @param similarity pair similarity function.
+	 * @param pairs pairs.
+	 */
+	public static <T> PairStatistics compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
+		PairStatistics result = new PairStatistics();
+		for (Pair<T> p : pairs) {
+			result.add(similarity, p);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the specified pair to these statistics.
+	 * @param similarity pair similarity function.
+	 * @param pair pair.
+	 */
+	public <T> void add(Similarity<T> similarity, Pair<T> pair) {
+		if (pair.hasBoth()) {
+			add(pair.compute(similarity));
+		}
+		else if (pair.hasReference()) {
+			addFalseNegative();
+		}
+		else {
+			addFalsePositive();
+		}
+	}
+
+	/**
+	 * Adds a pair with only a reference to these statistics.
+	 */
+	public void addFalseNegative() {
+		references++;
+		falseNegatives++;
+	}
+
+	/**
+	 * Adds a pair with only a prediction to these statistics.
+	 */
+	public void addFalsePositive() {
+		predictions++;
+		falsePositives++;
+	}
+
+	/**
+	 * Resets these statistics.
+	 */
+	public void clear() {
+		references = 0;
+		predictions = 0;
+		both = 0;
+		falsePositives = 0;
+		falseNegatives = 0;
+		matches = 0;
+		mismatches = 0;
+	}
+
+	/**
+	 * Adds a pair with both reference and prediction and the specified similarity to these statistics.
+	 * @param s similarity of the pair.
+	 */
+	public void add(double s) {
+		references++;
+		predictions++;
+		both++;
+		matches += s;
+		mismatches += 1 - s;
+	}
+
+	public long getReferences() {
+		return references;
+	}
+
+	public long getPredictions() {
+		return predictions;
+	}
+
+	public long getBoth() {
+		return both;
+	}
+
+	public long getFalsePositives() {
+		return falsePositives;
+	}
+
+	public long getFalseNegatives() {
+		return falseNegatives;
+	}
+
+	public double getMatches() {
+		return matches;
+	}
+
+	public double getMismatches() {
+		return mismatches;
+	}
+
+	public double getRecall() {
+		return matches / references;
+	}
+
+	public double getPrecision() {
+		return matches / predictions;
+	}
+}
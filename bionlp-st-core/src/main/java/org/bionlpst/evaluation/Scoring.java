@@ -4,7 +4,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.bionlpst.BioNLPSTException;
 import org.bionlpst.evaluation.similarity.Similarity;
 import org.bionlpst.util.Filter;
 import org.bionlpst.util.Util;
@@ -76,23 +81,239 @@ public class Scoring<T> {
 	}
 
 	public ScoringResult<T> getResult(Collection<Pair<T>> pairs, BootstrapConfig bootstrap) {
+		return getResult(pairs, bootstrap, similarity);
+	}
+
+	/**
+	 * Computes measures with the specified similarity instead of the similarity of this scoring.
+	 * @param similarity either the similarity of this scoring or a decorator of it.
+	 */
+	ScoringResult<T> getResult(Collection<Pair<T>> pairs, BootstrapConfig bootstrap, Similarity<T> similarity) {
 		List<Pair<T>> filtered = Util.filter(postFilter, pairs);
 		List<MeasureResult> measureResults = new ArrayList<MeasureResult>(measures.size());
+		PairStatistics statistics = getStatistics(similarity, filtered);
 		for (Measure m : measures) {
-			Number n = m.compute(similarity, filtered);
+			Number n = compute(m, similarity, filtered, statistics);
 			measureResults.add(new MeasureResult(m, n));
 		}
 		if (bootstrap != null) {
-			List<Pair<T>> sample = new ArrayList<Pair<T>>(filtered.size());
-			for (int i = 0; i < bootstrap.getResamples(); ++i) {
-				bootstrap.resample(filtered, sample);
-				for (MeasureResult mr : measureResults) {
-					Measure m = mr.getMeasure();
-					Number n = m.compute(similarity, sample);
-					mr.addResample(n);
+			bootstrap(similarity, filtered, bootstrap, measureResults);
+		}
+		return new ScoringResult<T>(this, measureResults);
+	}
+
+	private static final byte FALSE_POSITIVE = 0;
+	private static final byte FALSE_NEGATIVE = 1;
+	private static final byte BOTH = 2;
+
+	/**
+	 * Number of resamples computed by each task when resamples are computed by an executor.
+	 */
+	private static final int RESAMPLES_PER_TASK = 32;
+
+	/**
+	 * Computes measures on resamples.
+	 * The contribution of each pair (kind and similarity) is computed once, statistics of each resample are accumulated from the sampled indexes.
+	 * Resample pair lists are only built for measures that are not statistics measures.
+	 * If the configuration uses one random stream per resample, then resamples are computed by blocks, possibly concurrently, and recorded in the resample order.
+	 */
+	private void bootstrap(Similarity<T> similarity, List<Pair<T>> pairs, BootstrapConfig bootstrap, List<MeasureResult> measureResults) {
+		Resampler resampler = new Resampler(similarity, pairs);
+		if (bootstrap.isSplit()) {
+			bootstrapSplit(resampler, bootstrap, measureResults);
+			return;
+		}
+		final int n = pairs.size();
+		int[] sample = new int[n];
+		Buffers buffers = resampler.newBuffers();
+		for (int r = 0; r < bootstrap.getResamples(); ++r) {
+			bootstrap.resample(n, sample);
+			Number[] values = resampler.compute(sample, buffers);
+			for (int m = 0; m < values.length; ++m) {
+				measureResults.get(m).addResample(values[m]);
+			}
+		}
+	}
+
+	private void bootstrapSplit(final Resampler resampler, BootstrapConfig bootstrap, List<MeasureResult> measureResults) {
+		final Random[] streams = bootstrap.getStreams();
+		final Number[][] values = new Number[streams.length][];
+		ExecutorService executor = bootstrap.getExecutor();
+		if (executor == null) {
+			resampler.compute(streams, 0, streams.length, values);
+		}
+		else {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int from = 0; from < streams.length; from += RESAMPLES_PER_TASK) {
+				final int start = from;
+				final int end = Math.min(streams.length, from + RESAMPLES_PER_TASK);
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						resampler.compute(streams, start, end, values);
+					}
+				}));
+			}
+			try {
+				for (Future<?> f : futures) {
+					f.get();
 				}
 			}
+			catch (InterruptedException e) {
+				cancel(futures);
+				Thread.currentThread().interrupt();
+				throw new BioNLPSTException("interrupted while resampling " + name, e);
+			}
+			catch (ExecutionException e) {
+				cancel(futures);
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new BioNLPSTException(cause);
+			}
 		}
-		return new ScoringResult<T>(this, measureResults);
+		for (Number[] v : values) {
+			for (int m = 0; m < v.length; ++m) {
+				measureResults.get(m).addResample(v[m]);
+			}
+		}
+	}
+
+	private static void cancel(Collection<? extends Future<?>> futures) {
+		for (Future<?> f : futures) {
+			f.cancel(true);
+		}
+	}
+
+	/**
+	 * Computes the measures of this scoring on resamples of a list of pairs.
+	 * The pair contributions are read-only once computed, each thread uses its own buffers.
+	 */
+	private class Resampler {
+		private final Similarity<T> similarity;
+		private final List<Pair<T>> pairs;
+		private final boolean hasStatisticsMeasures;
+		private final boolean hasOtherMeasures;
+		private final byte[] kinds;
+		private final double[] similarities;
+
+		private Resampler(Similarity<T> similarity, List<Pair<T>> pairs) {
+			this.similarity = similarity;
+			this.pairs = pairs;
+			boolean hasStatisticsMeasures = false;
+			boolean hasOtherMeasures = false;
+			for (Measure m : measures) {
+				if (m instanceof StatisticsMeasure) {
+					hasStatisticsMeasures = true;
+				}
+				else {
+					hasOtherMeasures = true;
+				}
+			}
+			this.hasStatisticsMeasures = hasStatisticsMeasures;
+			this.hasOtherMeasures = hasOtherMeasures;
+			final int n = pairs.size();
+			kinds = new byte[n];
+			similarities = new double[n];
+			if (hasStatisticsMeasures) {
+				for (int i = 0; i < n; ++i) {
+					Pair<T> p = pairs.get(i);
+					if (p.hasBoth()) {
+						kinds[i] = BOTH;
+						similarities[i] = p.compute(similarity);
+					}
+					else if (p.hasReference()) {
+						kinds[i] = FALSE_NEGATIVE;
+					}
+					else {
+						kinds[i] = FALSE_POSITIVE;
+					}
+				}
+			}
+		}
+
+		private Buffers newBuffers() {
+			return new Buffers(hasStatisticsMeasures ? new PairStatistics() : null, hasOtherMeasures ? new ArrayList<Pair<T>>(pairs.size()) : null);
+		}
+
+		/**
+		 * Computes the measures of resamples [from, to), the resample r is drawn from streams[r] and its measures are stored in values[r].
+		 */
+		private void compute(Random[] streams, int from, int to, Number[][] values) {
+			final int n = pairs.size();
+			int[] sample = new int[n];
+			Buffers buffers = newBuffers();
+			for (int r = from; r < to; ++r) {
+				BootstrapConfig.resample(streams[r], n, sample);
+				values[r] = compute(sample, buffers);
+			}
+		}
+
+		/**
+		 * Computes the measures of the resample of the specified indexes, in the order of the measures of this scoring.
+		 */
+		private Number[] compute(int[] sample, Buffers buffers) {
+			final int n = sample.length;
+			PairStatistics statistics = buffers.statistics;
+			if (statistics != null) {
+				statistics.clear();
+				for (int i = 0; i < n; ++i) {
+					int j = sample[i];
+					switch (kinds[j]) {
+						case BOTH: statistics.add(similarities[j]); break;
+						case FALSE_NEGATIVE: statistics.addFalseNegative(); break;
+						default: statistics.addFalsePositive();
+					}
+				}
+			}
+			List<Pair<T>> samplePairs = buffers.samplePairs;
+			if (samplePairs != null) {
+				samplePairs.clear();
+				for (int i = 0; i < n; ++i) {
+					samplePairs.add(pairs.get(sample[i]));
+				}
+			}
+			Number[] result = new Number[measures.size()];
+			for (int m = 0; m < result.length; ++m) {
+				result[m] = Scoring.compute(measures.get(m), similarity, samplePairs, statistics);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Per-thread buffers of a resampler.
+	 */
+	private class Buffers {
+		private final PairStatistics statistics;
+		private final List<Pair<T>> samplePairs;
+
+		private Buffers(PairStatistics statistics, List<Pair<T>> samplePairs) {
+			this.statistics = statistics;
+			this.samplePairs = samplePairs;
+		}
+	}
+
+	/**
+	 * Collects the statistics of the specified pairs in a single pass, only if at least one measure uses them.
+	 */
+	private PairStatistics getStatistics(Similarity<T> similarity, List<Pair<T>> pairs) {
+		for (Measure m : measures) {
+			if (m instanceof StatisticsMeasure) {
+				return PairStatistics.compute(similarity, pairs);
+			}
+		}
+		return null;
+	}
+
+	private static <T> Number compute(Measure m, Similarity<T> similarity, List<Pair<T>> pairs, PairStatistics statistics) {
+		if (m instanceof StatisticsMeasure) {
+			return ((StatisticsMeasure) m).compute(statistics);
+		}
+		return m.compute(similarity, pairs);
 	}
 }
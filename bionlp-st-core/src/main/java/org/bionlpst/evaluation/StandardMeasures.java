@@ -5,20 +5,14 @@ import java.util.Collection;
 
 import org.bionlpst.evaluation.similarity.Similarity;
 
-public enum StandardMeasures implements Measure {
+public enum StandardMeasures implements StatisticsMeasure {
 	/**
 	 * Counts the number of reference items.
 	 */
 	REFERENCES {
 		@Override
-		public <T> Long compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			long result = 0;
-			for (Pair<T> p : pairs) {
-				if (p.hasReference()) {
-					result++;
-				}
-			}
-			return result;
+		public Long compute(PairStatistics statistics) {
+			return statistics.getReferences();
 		}
 
 		@Override
@@ -37,14 +31,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	PREDICTIONS {
 		@Override
-		public <T> Long compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			long result = 0;
-			for (Pair<T> p : pairs) {
-				if (p.hasPrediction()) {
-					result++;
-				}
-			}
-			return result;
+		public Long compute(PairStatistics statistics) {
+			return statistics.getPredictions();
 		}
 
 		@Override
@@ -63,15 +51,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	MATCHES {
 		@Override
-		public <T> Double compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double result = 0;
-			for (Pair<T> p : pairs) {
-				if (p.hasBoth()) {
-					double s = p.compute(similarity);
-					result += s;
-				}
-			}
-			return result;
+		public Double compute(PairStatistics statistics) {
+			return statistics.getMatches();
 		}
 
 		@Override
@@ -90,14 +71,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	MISMATCHES {
 		@Override
-		public <T> Double compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double result = 0;
-			for (Pair<T> p : pairs) {
-				if (p.hasBoth()) {
-					result += 1 - p.compute(similarity);
-				}
-			}
-			return result;
+		public Double compute(PairStatistics statistics) {
+			return statistics.getMismatches();
 		}
 
 		@Override
@@ -117,14 +92,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	FALSE_POSITIVES {
 		@Override
-		public <T> Long compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			long result = 0;
-			for (Pair<T> p : pairs) {
-				if (!p.hasReference()) {
-					result++;
-				}
-			}
-			return result;
+		public Long compute(PairStatistics statistics) {
+			return statistics.getFalsePositives();
 		}
 
 		@Override
@@ -144,14 +113,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	FALSE_NEGATIVES {
 		@Override
-		public <T> Long compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			long result = 0;
-			for (Pair<T> p : pairs) {
-				if (!p.hasPrediction()) {
-					result++;
-				}
-			}
-			return result;
+		public Long compute(PairStatistics statistics) {
+			return statistics.getFalseNegatives();
 		}
 
 		@Override
@@ -171,8 +134,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	INSERTIONS {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			return FALSE_POSITIVES.compute(similarity, pairs);
+		public Number compute(PairStatistics statistics) {
+			return FALSE_POSITIVES.compute(statistics);
 		}
 
 		@Override
@@ -191,8 +154,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	DELETIONS {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			return FALSE_NEGATIVES.compute(similarity, pairs);
+		public Number compute(PairStatistics statistics) {
+			return FALSE_NEGATIVES.compute(statistics);
 		}
 
 		@Override
@@ -211,8 +174,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	SUBSTITUTIONS {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			return MISMATCHES.compute(similarity, pairs);
+		public Number compute(PairStatistics statistics) {
+			return MISMATCHES.compute(statistics);
 		}
 
 		@Override
@@ -231,10 +194,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	RECALL {
 		@Override
-		public <T> Double compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double matches = MATCHES.compute(similarity, pairs).doubleValue();
-			long references = REFERENCES.compute(similarity, pairs).longValue();
-			return matches / references;
+		public Double compute(PairStatistics statistics) {
+			return statistics.getRecall();
 		}
 
 		@Override
@@ -253,10 +214,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	PRECISION {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double matches = MATCHES.compute(similarity, pairs).doubleValue();
-			long predictions = PREDICTIONS.compute(similarity, pairs).longValue();
-			return matches / predictions;
+		public Number compute(PairStatistics statistics) {
+			return statistics.getPrecision();
 		}
 
 		@Override
@@ -272,15 +231,8 @@ public enum StandardMeasures implements Measure {
 
 	MATCH_ACCURACY {
 		@Override
-		public <T> Double compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double matches = MATCHES.compute(similarity, pairs).doubleValue();
-			int both = 0;
-			for (Pair<T> p : pairs) {
-				if (p.hasBoth()) {
-					both++;
-				}
-			}
-			return matches / both;
+		public Double compute(PairStatistics statistics) {
+			return statistics.getMatches() / statistics.getBoth();
 		}
 
 		@Override
@@ -299,11 +251,12 @@ public enum StandardMeasures implements Measure {
 	 */
 	SLOT_ERROR_RATE {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double substitutions = SUBSTITUTIONS.compute(similarity, pairs).longValue();
-			long insertions = INSERTIONS.compute(similarity, pairs).longValue();
-			long deletions = DELETIONS.compute(similarity, pairs).longValue();
-			long references = REFERENCES.compute(similarity, pairs).longValue();
+		public Number compute(PairStatistics statistics) {
+			// substitutions are truncated, as they always were
+			double substitutions = SUBSTITUTIONS.compute(statistics).longValue();
+			long insertions = INSERTIONS.compute(statistics).longValue();
+			long deletions = DELETIONS.compute(statistics).longValue();
+			long references = REFERENCES.compute(statistics).longValue();
 			return (substitutions + insertions + deletions) / references;
 		}
 
@@ -323,8 +276,8 @@ public enum StandardMeasures implements Measure {
 	 */
 	INVERTED_SLOT_ERROR_RATE {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double ser = SLOT_ERROR_RATE.compute(similarity, pairs).doubleValue();
+		public Number compute(PairStatistics statistics) {
+			double ser = SLOT_ERROR_RATE.compute(statistics).doubleValue();
 			return 1.0 / (ser + 1);
 		}
 
@@ -344,9 +297,9 @@ public enum StandardMeasures implements Measure {
 	 */
 	F1_SCORE {
 		@Override
-		public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
-			double recall = RECALL.compute(similarity, pairs).doubleValue();
-			double precision = PRECISION.compute(similarity, pairs).doubleValue();
+		public Number compute(PairStatistics statistics) {
+			double recall = statistics.getRecall();
+			double precision = statistics.getPrecision();
 			return 2 * ((recall * precision) / (recall + precision));
 		}
 
@@ -360,6 +313,11 @@ public enum StandardMeasures implements Measure {
 			return MeasureDirection.HIGHER_IS_BETTER;
 		}
 	};
+
+	@Override
+	public <T> Number compute(Similarity<T> similarity, Collection<Pair<T>> pairs) {
+		return compute(PairStatistics.compute(similarity, pairs));
+	}
 	
 	public static Collection<? extends Measure> getF1Measures() {
 		return Arrays.asList(
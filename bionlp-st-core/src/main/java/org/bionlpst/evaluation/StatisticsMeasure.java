@@ -0,0 +1,11 @@
+package org.bionlpst.evaluation;
+
+/**
+ * A measure that can be computed from the sufficient statistics of a pairing.
+ * compute(similarity, pairs) must yield the same value as compute(PairStatistics.compute(similarity, pairs)).
+ * @author rbossy
+ *
+ */
+public interface StatisticsMeasure extends Measure {
+	Number compute(PairStatistics statistics);
+}
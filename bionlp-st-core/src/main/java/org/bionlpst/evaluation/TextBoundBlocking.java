@@ -0,0 +1,122 @@
+package org.bionlpst.evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.TextBound;
+
+/**
+ * Selects pairs of text-bound annotations whose spans overlap, or that have the same boundaries.
+ * Spans range from the start of the first fragment to the end of the last fragment, so the candidates include all pairs with overlapping fragments.
+ * Annotations that are not text-bound are never candidates.
+ * This blocking is suitable for similarities that yield 0 for text-bound annotations that do not overlap (jaccard, boundaries).
+ * Candidates are found with a sweep-line over annotations sorted by start position.
+ * @author rbossy
+ *
+ */
+public enum TextBoundBlocking implements Blocking<Annotation> {
+	INSTANCE;
+
+	@Override
+	public int[][] getCandidates(List<Annotation> reference, List<Annotation> prediction) {
+		final int nRefs = reference.size();
+		final int n = nRefs + prediction.size();
+		int[] starts = new int[n];
+		int[] ends = new int[n];
+		long[] events = new long[n];
+		int nEvents = 0;
+		for (int i = 0; i < n; ++i) {
+			Annotation a = i < nRefs ? reference.get(i) : prediction.get(i - nRefs);
+			TextBound t = a.asTextBound();
+			if (t == null || t.getFragments().isEmpty()) {
+				continue;
+			}
+			starts[i] = t.getStart();
+			ends[i] = t.getEnd();
+			events[nEvents++] = (((long) starts[i]) << 32) | i;
+		}
+		Arrays.sort(events, 0, nEvents);
+
+		IntList[] candidates = new IntList[nRefs];
+		IntList activeRefs = new IntList();
+		IntList activePreds = new IntList();
+		for (int e = 0; e < nEvents; ++e) {
+			int i = (int) events[e];
+			int start = starts[i];
+			if (i < nRefs) {
+				activePreds.purge(ends, start);
+				for (int k = 0; k < activePreds.size; ++k) {
+					int j = activePreds.values[k];
+					if (overlap(starts, ends, i, j)) {
+						add(candidates, i, j - nRefs);
+					}
+				}
+				activeRefs.add(i);
+			}
+			else {
+				activeRefs.purge(ends, start);
+				for (int k = 0; k < activeRefs.size; ++k) {
+					int j = activeRefs.values[k];
+					if (overlap(starts, ends, j, i)) {
+						add(candidates, j, i - nRefs);
+					}
+				}
+				activePreds.add(i);
+			}
+		}
+
+		int[][] result = new int[nRefs][];
+		for (int r = 0; r < nRefs; ++r) {
+			IntList c = candidates[r];
+			if (c == null) {
+				result[r] = new int[0];
+			}
+			else {
+				result[r] = Arrays.copyOf(c.values, c.size);
+				Arrays.sort(result[r]);
+			}
+		}
+		return result;
+	}
+
+	private static boolean overlap(int[] starts, int[] ends, int i, int j) {
+		if (starts[i] == starts[j] && ends[i] == ends[j]) {
+			return true;
+		}
+		return starts[i] < ends[j] && starts[j] < ends[i];
+	}
+
+	private static void add(IntList[] candidates, int r, int c) {
+		if (candidates[r] == null) {
+			candidates[r] = new IntList();
+		}
+		candidates[r].add(c);
+	}
+
+	private static class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		private void add(int v) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = v;
+		}
+
+		/**
+		 * Removes items that end before the specified position, they cannot overlap items that start later.
+		 */
+		private void purge(int[] ends, int position) {
+			int j = 0;
+			for (int k = 0; k < size; ++k) {
+				int v = values[k];
+				if (ends[v] >= position) {
+					values[j++] = v;
+				}
+			}
+			size = j;
+		}
+	}
+}
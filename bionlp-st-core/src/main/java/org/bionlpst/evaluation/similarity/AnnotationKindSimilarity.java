@@ -8,7 +8,7 @@ import org.bionlpst.corpus.Annotation;
  *
  * @param <T>
  */
-public enum AnnotationKindSimilarity implements Similarity<Annotation> {
+public enum AnnotationKindSimilarity implements PartitionedSimilarity<Annotation> {
 	INSTANCE;
 	
 	@Override
@@ -27,4 +27,14 @@ public enum AnnotationKindSimilarity implements Similarity<Annotation> {
 		sb.append(" = ");
 		sb.append(compute(a, b));
 	}
+
+	@Override
+	public boolean isPartitioned() {
+		return true;
+	}
+
+	@Override
+	public Object getPartitionKey(Annotation item) {
+		return item.getKind();
+	}
 }
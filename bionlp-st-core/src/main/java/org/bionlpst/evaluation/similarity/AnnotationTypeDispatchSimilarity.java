@@ -11,7 +11,7 @@ import org.bionlpst.corpus.Annotation;
  *
  * @param <T>
  */
-public class AnnotationTypeDispatchSimilarity<T extends Annotation> implements Similarity<T> {
+public class AnnotationTypeDispatchSimilarity<T extends Annotation> implements PartitionedSimilarity<T> {
 	private final Map<String,Similarity<T>> similarities = new HashMap<String,Similarity<T>>();
 	private final Similarity<T> defaultSimilarity;
 	private final Similarity<T> differentSimilarity;
@@ -64,4 +64,17 @@ public class AnnotationTypeDispatchSimilarity<T extends Annotation> implements S
 		sb.append(": ");
 		differentSimilarity.explain(sb, a, b);
 	}
+
+	/**
+	 * Partitions by type if different types yield 0.
+	 */
+	@Override
+	public boolean isPartitioned() {
+		return ConstantSimilarity.isZero(differentSimilarity);
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return item.getType();
+	}
 }
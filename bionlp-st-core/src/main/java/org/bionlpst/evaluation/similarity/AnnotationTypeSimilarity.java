@@ -13,7 +13,7 @@ import org.bionlpst.util.Util;
  *
  * @param <T>
  */
-public class AnnotationTypeSimilarity<T extends Annotation> implements Similarity<T> {
+public class AnnotationTypeSimilarity<T extends Annotation> implements PartitionedSimilarity<T> {
 	private final Similarity<String> typeSimilarity;
 
 	public AnnotationTypeSimilarity(Similarity<String> typeSimilarity) {
@@ -97,4 +97,17 @@ public class AnnotationTypeSimilarity<T extends Annotation> implements Similarit
 		}
 		typeSimilarity.explain(sb, a.getType(), b.getType());
 	}
+
+	/**
+	 * Partitions by type if different types yield 0.
+	 */
+	@Override
+	public boolean isPartitioned() {
+		return ConstantSimilarity.isZero(typeSimilarity);
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return item.getType();
+	}
 }
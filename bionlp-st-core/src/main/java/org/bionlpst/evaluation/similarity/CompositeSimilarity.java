@@ -3,6 +3,7 @@ package org.bionlpst.evaluation.similarity;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 public abstract class CompositeSimilarity<T> implements Similarity<T> {
 	private final Collection<Similarity<T>> similarities = new ArrayList<Similarity<T>>();
@@ -36,4 +37,35 @@ public abstract class CompositeSimilarity<T> implements Similarity<T> {
 			sim.explain(sb, a, b);
 		}
 	}
+
+	/**
+	 * Returns either at least one of the similarities partitions items.
+	 * Composites that yield 0 as soon as one of the similarities yields 0 can partition on all partitioned similarities.
+	 */
+	protected boolean hasPartitionedSimilarity() {
+		for (Similarity<T> sim : similarities) {
+			if (isPartitioned(sim)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the list of the partition keys of the specified item for each partitioned similarity.
+	 * @param item
+	 */
+	protected List<Object> getPartitionKeys(T item) {
+		List<Object> result = new ArrayList<Object>(similarities.size());
+		for (Similarity<T> sim : similarities) {
+			if (isPartitioned(sim)) {
+				result.add(((PartitionedSimilarity<T>) sim).getPartitionKey(item));
+			}
+		}
+		return result;
+	}
+
+	private static <T> boolean isPartitioned(Similarity<T> sim) {
+		return (sim instanceof PartitionedSimilarity) && ((PartitionedSimilarity<T>) sim).isPartitioned();
+	}
 }
@@ -21,6 +21,18 @@ public class ConstantSimilarity<T> implements Similarity<T> {
 		this(1);
 	}
 
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns either the specified similarity always yields 0.
+	 * @param similarity
+	 */
+	public static boolean isZero(Similarity<?> similarity) {
+		return (similarity instanceof ConstantSimilarity) && ((ConstantSimilarity<?>) similarity).value == 0;
+	}
+
 	@Override
 	public double compute(T a, T b) {
 		return value;
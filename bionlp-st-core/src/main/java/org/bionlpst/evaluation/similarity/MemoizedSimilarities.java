@@ -0,0 +1,44 @@
+package org.bionlpst.evaluation.similarity;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Memoized similarities for a single evaluation run.
+ * The same similarity object is always decorated by the same memoized similarity, so that values computed during pairing are read during scoring and bootstrap resamples.
+ * @author rbossy
+ *
+ * @param <T>
+ */
+public class MemoizedSimilarities<T> {
+	private final Map<Similarity<T>,MemoizedSimilarity<T>> memoized = new IdentityHashMap<Similarity<T>,MemoizedSimilarity<T>>();
+
+	public MemoizedSimilarities() {
+		super();
+	}
+
+	/**
+	 * Returns the memoized decorator of the specified similarity.
+	 * @param similarity
+	 */
+	public synchronized Similarity<T> get(Similarity<T> similarity) {
+		if (memoized.containsKey(similarity)) {
+			return memoized.get(similarity);
+		}
+		MemoizedSimilarity<T> result = new MemoizedSimilarity<T>(similarity);
+		memoized.put(similarity, result);
+		return result;
+	}
+
+	/**
+	 * Returns the memoized decorator of the specified similarity, or the similarity itself if memo is null.
+	 * @param memo memoized similarities, may be null.
+	 * @param similarity
+	 */
+	public static <T> Similarity<T> get(MemoizedSimilarities<T> memo, Similarity<T> similarity) {
+		if (memo == null) {
+			return similarity;
+		}
+		return memo.get(similarity);
+	}
+}
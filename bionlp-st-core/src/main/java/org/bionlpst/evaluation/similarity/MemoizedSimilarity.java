@@ -0,0 +1,115 @@
+package org.bionlpst.evaluation.similarity;
+
+/**
+ * A decorator that caches the values of the similarity provided in the constructor.
+ * Items are compared by identity, so this similarity is only valid as long as items are not modified.
+ * Values are stored in an open-addressing hash table with linear probing.
+ * This class is thread-safe, though the decorated similarity may be computed more than once for the same pair by concurrent threads.
+ * @author rbossy
+ *
+ * @param <T>
+ */
+public class MemoizedSimilarity<T> implements PartitionedSimilarity<T> {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Similarity<T> similarity;
+	private Object[] as = new Object[INITIAL_CAPACITY];
+	private Object[] bs = new Object[INITIAL_CAPACITY];
+	private double[] values = new double[INITIAL_CAPACITY];
+	private int size = 0;
+
+	public MemoizedSimilarity(Similarity<T> similarity) {
+		super();
+		this.similarity = similarity;
+	}
+
+	public Similarity<T> getSimilarity() {
+		return similarity;
+	}
+
+	/**
+	 * Returns the number of pairs of which the similarity is cached.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public double compute(T a, T b) {
+		if (a == null || b == null) {
+			return similarity.compute(a, b);
+		}
+		synchronized (this) {
+			int i = find(a, b);
+			if (as[i] != null) {
+				return values[i];
+			}
+		}
+		double result = similarity.compute(a, b);
+		synchronized (this) {
+			int i = find(a, b);
+			if (as[i] == null) {
+				as[i] = a;
+				bs[i] = b;
+				size++;
+			}
+			values[i] = result;
+			if (size * 2 > as.length) {
+				grow();
+			}
+		}
+		return result;
+	}
+
+	private static int hash(Object a, Object b) {
+		int h = System.identityHashCode(a) * 31 + System.identityHashCode(b);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	/**
+	 * Returns the slot of the specified pair, or the empty slot where it should be inserted.
+	 */
+	private int find(Object a, Object b) {
+		int mask = as.length - 1;
+		int i = hash(a, b) & mask;
+		while (as[i] != null && (as[i] != a || bs[i] != b)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private void grow() {
+		Object[] oldAs = as;
+		Object[] oldBs = bs;
+		double[] oldValues = values;
+		as = new Object[oldAs.length * 2];
+		bs = new Object[oldAs.length * 2];
+		values = new double[oldAs.length * 2];
+		for (int j = 0; j < oldAs.length; ++j) {
+			if (oldAs[j] != null) {
+				int i = find(oldAs[j], oldBs[j]);
+				as[i] = oldAs[j];
+				bs[i] = oldBs[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	@Override
+	public void explain(StringBuilder sb, T a, T b) {
+		similarity.explain(sb, a, b);
+	}
+
+	@Override
+	public boolean isPartitioned() {
+		return (similarity instanceof PartitionedSimilarity) && ((PartitionedSimilarity<T>) similarity).isPartitioned();
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return ((PartitionedSimilarity<T>) similarity).getPartitionKey(item);
+	}
+}
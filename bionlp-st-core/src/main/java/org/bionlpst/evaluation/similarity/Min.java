@@ -2,7 +2,7 @@ package org.bionlpst.evaluation.similarity;
 
 import java.util.Collection;
 
-public class Min<T> extends CompositeSimilarity<T> {
+public class Min<T> extends CompositeSimilarity<T> implements PartitionedSimilarity<T> {
 	public Min() {
 		super();
 	}
@@ -31,4 +31,14 @@ public class Min<T> extends CompositeSimilarity<T> {
 		sb.append(") = ");
 		sb.append(compute(a, b));
 	}
+
+	@Override
+	public boolean isPartitioned() {
+		return hasPartitionedSimilarity();
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return getPartitionKeys(item);
+	}
 }
@@ -0,0 +1,23 @@
+package org.bionlpst.evaluation.similarity;
+
+/**
+ * A similarity that yields 0 for all pairs of items with different partition keys.
+ * Pairing can then be computed independently in each partition.
+ * @author rbossy
+ *
+ * @param <T>
+ */
+public interface PartitionedSimilarity<T> extends Similarity<T> {
+	/**
+	 * Returns either this similarity actually partitions items.
+	 * If false, then getPartitionKey() should not be called.
+	 */
+	boolean isPartitioned();
+
+	/**
+	 * Returns the partition key of the specified item.
+	 * Two items with keys that are not equal must have a similarity of 0.
+	 * @param item
+	 */
+	Object getPartitionKey(T item);
+}
@@ -8,7 +8,7 @@ import java.util.Collection;
  *
  * @param <T>
  */
-public class Product<T> extends CompositeSimilarity<T> {
+public class Product<T> extends CompositeSimilarity<T> implements PartitionedSimilarity<T> {
 	public Product() {
 		super();
 	}
@@ -37,4 +37,14 @@ public class Product<T> extends CompositeSimilarity<T> {
 		sb.append(") = ");
 		sb.append(compute(a, b));
 	}
+
+	@Override
+	public boolean isPartitioned() {
+		return hasPartitionedSimilarity();
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return getPartitionKeys(item);
+	}
 }
\ No newline at end of file
@@ -13,7 +13,7 @@ import org.bionlpst.corpus.Annotation;
 import org.bionlpst.corpus.Relation;
 import org.bionlpst.util.Util;
 
-public class SameTypeAndArgumentsSimilarity implements Similarity<Annotation> {
+public class SameTypeAndArgumentsSimilarity implements PartitionedSimilarity<Annotation> {
 	private final Collection<String> commutativeTypes;
 	private final boolean resolveEquivalences;
 	private final Map<String,TypeConversion> typeConversion;
@@ -240,4 +240,18 @@ public class SameTypeAndArgumentsSimilarity implements Similarity<Annotation> {
 		sb.append(comm);
 		sb.append(" -> 0");
 	}
+
+	@Override
+	public boolean isPartitioned() {
+		return true;
+	}
+
+	/**
+	 * Partitions by converted type.
+	 */
+	@Override
+	public Object getPartitionKey(Annotation item) {
+		String type = item.getType();
+		return convertType(typeConversion.get(type), type);
+	}
 }
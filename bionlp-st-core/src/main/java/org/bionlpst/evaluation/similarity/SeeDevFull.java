@@ -10,7 +10,7 @@ import java.util.Map;
 import org.bionlpst.corpus.Annotation;
 import org.bionlpst.corpus.Relation;
 
-public class SeeDevFull implements Similarity<Annotation> {
+public class SeeDevFull implements PartitionedSimilarity<Annotation> {
 	private static final Map<String,String[]> relationArguments = new HashMap<String,String[]>();
 	static {
 		relationArguments.put("Binding", new String[] { "Functional_Molecule", "Molecule" });
@@ -235,4 +235,14 @@ public class SeeDevFull implements Similarity<Annotation> {
 		sb.append(computeOptionalArgumentsSimilarity(rela, relb));
 	}
 
+
+	@Override
+	public boolean isPartitioned() {
+		return true;
+	}
+
+	@Override
+	public Object getPartitionKey(Annotation item) {
+		return item.getType();
+	}
 }
@@ -7,7 +7,7 @@ package org.bionlpst.evaluation.similarity;
  *
  * @param <T>
  */
-public class SimilarityCutoff<T> implements Similarity<T> {
+public class SimilarityCutoff<T> implements PartitionedSimilarity<T> {
 	private final Similarity<T> similarity;
 	private final double threshold;
 	private final boolean strict;
@@ -67,4 +67,20 @@ public class SimilarityCutoff<T> implements Similarity<T> {
 		sb.append(" -> ");
 		sb.append(r);
 	}
+
+	/**
+	 * Partitions like the discretized similarity, provided that 0 is discretized to 0.
+	 */
+	@Override
+	public boolean isPartitioned() {
+		if (threshold < 0 || (threshold == 0 && !strict)) {
+			return false;
+		}
+		return (similarity instanceof PartitionedSimilarity) && ((PartitionedSimilarity<T>) similarity).isPartitioned();
+	}
+
+	@Override
+	public Object getPartitionKey(T item) {
+		return ((PartitionedSimilarity<T>) similarity).getPartitionKey(item);
+	}
 }
\ No newline at end of file
@@ -106,7 +106,7 @@ public class WangSimilarity implements Similarity<Collection<String>> {
 		return result;
 	}
 	
-	private Double getCached(String a, String b) {
+	private synchronized Double getCached(String a, String b) {
 		if (!nodeSimilarityCache.containsKey(a)) {
 			return null;
 		}
@@ -175,7 +175,7 @@ public class WangSimilarity implements Similarity<Collection<String>> {
 		return result;
 	}
 	
-	private void putCache(String a, String b, double result) {
+	private synchronized void putCache(String a, String b, double result) {
 		ensureInCache(a).put(b, result);
 		ensureInCache(b).put(a, result);
 	}
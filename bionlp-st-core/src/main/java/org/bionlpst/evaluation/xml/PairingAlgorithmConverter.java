@@ -2,10 +2,13 @@ package org.bionlpst.evaluation.xml;
 
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.corpus.Annotation;
+import org.bionlpst.evaluation.Blocking;
 import org.bionlpst.evaluation.HeuristicPairing;
+import org.bionlpst.evaluation.OptimalPairing;
 import org.bionlpst.evaluation.PairingAlgorithm;
 import org.bionlpst.evaluation.PredictionPairing;
 import org.bionlpst.evaluation.ReferencePairing;
+import org.bionlpst.evaluation.TextBoundBlocking;
 import org.bionlpst.util.dom.DOMElementConverter;
 import org.bionlpst.util.dom.DOMUtil;
 import org.w3c.dom.Element;
@@ -27,7 +30,12 @@ public class PairingAlgorithmConverter implements DOMElementConverter<PairingAlg
 		String tag = element.getTagName();
 		switch (tag) {
 			case "heuristic": {
-				return new HeuristicPairing<Annotation>();
+				Blocking<Annotation> blocking = getBlocking(element);
+				return new HeuristicPairing<Annotation>(blocking);
+			}
+			case "optimal": {
+				Blocking<Annotation> blocking = getBlocking(element);
+				return new OptimalPairing<Annotation>(blocking);
 			}
 			case "references": {
 				double threshold = DOMUtil.getDoubleAttribute(element, "threshold", 0);
@@ -49,4 +57,13 @@ public class PairingAlgorithmConverter implements DOMElementConverter<PairingAlg
 			}
 		}
 	}
+	
+	private static Blocking<Annotation> getBlocking(Element element) {
+		String blocking = DOMUtil.getAttribute(element, "blocking", "none");
+		switch (blocking) {
+			case "none": return null;
+			case "text-bound": return TextBoundBlocking.INSTANCE;
+			default: throw new BioNLPSTException("unknown blocking: " + blocking);
+		}
+	}
 }
@@ -2,6 +2,7 @@ package org.bionlpst.evaluation.xml;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.bionlpst.BioNLPSTException;
@@ -63,6 +64,21 @@ public class ScoringConverter implements DOMElementConverter<Scoring<Annotation>
 		return defaultPostFilter;
 	}
 
+	/**
+	 * Returns the measures specified by the specified scoring child element, or null if the element does not specify measures.
+	 * Measures do not read any resource, so this method can be used to describe a scoring without converting it.
+	 * @param element
+	 */
+	public static Collection<? extends Measure> getMeasures(Element element) {
+		switch (element.getTagName()) {
+			case "measure": return Collections.singleton(MeasureConverter.getMeasure(element.getTextContent()));
+			case "f1-measures": return StandardMeasures.getF1Measures();
+			case "ser-measures": return StandardMeasures.getSERMeasures();
+			case "count-measures": return StandardMeasures.getCountMeasures();
+			default: return null;
+		}
+	}
+
 	@Override
 	public Scoring<Annotation> convert(Element element) throws Exception {
 		String name = acceptTypes ? "" : DOMUtil.getMandatoryAttribute(element, "name");
@@ -87,24 +103,6 @@ public class ScoringConverter implements DOMElementConverter<Scoring<Annotation>
 					similarity = new SimilarityConverter(classLoader).convert(DOMUtil.getFirstChildElement(child));
 					break;
 				}
-				case "measure": {
-					String sMeasure = child.getTextContent();
-					Measure measure = MeasureConverter.getMeasure(sMeasure);
-					measures.add(measure);
-					break;
-				}
-				case "f1-measures": {
-					measures.addAll(StandardMeasures.getF1Measures());
-					break;
-				}
-				case "ser-measures": {
-					measures.addAll(StandardMeasures.getSERMeasures());
-					break;
-				}
-				case "count-measures": {
-					measures.addAll(StandardMeasures.getCountMeasures());
-					break;
-				}
 				case "types": {
 					if (acceptTypes) {
 						types = DOMUtil.getArrayContents(child);
@@ -112,7 +110,11 @@ public class ScoringConverter implements DOMElementConverter<Scoring<Annotation>
 					}
 				}
 				default: {
-					throw new BioNLPSTException("unexpected tag: " + tag);
+					Collection<? extends Measure> childMeasures = getMeasures(child);
+					if (childMeasures == null) {
+						throw new BioNLPSTException("unexpected tag: " + tag);
+					}
+					measures.addAll(childMeasures);
 				}
 			}
 		}
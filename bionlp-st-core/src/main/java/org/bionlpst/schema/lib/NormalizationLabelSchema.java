@@ -17,8 +17,8 @@ public class NormalizationLabelSchema implements Schema<Normalization> {
 	@Override
 	public void check(CheckLogger logger, Normalization item) {
 		String ref = item.getReferent();
-		if (labels.containsKey(ref)) {
-			String label = labels.get(ref);
+		String label = labels.get(ref);
+		if (label != null) {
 			item.setLabel(label);
 		}
 	}
@@ -1,9 +1,6 @@
 package org.bionlpst.schema.xml;
 
-import java.io.BufferedReader;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 import org.bionlpst.BioNLPSTException;
@@ -14,6 +11,7 @@ import org.bionlpst.schema.lib.BackReferenceCardinalitySchema;
 import org.bionlpst.schema.lib.NormalizationLabelSchema;
 import org.bionlpst.schema.lib.NormalizationVocabularySchema;
 import org.bionlpst.schema.lib.SingleReferenceAnnotationTypecheckSchema;
+import org.bionlpst.util.SortedStringTable;
 import org.bionlpst.util.SourceStream;
 import org.bionlpst.util.dom.DOMElementConverter;
 import org.bionlpst.util.dom.DOMUtil;
@@ -61,37 +59,14 @@ public class NormalizationConverter implements DOMElementConverter<Schema<Normal
 				}
 				case "reference-vocabulary": {
 					SourceStream source = new SourceStreamConverter(classLoader).convert(child);
-					Collection<String> allowedValues = new HashSet<String>();
-					try (BufferedReader r = source.openBufferedReader()) {
-						while (true) {
-							String line = r.readLine();
-							if (line == null) {
-								break;
-							}
-							allowedValues.add(line.trim());
-						}
-					}
+					Collection<String> allowedValues = SortedStringTable.getSharedKeys(source).asSet();
 					Schema<Normalization> schema = new NormalizationVocabularySchema(allowedValues);
 					result.addCompound(schema);
 					break;
 				}
 				case "labels": {
 					SourceStream source = new SourceStreamConverter(classLoader).convert(child);
-					Map<String,String> labels = new HashMap<String,String>();
-					try (BufferedReader r = source.openBufferedReader()) {
-						while (true) {
-							String line = r.readLine();
-							if (line == null) {
-								break;
-							}
-							int tab = line.indexOf('\t');
-							if (tab != -1) {
-								String ref = line.substring(0, tab);
-								String label =  line.substring(tab+1);
-								labels.put(ref, label);
-							}
-						}
-					}
+					Map<String,String> labels = SortedStringTable.getSharedKeyValues(source).asMap();
 					Schema<Normalization> schema = new NormalizationLabelSchema(labels);
 					result.addCompound(schema);
 					break;
@@ -2,6 +2,7 @@ package org.bionlpst.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 public class ResourceSourceStream extends SourceStream {
 	private final ClassLoader classLoader;
@@ -36,4 +37,17 @@ public class ResourceSourceStream extends SourceStream {
 	public String getName() {
 		return resourceName;
 	}
+
+	/**
+	 * Returns the URL the resource resolves to, since class loaders may resolve the same resource name to different contents.
+	 * If the resource does not exist, then the default identity is returned, open() fails anyway.
+	 */
+	@Override
+	public String getIdentity() {
+		URL url = classLoader.getResource(resourceName);
+		if (url == null) {
+			return super.getIdentity();
+		}
+		return getClass().getName() + ":" + url;
+	}
 }
@@ -0,0 +1,360 @@
+package org.bionlpst.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable table of strings, each key is optionally associated to a value.
+ * Entries are sorted by the UTF-8 bytes of the key and stored off-heap in a direct buffer, keys are looked up by binary search.
+ * Tables read from source streams are shared within the JVM, so that a vocabulary referenced by several tasks is read once.
+ * This class is thread-safe.
+ * @author rbossy
+ *
+ */
+public class SortedStringTable {
+	private static final ConcurrentMap<String,SortedStringTable> SHARED = new ConcurrentHashMap<String,SortedStringTable>();
+
+	/**
+	 * Entry layout: key length, key bytes, value length (-1 if no value), value bytes.
+	 * Entries are followed by the offset of each entry, in key order.
+	 */
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int offsetsStart;
+
+	private SortedStringTable(List<byte[][]> entries) {
+		super();
+		Collections.sort(entries, ENTRY_COMPARATOR);
+		List<byte[][]> unique = new ArrayList<byte[][]>(entries.size());
+		for (byte[][] e : entries) {
+			int last = unique.size() - 1;
+			// the sort is stable, the last value of duplicate keys wins, as in Map.put()
+			if (last >= 0 && compare(unique.get(last)[0], e[0]) == 0) {
+				unique.set(last, e);
+			}
+			else {
+				unique.add(e);
+			}
+		}
+		int length = 0;
+		for (byte[][] e : unique) {
+			length += 8 + e[0].length + (e[1] == null ? 0 : e[1].length);
+		}
+		this.size = unique.size();
+		this.offsetsStart = length;
+		this.buffer = ByteBuffer.allocateDirect(length + 4 * size);
+		for (int i = 0; i < size; ++i) {
+			byte[][] e = unique.get(i);
+			buffer.putInt(offsetsStart + 4 * i, buffer.position());
+			buffer.putInt(e[0].length);
+			buffer.put(e[0]);
+			if (e[1] == null) {
+				buffer.putInt(-1);
+			}
+			else {
+				buffer.putInt(e[1].length);
+				buffer.put(e[1]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a table of keys without values, one key per line.
+	 * Lines are trimmed.
+	 * @param source source stream.
+	 * @throws IOException
+	 */
+	public static SortedStringTable readKeys(SourceStream source) throws IOException {
+		List<byte[][]> entries = new ArrayList<byte[][]>();
+		try (BufferedReader r = source.openBufferedReader()) {
+			while (true) {
+				String line = r.readLine();
+				if (line == null) {
+					break;
+				}
+				entries.add(new byte[][] { encode(line.trim()), null });
+			}
+		}
+		return new SortedStringTable(entries);
+	}
+
+	/**
+	 * Reads a table of keys and values, one entry per line, the key and the value are separated by the first tab character.
+	 * Lines without tab are ignored.
+	 * @param source source stream.
+	 * @throws IOException
+	 */
+	public static SortedStringTable readKeyValues(SourceStream source) throws IOException {
+		List<byte[][]> entries = new ArrayList<byte[][]>();
+		try (BufferedReader r = source.openBufferedReader()) {
+			while (true) {
+				String line = r.readLine();
+				if (line == null) {
+					break;
+				}
+				int tab = line.indexOf('\t');
+				if (tab != -1) {
+					entries.add(new byte[][] { encode(line.substring(0, tab)), encode(line.substring(tab + 1)) });
+				}
+			}
+		}
+		return new SortedStringTable(entries);
+	}
+
+	/**
+	 * Returns the table of keys read from the specified source, the table is read only once in the JVM for each source.
+	 * Sources are identified by SourceStream.getIdentity(), so that the same resource name in different class loaders is not confused.
+	 * @param source source stream.
+	 * @throws IOException
+	 */
+	public static SortedStringTable getSharedKeys(SourceStream source) throws IOException {
+		String key = "keys:" + source.getIdentity();
+		SortedStringTable result = SHARED.get(key);
+		if (result == null) {
+			result = readKeys(source);
+			SortedStringTable prev = SHARED.putIfAbsent(key, result);
+			if (prev != null) {
+				return prev;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the table of keys and values read from the specified source, the table is read only once in the JVM for each source.
+	 * Sources are identified by SourceStream.getIdentity(), so that the same resource name in different class loaders is not confused.
+	 * @param source source stream.
+	 * @throws IOException
+	 */
+	public static SortedStringTable getSharedKeyValues(SourceStream source) throws IOException {
+		String key = "key-values:" + source.getIdentity();
+		SortedStringTable result = SHARED.get(key);
+		if (result == null) {
+			result = readKeyValues(source);
+			SortedStringTable prev = SHARED.putIfAbsent(key, result);
+			if (prev != null) {
+				return prev;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of keys in this table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns either this table contains the specified key.
+	 * @param key
+	 */
+	public boolean containsKey(String key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * Returns the value associated to the specified key, or null if this table does not contain the key, or if the key has no value.
+	 * @param key
+	 */
+	public String get(String key) {
+		int offset = find(key);
+		if (offset == -1) {
+			return null;
+		}
+		int keyLength = buffer.getInt(offset);
+		int valueOffset = offset + 4 + keyLength;
+		int valueLength = buffer.getInt(valueOffset);
+		if (valueLength == -1) {
+			return null;
+		}
+		return decode(valueOffset + 4, valueLength);
+	}
+
+	/**
+	 * Returns an unmodifiable view of the keys of this table.
+	 */
+	public Set<String> asSet() {
+		return new AbstractSet<String>() {
+			@Override
+			public boolean contains(Object o) {
+				return (o instanceof String) && containsKey((String) o);
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Returns an unmodifiable view of this table as a map, keys without values are mapped to null.
+	 */
+	public Map<String,String> asMap() {
+		return new AbstractMap<String,String>() {
+			@Override
+			public boolean containsKey(Object key) {
+				return (key instanceof String) && SortedStringTable.this.containsKey((String) key);
+			}
+
+			@Override
+			public String get(Object key) {
+				if (key instanceof String) {
+					return SortedStringTable.this.get((String) key);
+				}
+				return null;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public Set<Map.Entry<String,String>> entrySet() {
+				return new AbstractSet<Map.Entry<String,String>>() {
+					@Override
+					public Iterator<Map.Entry<String,String>> iterator() {
+						final KeyIterator keys = new KeyIterator();
+						return new Iterator<Map.Entry<String,String>>() {
+							@Override
+							public boolean hasNext() {
+								return keys.hasNext();
+							}
+
+							@Override
+							public Map.Entry<String,String> next() {
+								String key = keys.next();
+								return new AbstractMap.SimpleImmutableEntry<String,String>(key, SortedStringTable.this.get(key));
+							}
+
+							@Override
+							public void remove() {
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+						return size;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Returns the offset of the entry with the specified key, or -1 if there is no such entry.
+	 */
+	private int find(String key) {
+		byte[] bytes = encode(key);
+		int lo = 0;
+		int hi = size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int offset = buffer.getInt(offsetsStart + 4 * mid);
+			int cmp = compareAt(offset, bytes);
+			if (cmp < 0) {
+				lo = mid + 1;
+			}
+			else if (cmp > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the key of the entry at the specified offset with the specified bytes.
+	 */
+	private int compareAt(int offset, byte[] bytes) {
+		int length = buffer.getInt(offset);
+		int n = Math.min(length, bytes.length);
+		for (int i = 0; i < n; ++i) {
+			int cmp = (buffer.get(offset + 4 + i) & 0xff) - (bytes[i] & 0xff);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return length - bytes.length;
+	}
+
+	private String decode(int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			bytes[i] = buffer.get(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] encode(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int compare(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; ++i) {
+			int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static final Comparator<byte[][]> ENTRY_COMPARATOR = new Comparator<byte[][]>() {
+		@Override
+		public int compare(byte[][] a, byte[][] b) {
+			return SortedStringTable.compare(a[0], b[0]);
+		}
+	};
+
+	private class KeyIterator implements Iterator<String> {
+		private int index = 0;
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public String next() {
+			if (index >= size) {
+				throw new NoSuchElementException();
+			}
+			int offset = buffer.getInt(offsetsStart + 4 * index);
+			index++;
+			return decode(offset + 4, buffer.getInt(offset));
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
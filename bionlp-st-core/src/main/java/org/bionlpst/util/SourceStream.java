@@ -39,4 +39,12 @@ public abstract class SourceStream {
 	}
 	
 	public abstract String getName();
+
+	/**
+	 * Returns a string that identifies the contents of this stream within the JVM, two streams with the same identity read the same contents.
+	 * The default identity is the class and the name of this stream.
+	 */
+	public String getIdentity() {
+		return getClass().getName() + ":" + getName();
+	}
 }
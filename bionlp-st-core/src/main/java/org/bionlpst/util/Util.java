@@ -1,5 +1,6 @@
 package org.bionlpst.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -84,6 +85,25 @@ public enum Util {
 		}
 	}
 	
+	/**
+	 * Reads the specified stream as bytes, the stream is not closed.
+	 * @param is the stream.
+	 * @return the contents of the stream.
+	 * @throws IOException
+	 */
+	public static final byte[] readWholeBytes(InputStream is) throws IOException {
+		notnull(is);
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		while (true) {
+			int n = is.read(buf);
+			if (n == -1)
+				break;
+			result.write(buf, 0, n);
+		}
+		return result.toByteArray();
+	}
+	
 	/**
 	 * Fills target with items in source that satisfy filter.
 	 * @param filter the filter.
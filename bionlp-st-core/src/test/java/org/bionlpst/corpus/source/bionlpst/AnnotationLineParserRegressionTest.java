@@ -0,0 +1,223 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.AnnotationVisitor;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.Util;
+import org.bionlpst.util.fragment.ImmutableFragment;
+import org.bionlpst.util.message.CheckLogger;
+import org.bionlpst.util.message.CheckMessage;
+import org.junit.Test;
+
+/**
+ * Checks that ScannerAnnotationLineParser yields exactly the same annotations, messages and exceptions as RegexAnnotationLineParser.
+ * Every annotation line of the bundled corpora is parsed as is, and with several alterations that make it ill formed.
+ * @author rbossy
+ *
+ */
+public class AnnotationLineParserRegressionTest {
+	private static final String DATA_RESOURCE = "org/bionlpst/data/";
+
+	@Test
+	public void testBundledCorpora() throws Exception {
+		ClassLoader classLoader = AnnotationLineParserRegressionTest.class.getClassLoader();
+		List<String> zips = getBundledZips(classLoader);
+		assertFalse("no bundled corpus", zips.isEmpty());
+		for (String resourceName : zips) {
+			check(new ZipResourceInputStreamCollection(classLoader, resourceName));
+		}
+	}
+
+	private static List<String> getBundledZips(ClassLoader classLoader) throws Exception {
+		URL url = classLoader.getResource(DATA_RESOURCE);
+		assertNotNull("bundled corpora not found", url);
+		assertEquals("bundled corpora are not in a directory: " + url, "file", url.getProtocol());
+		List<String> result = new ArrayList<String>();
+		String[] names = new File(url.toURI()).list();
+		Arrays.sort(names);
+		for (String name : names) {
+			if (name.endsWith(".zip")) {
+				result.add(DATA_RESOURCE + name);
+			}
+		}
+		return result;
+	}
+
+	private static Map<String,String> readEntries(InputStreamCollection collection) throws Exception {
+		Map<String,String> result = new TreeMap<String,String>();
+		try (InputStreamIterator it = collection.getIterator()) {
+			while (it.next()) {
+				String name = it.getName();
+				if (name.endsWith(BioNLPSTSource.EXT_CONTENTS) || name.endsWith(BioNLPSTSource.EXT_INPUT) || name.endsWith(BioNLPSTSource.EXT_OUTPUT)) {
+					result.put(name, Util.readWholeStream(new InputStreamReader(it.getContents())));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static String getBaseName(String name) {
+		return name.substring(0, name.lastIndexOf('.'));
+	}
+
+	private static void check(InputStreamCollection collection) throws Exception {
+		Map<String,String> entries = readEntries(collection);
+		Map<String,String> contents = new HashMap<String,String>();
+		for (Map.Entry<String,String> e : entries.entrySet()) {
+			if (e.getKey().endsWith(BioNLPSTSource.EXT_CONTENTS)) {
+				contents.put(getBaseName(e.getKey()), e.getValue());
+			}
+		}
+		for (Map.Entry<String,String> e : entries.entrySet()) {
+			String source = e.getKey();
+			if (source.endsWith(BioNLPSTSource.EXT_CONTENTS)) {
+				continue;
+			}
+			String docContents = contents.containsKey(getBaseName(source)) ? contents.get(getBaseName(source)) : "";
+			boolean input = source.endsWith(BioNLPSTSource.EXT_INPUT);
+			BufferedReader reader = new BufferedReader(new StringReader(e.getValue()));
+			int lineno = 0;
+			while (true) {
+				String line = reader.readLine();
+				if (line == null) {
+					break;
+				}
+				lineno++;
+				Location location = new Location(source, lineno);
+				for (String variant : getVariants(line.trim())) {
+					String expected = parse(RegexAnnotationLineParser.INSTANCE, docContents, input, location, variant);
+					String actual = parse(ScannerAnnotationLineParser.INSTANCE, docContents, input, location, variant);
+					assertEquals(location.getMessage("line: '" + variant + "'"), expected, actual);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the specified line and alterations of it, empty lines are skipped as in BioNLPSTSource.
+	 */
+	private static List<String> getVariants(String line) {
+		List<String> result = new ArrayList<String>();
+		addVariant(result, line);
+		addVariant(result, line.substring(0, Math.max(0, line.length() - 1)));
+		addVariant(result, line.replaceFirst(" ", "\t"));
+		addVariant(result, line.replaceFirst("\t", " "));
+		addVariant(result, line.replaceFirst(" ", "  "));
+		addVariant(result, line.replaceFirst(":", ""));
+		addVariant(result, line.replaceFirst(":", ": "));
+		addVariant(result, line.replaceFirst("[0-9]", "x"));
+		addVariant(result, line.replaceFirst("[0-9]+", "99999999999"));
+		addVariant(result, line.replaceFirst(" [^ ]*$", ""));
+		addVariant(result, line + "  ");
+		return result;
+	}
+
+	private static void addVariant(List<String> variants, String line) {
+		String trimmed = line.trim();
+		if (!trimmed.isEmpty() && !variants.contains(trimmed)) {
+			variants.add(trimmed);
+		}
+	}
+
+	/**
+	 * Parses a line in a fresh document, returns a description of the annotations, messages and exception.
+	 */
+	private static String parse(AnnotationLineParser parser, String contents, boolean input, Location location, String line) {
+		Corpus corpus = new Corpus();
+		Document doc = new Document(corpus, "doc", contents);
+		AnnotationSet aset = input ? doc.getInputAnnotationSet() : doc.getReferenceAnnotationSet();
+		CheckLogger logger = new CheckLogger();
+		StringBuilder sb = new StringBuilder();
+		try {
+			parser.parseAnnotation(logger, aset, location, line);
+		}
+		catch (RuntimeException e) {
+			sb.append("exception ");
+			sb.append(e.toString());
+			sb.append("; ");
+		}
+		for (CheckMessage msg : logger.getMessages()) {
+			sb.append(msg.getCompleteMessage());
+			sb.append("; ");
+		}
+		for (Annotation ann : aset.getAnnotations()) {
+			sb.append(ann.getKind());
+			sb.append(' ');
+			sb.append(ann.getId());
+			sb.append(' ');
+			sb.append(ann.getType());
+			ann.accept(AnnotationDescriber.INSTANCE, sb);
+			sb.append("; ");
+		}
+		sb.append(doc.getEquivalences().size());
+		sb.append(" equivalences");
+		return sb.toString();
+	}
+
+	private static enum AnnotationDescriber implements AnnotationVisitor<Void,StringBuilder> {
+		INSTANCE;
+
+		@Override
+		public Void visit(TextBound textBound, StringBuilder param) {
+			for (ImmutableFragment frag : textBound.getFragments()) {
+				param.append(' ');
+				param.append(frag.getStart());
+				param.append('-');
+				param.append(frag.getEnd());
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(Relation relation, StringBuilder param) {
+			param.append(' ');
+			param.append(new TreeMap<String,String>(relation.getArgumentReferences()));
+			return null;
+		}
+
+		@Override
+		public Void visit(Normalization normalization, StringBuilder param) {
+			param.append(' ');
+			param.append(normalization.getAnnotationReference());
+			param.append(' ');
+			param.append(normalization.getReferent());
+			return null;
+		}
+
+		@Override
+		public Void visit(Modifier modifier, StringBuilder param) {
+			param.append(' ');
+			param.append(modifier.getAnnotationReference());
+			return null;
+		}
+
+		@Override
+		public Void visit(DummyAnnotation dummy, StringBuilder param) {
+			return null;
+		}
+	}
+}
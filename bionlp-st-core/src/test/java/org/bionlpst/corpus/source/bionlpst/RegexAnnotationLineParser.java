@@ -0,0 +1,142 @@
+package org.bionlpst.corpus.source.bionlpst;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bionlpst.corpus.AnnotationSet;
+import org.bionlpst.corpus.DummyAnnotation;
+import org.bionlpst.corpus.Modifier;
+import org.bionlpst.corpus.Normalization;
+import org.bionlpst.corpus.Relation;
+import org.bionlpst.corpus.TextBound;
+import org.bionlpst.util.Location;
+import org.bionlpst.util.Util;
+import org.bionlpst.util.fragment.ImmutableFragment;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * Annotation line parser based on regular expressions.
+ * Kept as the reference for ScannerAnnotationLineParser in AnnotationLineParserRegressionTest.
+ * @author rbossy
+ *
+ */
+public class RegexAnnotationLineParser extends AnnotationLineParser {
+	public static final RegexAnnotationLineParser INSTANCE = new RegexAnnotationLineParser();
+
+	private RegexAnnotationLineParser() {
+		super();
+	}
+
+	private static Pattern TEXT_BOUND_PARSER = Pattern.compile("(?<type>\\S+) (?<fragments>\\d+ \\d+(?:;\\d+ \\d+)*)\t(?<control>.*)");
+
+	@Override
+	protected void parseTextBound(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		Matcher m = TEXT_BOUND_PARSER.matcher(rest);
+		if (!m.matches()) {
+			logger.serious(location, "ill formed text-bound annotation: '" + rest + "'");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = m.group("type");
+		String sFragments = m.group("fragments");
+		List<ImmutableFragment> fragments = parseFragments(sFragments);
+		new TextBound(logger, aset, location, id, type, fragments);
+	}
+
+	private static List<ImmutableFragment> parseFragments(String sFragments) {
+		List<ImmutableFragment> result = new ArrayList<ImmutableFragment>();
+		for (String sFrag : Util.split(sFragments, ';')) {
+			ImmutableFragment frag = parseFragment(sFrag);
+			result.add(frag);
+		}
+		return result;
+	}
+
+	private static ImmutableFragment parseFragment(String sFrag) {
+		int space = sFrag.indexOf(' ');
+		int start = Integer.parseInt(sFrag.substring(0, space));
+		int end = Integer.parseInt(sFrag.substring(space+1));
+		return new ImmutableFragment(start, end);
+	}
+
+	private static Pattern RELATION_PARSER = Pattern.compile("(?<type>\\S+) (?<args>.+)");
+	
+	@Override
+	protected void parseRelation(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		Matcher m = RELATION_PARSER.matcher(rest);
+		if (!m.matches()) {
+			logger.serious(location, "ill formed relation, expected type and arguments: '" + rest + "'");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = m.group("type");
+		String sArgs = m.group("args");
+		Map<String,String> args = parseArgs(logger, location, sArgs);
+		new Relation(logger, aset, location, id, type, args);
+	}
+
+	private static Pattern ARGUMENT_PARSER = Pattern.compile("\\s*(?<role>[^:]+):(?<ref>\\S+)\\s*");
+ 
+	private static Map<String,String> parseArgs(CheckLogger logger, Location location, String sArgs) {
+		Map<String,String> result = new LinkedHashMap<String,String>();
+		Matcher m = ARGUMENT_PARSER.matcher(sArgs);
+		while (m.find()) {
+			String role = m.group("role");
+			String ref = m.group("ref");
+			if (result.containsKey(role)) {
+				logger.suspicious(location, "duplicate argument: " + role);
+			}
+			result.put(role, ref);
+		}
+		if (result.isEmpty()) {
+			logger.serious(location, "no arguments");
+		}
+		return result;
+	}
+
+	private static final Pattern NORMALIZATION_PARSER = Pattern.compile("(?<type>\\S+) Annotation:(?<ann>\\S+) Referent:(?<ref>\\S+)");
+	
+	@Override
+	protected void parseNormalization(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		Matcher m = NORMALIZATION_PARSER.matcher(rest);
+		if (!m.matches()) {
+			logger.serious(location, "ill formed normalization, expected type, Annotation and Referent");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = m.group("type");
+		String annRef = m.group("ann");
+		String dbRef = m.group("ref");
+		new Normalization(logger, aset, location, id, type, annRef, dbRef);
+	}
+
+	private static final Pattern MODIFIER_PARSER = Pattern.compile("(?<type>\\S+) Annotation:(?<ann>\\S+)");
+
+	@Override
+	protected void parseModifier(CheckLogger logger, AnnotationSet aset, Location location, String id, String rest) {
+		Matcher m = MODIFIER_PARSER.matcher(rest);
+		if (!m.matches()) {
+			logger.serious(location, "ill formed modfier, expected type and Annotation");
+			new DummyAnnotation(logger, aset, location, id, getDummyType(rest));
+			return;
+		}
+		String type = m.group("type");
+		String annRef = m.group("ann");
+		new Modifier(logger, aset, location, id, type, annRef);
+	}
+	
+	private static final Pattern DUMMY_TYPE_PARSER = Pattern.compile("(?<type>\\S+)\\s*.*");
+
+	@Override
+	protected String getDummyType(String rest) {
+		Matcher m = DUMMY_TYPE_PARSER.matcher(rest);
+		if (m.matches()) {
+			return m.group("type");
+		}
+		return DummyAnnotation.DUMMY_TYPE;
+	}
+}
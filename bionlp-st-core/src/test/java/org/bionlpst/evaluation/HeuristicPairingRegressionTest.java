@@ -0,0 +1,82 @@
+package org.bionlpst.evaluation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.bionlpst.app.Task;
+import org.bionlpst.corpus.Annotation;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.corpus.Document;
+import org.bionlpst.evaluation.similarity.Similarity;
+import org.bionlpst.util.message.CheckLogger;
+import org.junit.Test;
+
+/**
+ * Checks that HeuristicPairing yields exactly the same pairs, in the same order, as ReferenceHeuristicPairing.
+ * Reference annotations of the bundled corpora are paired against three variants of themselves: identical, every third annotation removed, and reversed.
+ * @author rbossy
+ *
+ */
+public class HeuristicPairingRegressionTest {
+	@Test
+	public void testBundledCorpora() throws Exception {
+		int documents = 0;
+		for (Task task : new TreeMap<String,Task>(Task.loadTasks()).values()) {
+			documents += check(task, "train");
+			documents += check(task, "dev");
+			if (task.hasTest() && task.isTestHasReferenceAnnotations()) {
+				documents += check(task, "test");
+			}
+		}
+		assertTrue("no document checked", documents > 0);
+	}
+
+	private static int check(Task task, String set) throws Exception {
+		CheckLogger logger = new CheckLogger();
+		Corpus corpus = task.getCorpus(logger, set, null);
+		corpus.resolveReferences(logger);
+		int result = 0;
+		for (AnnotationEvaluation eval : task.getEvaluations()) {
+			if (eval.isInputIteration()) {
+				continue;
+			}
+			for (Document doc : corpus.getDocuments()) {
+				String name = task.getName() + "/" + set + "/" + doc.getId() + ": " + eval.getName();
+				List<Annotation> reference = new ArrayList<Annotation>(doc.getReferenceAnnotationSet().getAnnotations(eval.getPreFilter()));
+				for (List<Annotation> prediction : getPredictionVariants(reference)) {
+					check(name, eval.getMatchingSimilarity(), reference, prediction, null);
+					check(name + " (blocking)", eval.getMatchingSimilarity(), reference, prediction, TextBoundBlocking.INSTANCE);
+				}
+				result++;
+			}
+		}
+		return result;
+	}
+
+	private static List<List<Annotation>> getPredictionVariants(List<Annotation> reference) {
+		List<List<Annotation>> result = new ArrayList<List<Annotation>>(3);
+		result.add(reference);
+		List<Annotation> removed = new ArrayList<Annotation>(reference.size());
+		for (int i = 0; i < reference.size(); ++i) {
+			if (i % 3 != 0) {
+				removed.add(reference.get(i));
+			}
+		}
+		result.add(removed);
+		List<Annotation> reversed = new ArrayList<Annotation>(reference);
+		Collections.reverse(reversed);
+		result.add(reversed);
+		return result;
+	}
+
+	private static void check(String name, Similarity<Annotation> similarity, List<Annotation> reference, List<Annotation> prediction, Blocking<Annotation> blocking) {
+		List<Pair<Annotation>> expected = new ReferenceHeuristicPairing<Annotation>(blocking).bestPairing(reference, prediction, similarity);
+		List<Pair<Annotation>> actual = new HeuristicPairing<Annotation>(blocking).bestPairing(reference, prediction, similarity);
+		assertEquals(name, expected, actual);
+	}
+}
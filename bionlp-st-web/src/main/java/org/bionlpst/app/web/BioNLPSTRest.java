@@ -1,16 +1,17 @@
 package org.bionlpst.app.web;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.net.InetAddress;
+import java.io.Writer;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
-import java.net.UnknownHostException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -20,9 +21,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Random;
 
+import javax.servlet.ServletContext;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -31,13 +32,23 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.bionlpst.BioNLPSTException;
 import org.bionlpst.app.Task;
+import org.bionlpst.app.TaskRegistry;
 import org.bionlpst.app.web.json.CheckMessageJsonConverter;
 import org.bionlpst.app.web.json.EvaluationResultJsonConverter;
 import org.bionlpst.app.web.json.JsonConverter;
+import org.bionlpst.app.web.json.JsonStreamWriter;
 import org.bionlpst.app.web.json.ListJsonConverter;
 import org.bionlpst.app.web.json.TaskJsonConverter;
 import org.bionlpst.corpus.Annotation;
@@ -55,19 +66,25 @@ import org.bionlpst.evaluation.MeasureResult;
 import org.bionlpst.evaluation.ScoringResult;
 import org.bionlpst.util.Location;
 import org.bionlpst.util.Util;
-import org.bionlpst.util.message.CheckLogger;
 import org.bionlpst.util.message.CheckMessageLevel;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
-import org.h2.tools.RunScript;
 
 import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.multipart.FormDataParam;
+import com.sun.jersey.spi.resource.Singleton;
 
+/**
+ * REST evaluation service.
+ * A single instance serves all requests, application-scoped state is held by BioNLPSTService and per-request state by RequestState.
+ * @author rbossy
+ *
+ */
 @Path("")
+@Singleton
 public class BioNLPSTRest {
-	private static final Location REST_URL_LOCATION = new Location("Request URL", 0);
+	static final Location REST_URL_LOCATION = new Location("Request URL", 0);
 	private static final String[] TEAM_PSEUDONYMS = new String[] {
 		"A",
 		"B",
@@ -85,63 +102,22 @@ public class BioNLPSTRest {
 		"N",
 	};
 	
-	private final Map<String,Task> taskMap;
-	private final CheckLogger logger = new CheckLogger();
-	private final String checkGoogleTokenURL;
-	private final String databasePath;
-	private final String superuser;
-	private Task task = null;
-	private Corpus corpus = null;
-	private String dataset = null;
-	private BootstrapConfig bootstrapConfig = null;
-	private String userGID = null;
-	private String username = null;
-	private String email = null;
-
-	public BioNLPSTRest() throws Exception {
+	@Context
+	private ServletContext servletContext;
+
+	public BioNLPSTRest() {
 		super();
-		ClassLoader classLoader = getClass().getClassLoader();
-		taskMap = Task.loadTasks(classLoader);
-		try (InputStream is = getPropertiesResourcesAsStream(classLoader)) {
-			Properties props = new Properties();
-			props.load(is);
-			checkGoogleTokenURL = props.getProperty("checkGoogleTokenURL");
-			databasePath = props.getProperty("databasePath");
-			superuser = props.getProperty("superuser");
-		}
 	}
-	
-	private static InputStream getPropertiesResourcesAsStream(ClassLoader classLoader) throws UnknownHostException {
-		String user = System.getenv("USER");
-		String host = System.getenv("HOSTNAME");
-		if (host == null) {
-			host = InetAddress.getLocalHost().getHostName();
-		}
-		for (String name : getPropertiesResourceNames(user, host)) {
-			String resName = "org/bionlpst/app/web/" + name + ".properties";
-			InputStream result = classLoader.getResourceAsStream(resName);
-			if (result != null) {
-				return result;
-			}
-		}
-		throw new RuntimeException();
-	}
-	
-	private static String[] getPropertiesResourceNames(String user, String host) {
-		return new String[] {
-			user + "@" + host,
-			host,
-			user,
-			"default",
-			"rest"
-		};
+
+	private BioNLPSTService getService() {
+		return BioNLPSTService.get(servletContext);
 	}
-	
+
 	@GET
 	@Path("list-tasks")
 	@Produces(MediaType.APPLICATION_JSON)
 	public String listTasks() throws Exception {
-		JSONArray result = ListJsonConverter.convert(TaskJsonConverter.INSTANCE, taskMap.values());
+		JSONArray result = ListJsonConverter.convert(TaskJsonConverter.INSTANCE, getService().getTaskRegistry().getSummaries());
 		return result.toString(4);
 	}
 	
@@ -158,81 +134,88 @@ public class BioNLPSTRest {
 		if ("traindev".equals(set)) {
 			set = "train+dev";
 		}
-		start(taskName, set, zipStream, zipInfo, null, null);
-		return finish(new JSONObject());
+		RequestState req = new RequestState();
+		start(getService(), req, taskName, set, zipStream, zipInfo.getFileName(), null, null);
+		return finish(req, new JSONObject());
 	}
 	
-	private void start(String taskName, String set, InputStream zipStream, FormDataContentDisposition zipInfo, Integer resamples, Long seed) throws BioNLPSTException, IOException {
-		task = selectTask(taskName);
-		corpus = loadReference(set);
-		dataset = set;
-		loadAndCheckPredictions(zipStream, zipInfo);
-		task.getCorpusPostprocessing().postprocess(corpus);
-		bootstrapConfig = getBootstrapConfig(resamples, seed);
+	private static void start(BioNLPSTService service, RequestState req, String taskName, String set, InputStream zipStream, String fileName, Integer resamples, Long seed) throws BioNLPSTException, IOException {
+		req.task = selectTask(service, req, taskName);
+		req.setStage("loading reference");
+		req.corpus = loadReference(service, req, set);
+		req.dataset = set;
+		req.setStage("checking predictions");
+		loadAndCheckPredictions(req, zipStream, fileName);
+		req.task.getCorpusPostprocessing().postprocess(req.corpus);
+		req.bootstrapConfig = getBootstrapConfig(service, resamples, seed);
 	}
 
-	private static BootstrapConfig getBootstrapConfig(Integer resamples, Long seed) {
+	private static BootstrapConfig getBootstrapConfig(BioNLPSTService service, Integer resamples, Long seed) {
 		if (resamples == null || resamples == 0) {
 			return null;
 		}
-		Random random = seed == null ? new Random() : new Random(seed);
-		return new BootstrapConfig(random, resamples);
+		long s = seed == null ? new Random().nextLong() : seed;
+		return new BootstrapConfig(s, resamples, service.getWorkerExecutor());
 	}
 	
-	private Task selectTask(String taskName) {
-		if (taskMap.containsKey(taskName)) {
-			return taskMap.get(taskName);
+	private static Task selectTask(BioNLPSTService service, RequestState req, String taskName) {
+		TaskRegistry taskRegistry = service.getTaskRegistry();
+		if (taskRegistry.hasTask(taskName)) {
+			return taskRegistry.getTask(taskName);
 		}
-		logger.serious(REST_URL_LOCATION, "unknown task: " +taskName);
+		req.logger.serious(REST_URL_LOCATION, "unknown task: " +taskName);
 		return null;
 	}
 	
-	private Corpus loadReference(String set) throws BioNLPSTException, IOException {
-		if (task == null) {
+	private static Corpus loadReference(BioNLPSTService service, RequestState req, String set) throws BioNLPSTException, IOException {
+		if (req.task == null) {
 			return null;
 		}
-		switch (set) {
-			case "train": return task.getTrainCorpus(logger);
-			case "dev": return task.getDevCorpus(logger);
-			case "train+dev": return task.getTrainAndDevCorpus(logger);
-			case "test": {
-				if (!task.hasTest()) {
-					logger.serious(REST_URL_LOCATION, "test set is not available for " + task.getName());
-					return null;
-				}
-				return task.getTestCorpus(logger);
-			}
-			default: {
-				throw new RuntimeException("unknown set: " + set);
-			}
+		if ("test".equals(set) && !req.task.hasTest()) {
+			req.logger.serious(REST_URL_LOCATION, "test set is not available for " + req.task.getName());
+			return null;
 		}
+		return service.getReferenceCache().getCorpus(req.logger, req.task, set, service.getWorkerExecutor());
 	}
 	
-	private void loadAndCheckPredictions(InputStream zipStream, FormDataContentDisposition zipInfo) throws BioNLPSTException, IOException {
-		if (task == null || corpus == null) {
+	private static void loadAndCheckPredictions(RequestState req, InputStream zipStream, String fileName) throws BioNLPSTException, IOException {
+		if (req.task == null || req.corpus == null) {
 			return;
 		}
-		InputStreamCollection predictionInputStreamCollection = new ZipFileUploadInputStreamCollection(zipStream, zipInfo.getFileName());
+		InputStreamCollection predictionInputStreamCollection = new ZipFileUploadInputStreamCollection(zipStream, fileName);
 		PredictionSource predictionParser = new BioNLPSTSource(predictionInputStreamCollection);
-		predictionParser.fillPredictions(logger, corpus);
-		corpus.resolveReferences(logger);
-		Task.checkParsedPredictions(logger, corpus, zipInfo.getFileName());
-		task.checkSchema(logger, corpus);
+		predictionParser.fillPredictions(req.logger, req.corpus);
+		req.corpus.resolveReferences(req.logger);
+		Task.checkParsedPredictions(req.logger, req.corpus, fileName);
+		req.task.checkSchema(req.logger, req.corpus);
 	}
 	
-	private String finish(JSONObject result) throws Exception {
-		result.put("messages", ListJsonConverter.convert(CheckMessageJsonConverter.INSTANCE, logger.getMessages()));
-		CheckMessageLevel level = logger.getHighestLevel();
+	static String finish(RequestState req, JSONObject result) throws Exception {
+		result.put("messages", ListJsonConverter.convert(CheckMessageJsonConverter.INSTANCE, req.logger.getMessages()));
+		CheckMessageLevel level = req.logger.getHighestLevel();
 		result.put("highest-message-level", level);
 		result.put("success", level == null || level == CheckMessageLevel.INFORMATION);
 		return result.toString(4);
 	}
 
+	/**
+	 * Writes the messages and closes the response object, same as finish(RequestState, JSONObject).
+	 */
+	private static void finish(RequestState req, JsonStreamWriter json) throws Exception {
+		json.key("messages").values(CheckMessageJsonConverter.INSTANCE, req.logger.getMessages());
+		CheckMessageLevel level = req.logger.getHighestLevel();
+		if (level != null) {
+			json.key("highest-message-level").value(level);
+		}
+		json.key("success").value(level == null || level == CheckMessageLevel.INFORMATION);
+		json.endObject();
+	}
+
 	@POST
 	@Path("task/{taskName}/{set:train|dev|traindev|test}/evaluate")
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
 	@Produces(MediaType.APPLICATION_JSON)
-	public String evaluateSubmission(
+	public Response evaluateSubmission(
 			@PathParam("taskName") String taskName,
 			@PathParam("set") String set,
 			@FormDataParam("zipfile") InputStream zipStream,
@@ -242,24 +225,179 @@ public class BioNLPSTRest {
 			@FormDataParam("resamples") @DefaultValue("0") Integer resamples,
 			@FormDataParam("token") @DefaultValue("") String token
 			) throws Exception {
-		checkToken(token);
+		final RequestState req = new RequestState();
+		checkToken(req, token);
 		if ("traindev".equals(set)) {
 			set = "train+dev";
 		}
-		start(taskName, set, zipStream, zipInfo, resamples, null);
+		final BioNLPSTService service = getService();
+		start(service, req, taskName, set, zipStream, zipInfo.getFileName(), resamples, null);
+		final String dataset = set;
+		final boolean detailedEvaluation = detailed;
+		final boolean alternateEvaluation = alternate;
+		StreamingOutput output = new StreamingOutput() {
+			@Override
+			public void write(OutputStream out) throws IOException {
+				Writer w = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+				try {
+					writeEvaluation(service, req, dataset, detailedEvaluation, alternateEvaluation, w);
+				}
+				catch (IOException|RuntimeException e) {
+					throw e;
+				}
+				catch (Exception e) {
+					throw new WebApplicationException(e);
+				}
+			}
+		};
+		return Response.ok(output).build();
+	}
+
+	@POST
+	@Path("task/{taskName}/{set:train|dev|traindev|test}/evaluate-async")
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(MediaType.APPLICATION_JSON)
+	public String evaluateSubmissionAsync(
+			@PathParam("taskName") String taskName,
+			@PathParam("set") String set,
+			@FormDataParam("zipfile") InputStream zipStream,
+			@FormDataParam("zipfile") FormDataContentDisposition zipInfo,
+			@FormDataParam("detailed") @DefaultValue("false") Boolean detailed,
+			@FormDataParam("alternate") @DefaultValue("true") Boolean alternate,
+			@FormDataParam("resamples") @DefaultValue("0") Integer resamples,
+			@FormDataParam("token") @DefaultValue("") String token
+			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		if (task != null && corpus != null) {
-			result.put("evaluation", doEvaluation(task, set, corpus, detailed, alternate));
+		BioNLPSTService service = getService();
+		if (!service.getTaskRegistry().hasTask(taskName)) {
+			req.logger.serious(REST_URL_LOCATION, "unknown task: " +taskName);
+			return finish(req, result);
+		}
+		try {
+			checkToken(req, token);
+			if ("traindev".equals(set)) {
+				set = "train+dev";
+			}
+			byte[] predictions = Util.readWholeBytes(zipStream);
+			long jobId = service.getJobQueue().submit(req, taskName, set, predictions, zipInfo.getFileName(), detailed, alternate, resamples);
+			result.put("job", jobId);
+		}
+		catch (Exception e) {
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+		}
+		return finish(req, result);
+	}
+
+	@GET
+	@Path("job/{job:\\d+}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public String getJobStatus(
+			@PathParam("job") long jobId,
+			@QueryParam("token") @DefaultValue("") String token
+			) throws Exception {
+		RequestState req = new RequestState();
+		JSONObject result = new JSONObject();
+		BioNLPSTService service = getService();
+		try (Connection conn = service.connectDatabase()) {
+			checkToken(req, token);
+			JSONObject job = service.getJobQueue().getStatus(conn, jobId, req.userGID);
+			if (job == null) {
+				req.logger.serious(REST_URL_LOCATION, "unknown job: " + jobId);
+			}
+			else {
+				result.put("job", job);
+			}
+		}
+		catch (Exception e) {
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+		}
+		return finish(req, result);
+	}
+
+	@GET
+	@Path("job/{job:\\d+}/result")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getJobResult(
+			@PathParam("job") final long jobId,
+			@QueryParam("token") @DefaultValue("") String token
+			) throws Exception {
+		final RequestState req = new RequestState();
+		final BioNLPSTService service = getService();
+		try (Connection conn = service.connectDatabase()) {
+			checkToken(req, token);
+			JSONObject job = service.getJobQueue().getStatus(conn, jobId, req.userGID);
+			if (job == null) {
+				req.logger.serious(REST_URL_LOCATION, "unknown job: " + jobId);
+			}
+			else {
+				String status = job.getString("status");
+				if (EvaluationJobQueue.DONE.equals(status) || EvaluationJobQueue.FAILED.equals(status)) {
+					StreamingOutput output = new StreamingOutput() {
+						@Override
+						public void write(OutputStream out) throws IOException {
+							try (Connection conn = service.connectDatabase()) {
+								Writer w = new OutputStreamWriter(out, "UTF-8");
+								if (!service.getJobQueue().writeResult(conn, jobId, req.userGID, w)) {
+									throw new BioNLPSTException("job result disappeared: " + jobId);
+								}
+							}
+							catch (SQLException e) {
+								throw new IOException(e);
+							}
+						}
+					};
+					return Response.ok(output).build();
+				}
+				req.logger.serious(REST_URL_LOCATION, "job is not finished: " + jobId + " (" + status + ")");
+			}
+		}
+		catch (Exception e) {
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return Response.ok(finish(req, new JSONObject())).build();
 	}
 
-	private void checkToken(String token) throws IOException, JSONException {
+	/**
+	 * Evaluates a submission, stores its results and writes the response.
+	 * Called in job threads by EvaluationJobQueue.
+	 */
+	static void evaluate(BioNLPSTService service, RequestState req, String taskName, String set, InputStream zipStream, String fileName, boolean detailed, boolean alternate, Integer resamples, Writer out) throws Exception {
+		start(service, req, taskName, set, zipStream, fileName, resamples, null);
+		writeEvaluation(service, req, set, detailed, alternate, out);
+	}
+
+	/**
+	 * Evaluates a loaded submission, stores its results and writes the response.
+	 * The response is written as it is computed: the detailed evaluation of each document is written and flushed before the next document is evaluated.
+	 * Messages are written last since evaluation may add messages.
+	 * Errors during evaluation are reported as messages, since the response may already be committed.
+	 */
+	private static void writeEvaluation(BioNLPSTService service, RequestState req, String set, boolean detailed, boolean alternate, Writer out) throws Exception {
+		JsonStreamWriter json = new JsonStreamWriter(out, 4);
+		json.beginObject();
+		int depth = json.getDepth();
+		try {
+			if (req.task != null && req.corpus != null) {
+				json.key("evaluation");
+				doEvaluation(service, req, set, detailed, alternate, json);
+			}
+		}
+		catch (Exception e) {
+			req.error = e;
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			json.closeTo(depth);
+		}
+		finish(req, json);
+		json.flush();
+	}
+
+	private void checkToken(RequestState req, String token) throws IOException, JSONException {
 		if (token.isEmpty()) {
 			return;
 		}
 //		System.err.println("token = " + token);
-		URL url = new URL(checkGoogleTokenURL + "?id_token=" + URLEncoder.encode(token, "UTF-8"));
+		URL url = new URL(getService().getCheckGoogleTokenURL() + "?id_token=" + URLEncoder.encode(token, "UTF-8"));
 		URLConnection conn = url.openConnection();
 		String enc = conn.getContentEncoding();
 		if (enc == null) {
@@ -270,20 +408,20 @@ public class BioNLPSTRest {
 			String s = Util.readWholeStream(r);
 			JSONObject json = new JSONObject(s.toString());
 			if (json.has("sub")) {
-				userGID = json.getString("sub");
+				req.userGID = json.getString("sub");
 //				System.err.println("userGID = " + userGID);
 				if (json.has("name")) {
-					username = json.getString("name");
+					req.username = json.getString("name");
 				}
 				else {
-					username = "Anonymous";
+					req.username = "Anonymous";
 				}
 				if (json.has("email")) {
-					email = json.getString("email");
+					req.email = json.getString("email");
 //					System.err.println("email = " + email);
 				}
 				else {
-					email = "";
+					req.email = "";
 				}
 			}
 		}
@@ -306,33 +444,54 @@ public class BioNLPSTRest {
 //					 "kid": "..."
 //					}
 	
-	private JSONObject doEvaluation(Task task, String set, Corpus corpus, boolean detailed, boolean alternate) throws Exception {
-		if (set.equals("test") && !task.isTestHasReferenceAnnotations()) {
-			logger.serious(REST_URL_LOCATION, "test set has no reference annotations for " + task.getName());
-			return new JSONObject();
+	private static void doEvaluation(BioNLPSTService service, RequestState req, String set, boolean detailed, boolean alternate, JsonStreamWriter json) throws Exception {
+		json.beginObject();
+		if (set.equals("test") && !req.task.isTestHasReferenceAnnotations()) {
+			req.logger.serious(REST_URL_LOCATION, "test set has no reference annotations for " + req.task.getName());
+			json.endObject();
+			return;
 		}
-		JSONObject result = new JSONObject();
 		if (detailed) {
-			DocumentJsonConverter converter = new DocumentJsonConverter(alternate);
-			result.put("detail", ListJsonConverter.convert(converter, corpus.getDocuments()));
+			req.setStage("detailed evaluation");
+			req.documentsTotal = req.corpus.getDocuments().size();
+			DocumentJsonConverter converter = new DocumentJsonConverter(req, alternate);
+			json.key("detail").beginArray();
+			for (Document doc : req.corpus.getDocuments()) {
+				json.value(converter.convert(doc));
+				json.flush();
+			}
+			json.endArray();
 		}
+		req.setStage("evaluation");
 		JsonConverter<EvaluationResult<Annotation>> converter = new EvaluationResultJsonConverter(false);
-		List<EvaluationResult<Annotation>> evaluationResults = getEvaluationResults(task, alternate, corpus, false, bootstrapConfig);
-		try (Connection conn = connectDatabase()) {
-			long submissionId = storeSubmission(conn);
-			storeSubmissionResults(conn, submissionId, evaluationResults);
-			result.put("submission-id", submissionId);
+		List<EvaluationResult<Annotation>> evaluationResults = getEvaluationResults(req, alternate, req.corpus, false);
+		if (req.submissionId == null) {
+			req.setStage("storing results");
+			try (Connection conn = service.connectDatabase()) {
+				conn.setAutoCommit(false);
+				long submissionId = storeSubmission(req, conn);
+				storeSubmissionResults(conn, submissionId, evaluationResults);
+				if (req.jobId != null) {
+					EvaluationJobQueue.setSubmissionId(conn, req.jobId, submissionId);
+				}
+				conn.commit();
+				req.submissionId = submissionId;
+			}
+			service.getLeaderboardCache().invalidate(req.task.getName());
 		}
-		result.put("global-evaluations", ListJsonConverter.convert(converter, evaluationResults));
-		return result;
+		json.key("submission-id").value(req.submissionId);
+		json.key("global-evaluations").value(ListJsonConverter.convert(converter, evaluationResults));
+		json.endObject();
 	}
 
-	private class DocumentJsonConverter implements JsonConverter<Document> {
+	private static class DocumentJsonConverter implements JsonConverter<Document> {
+		private final RequestState req;
 		private final boolean alternate;
 		private final JsonConverter<EvaluationResult<Annotation>> converter = new EvaluationResultJsonConverter(true);
 		
-		private DocumentJsonConverter(boolean alternate) {
+		private DocumentJsonConverter(RequestState req, boolean alternate) {
 			super();
+			this.req = req;
 			this.alternate = alternate;
 		}
 
@@ -340,17 +499,18 @@ public class BioNLPSTRest {
 		public JSONObject convert(Document doc) throws Exception {
 			JSONObject result = new JSONObject();
 			result.put("document", doc.getId());
-			result.put("evaluations", ListJsonConverter.convert(converter, getEvaluationResults(task, alternate, doc, true, bootstrapConfig)));
+			result.put("evaluations", ListJsonConverter.convert(converter, getEvaluationResults(req, alternate, doc, true)));
+			req.documentsDone++;
 			return result;
 		}
 	}
 
-	private List<EvaluationResult<Annotation>> getEvaluationResults(Task task, boolean alternate, DocumentCollection documentCollection, boolean pairs, BootstrapConfig bootstrap) {
+	private static List<EvaluationResult<Annotation>> getEvaluationResults(RequestState req, boolean alternate, DocumentCollection documentCollection, boolean pairs) {
 		if (alternate) {
-			Map<String,EvaluationResult<Annotation>> evaluationResultMap = task.evaluate(logger, documentCollection, pairs, bootstrap);
+			Map<String,EvaluationResult<Annotation>> evaluationResultMap = req.task.evaluate(req.logger, documentCollection, pairs, req.bootstrapConfig);
 			return new ArrayList<EvaluationResult<Annotation>>(evaluationResultMap.values());
 		}
-		EvaluationResult<Annotation> evaluationResult = task.evaluateMain(logger, documentCollection, pairs, bootstrap);
+		EvaluationResult<Annotation> evaluationResult = req.task.evaluateMain(req.logger, documentCollection, pairs, req.bootstrapConfig);
 		return Collections.singletonList(evaluationResult);
 	}
 	
@@ -358,7 +518,7 @@ public class BioNLPSTRest {
 	@Path("run")
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
 	@Produces(MediaType.TEXT_HTML)
-	public String run(
+	public Response run(
 			@FormDataParam("zipfile") InputStream zipStream,
 			@FormDataParam("zipfile") FormDataContentDisposition zipInfo,
 			@FormDataParam("taskName") String taskName,
@@ -370,7 +530,7 @@ public class BioNLPSTRest {
 			@FormDataParam("token") @DefaultValue("") String token
 			) throws Exception {
 		switch (action) {
-			case "check": return checkSubmission(taskName, set, zipStream, zipInfo);
+			case "check": return Response.ok(checkSubmission(taskName, set, zipStream, zipInfo)).build();
 			case "evaluate": return evaluateSubmission(taskName, set, zipStream, zipInfo, detailed, alternate, resamples, token);
 			default: throw new BioNLPSTException("unknown action: " + action);
 		}
@@ -383,21 +543,24 @@ public class BioNLPSTRest {
 			@PathParam("submission") @DefaultValue("") long submissionId,
 			@QueryParam("token") @DefaultValue("") String token
 			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		try (Connection conn = connectDatabase()) {
-			checkToken(token);
-			checkSubmissionOwnership(conn, submissionId);
-			PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET user_gid = ?, user_name = ?, email = ? WHERE id = ?");
-			stmt.setString(1, userGID);
-			stmt.setString(2, username);
-			stmt.setString(3, email);
-			stmt.setLong(4, submissionId);
-			stmt.executeUpdate();
+		try (Connection conn = getService().connectDatabase()) {
+			checkToken(req, token);
+			checkSubmissionOwnership(req, conn, submissionId);
+			try (PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET user_gid = ?, user_name = ?, email = ? WHERE id = ?")) {
+				stmt.setString(1, req.userGID);
+				stmt.setString(2, req.username);
+				stmt.setString(3, req.email);
+				stmt.setLong(4, submissionId);
+				stmt.executeUpdate();
+			}
+			getService().getLeaderboardCache().invalidateSubmission(submissionId);
 		}
 		catch (Exception e) {
-			logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return finish(req, result);
 	}
 
 	@GET
@@ -409,19 +572,22 @@ public class BioNLPSTRest {
 			@PathParam("priv") Boolean priv,
 			@QueryParam("token") @DefaultValue("") String token
 			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		try (Connection conn = connectDatabase()) {
-			checkToken(token);
-			checkSubmissionOwnership(conn, submissionId);
-			PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET private = ? WHERE id = ?");
-			stmt.setBoolean(1, priv);
-			stmt.setLong(2, submissionId);
-			stmt.executeUpdate();
+		try (Connection conn = getService().connectDatabase()) {
+			checkToken(req, token);
+			checkSubmissionOwnership(req, conn, submissionId);
+			try (PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET private = ? WHERE id = ?")) {
+				stmt.setBoolean(1, priv);
+				stmt.setLong(2, submissionId);
+				stmt.executeUpdate();
+			}
+			getService().getLeaderboardCache().invalidateSubmission(submissionId);
 		}
 		catch (Exception e) {
-			logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return finish(req, result);
 	}
 	
 	private static List<Long> getSubmissionIds(String submissionIdsString) {
@@ -440,12 +606,13 @@ public class BioNLPSTRest {
 			@QueryParam("id") @DefaultValue("") String submissionIdsString,
 			@QueryParam("token") @DefaultValue("") String token
 			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		try (Connection conn = connectDatabase()) {
-			checkToken(token);
+		try (Connection conn = getService().connectDatabase()) {
+			checkToken(req, token);
 			List<Long> submissionIds = getSubmissionIds(submissionIdsString);
 			for (long id : submissionIds) {
-				checkSubmissionOwnership(conn, id);
+				checkSubmissionOwnership(req, conn, id);
 			}
 
 			StringBuilder sqlIdsBuilder = new StringBuilder(3 * submissionIds.size());
@@ -453,22 +620,27 @@ public class BioNLPSTRest {
 				sqlIdsBuilder.append(sqlIdsBuilder.length() == 0 ? "?" : ", ?");
 			}
 
-			PreparedStatement stmt = conn.prepareStatement("DELETE FROM measure WHERE ref_submission IN (" + sqlIdsBuilder + ")");
-			for (int i = 0; i < submissionIds.size(); ++i) {
-				stmt.setLong(i+1, submissionIds.get(i));
+			try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM measure WHERE ref_submission IN (" + sqlIdsBuilder + ")")) {
+				for (int i = 0; i < submissionIds.size(); ++i) {
+					stmt.setLong(i+1, submissionIds.get(i));
+				}
+				stmt.executeUpdate();
 			}
-			stmt.executeUpdate();
 
-			stmt = conn.prepareStatement("DELETE FROM submission WHERE id IN (" + sqlIdsBuilder + ")");
-			for (int i = 0; i < submissionIds.size(); ++i) {
-				stmt.setLong(i+1, submissionIds.get(i));
+			try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM submission WHERE id IN (" + sqlIdsBuilder + ")")) {
+				for (int i = 0; i < submissionIds.size(); ++i) {
+					stmt.setLong(i+1, submissionIds.get(i));
+				}
+				stmt.executeUpdate();
+			}
+			for (long id : submissionIds) {
+				getService().getLeaderboardCache().invalidateSubmission(id);
 			}
-			stmt.executeUpdate();
 		}
 		catch (Exception e) {
-			logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return finish(req, result);
 	}	
 
 	@GET
@@ -480,28 +652,33 @@ public class BioNLPSTRest {
 			@QueryParam("token") @DefaultValue("") String token,
 			@QueryParam("description") @DefaultValue("") String description
 			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		try (Connection conn = connectDatabase()) {
-			checkToken(token);
-			checkSubmissionOwnership(conn, submissionId);
-			PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET description = ? WHERE id = ?");
-			stmt.setString(1, description);
-			stmt.setLong(2, submissionId);
-			stmt.executeUpdate();
+		try (Connection conn = getService().connectDatabase()) {
+			checkToken(req, token);
+			checkSubmissionOwnership(req, conn, submissionId);
+			try (PreparedStatement stmt = conn.prepareStatement("UPDATE submission SET description = ? WHERE id = ?")) {
+				stmt.setString(1, description);
+				stmt.setLong(2, submissionId);
+				stmt.executeUpdate();
+			}
+			getService().getLeaderboardCache().invalidateSubmission(submissionId);
 		}
 		catch (Exception e) {
-			logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return finish(req, result);
 	}
 	
-	private void checkSubmissionOwnership(Connection conn, long submissionId) throws SQLException {
-		PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM submission WHERE id = ? AND (user_gid = ? OR user_gid = '' OR user_gid IS NULL)");
-		stmt.setLong(1, submissionId);
-		stmt.setString(2, userGID);
-		ResultSet rs = stmt.executeQuery();
-		if (!rs.first()) {
-			throw new BioNLPSTException("user is not owner");
+	private static void checkSubmissionOwnership(RequestState req, Connection conn, long submissionId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM submission WHERE id = ? AND (user_gid = ? OR user_gid = '' OR user_gid IS NULL)")) {
+			stmt.setLong(1, submissionId);
+			stmt.setString(2, req.userGID);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.first()) {
+					throw new BioNLPSTException("user is not owner");
+				}
+			}
 		}
 	}
 
@@ -509,82 +686,74 @@ public class BioNLPSTRest {
 	@Path("task/{taskName}/submissions")
 	@Consumes(MediaType.APPLICATION_FORM_URLENCODED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public String getSubmissions(
+	public Response getSubmissions(
 			@PathParam("taskName") @DefaultValue("") String taskName,
-			@QueryParam("token") @DefaultValue("") String token
+			@QueryParam("token") @DefaultValue("") String token,
+			@Context Request request
 			) throws Exception {
+		RequestState req = new RequestState();
 		JSONObject result = new JSONObject();
-		try (Connection conn = connectDatabase()) {
-			checkToken(token);
-			PreparedStatement stmt = conn.prepareStatement("SELECT * FROM submission WHERE task = ?");
-			stmt.setString(1, taskName);
-			ResultSet rs = stmt.executeQuery();
+		try {
+			checkToken(req, token);
+			BioNLPSTService service = getService();
+			LeaderboardCache.Leaderboard leaderboard = service.getLeaderboardCache().get(service, taskName);
+			EntityTag etag = getLeaderboardTag(req, leaderboard);
+			CacheControl cacheControl = new CacheControl();
+			cacheControl.setNoCache(true);
+			cacheControl.setPrivate(true);
+			ResponseBuilder notModified = request.evaluatePreconditions(etag);
+			if (notModified != null) {
+				return notModified.cacheControl(cacheControl).build();
+			}
 			JSONArray submissions = new JSONArray();
 			result.put("submissions", submissions);
-			SubmissionJsonConverter converter = new SubmissionJsonConverter();
-			while (rs.next()) {
-				JSONObject sub = converter.convert(rs);
-				long submissionId = sub.getLong("id");
-				JSONObject evaluations = getSubmissionResults(conn, submissionId);
-				sub.put("evaluations", evaluations);
-				submissions.put(sub);
+			SubmissionJsonConverter converter = new SubmissionJsonConverter(req, service.getSuperuser());
+			for (LeaderboardCache.Submission sub : leaderboard.submissions) {
+				submissions.put(converter.convert(sub));
 			}
+			return Response.ok(finish(req, result)).tag(etag).cacheControl(cacheControl).build();
 		}
 		catch (Exception e) {
-			logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
+			req.logger.serious(REST_URL_LOCATION, "Server problem: " + e.getMessage());
 		}
-		return finish(result);
+		return Response.ok(finish(req, result)).build();
 	}
 
-	private static JSONObject ensure(JSONObject obj, String key) throws JSONException {
-		if (obj.has(key)) {
-			return obj.getJSONObject(key);
-		}
-		JSONObject result = new JSONObject();
-		obj.put(key, result);
-		return result;
+	/**
+	 * Owner names depend on the requesting user, so the tag identifies both the leaderboard generation and the user.
+	 */
+	private static EntityTag getLeaderboardTag(RequestState req, LeaderboardCache.Leaderboard leaderboard) {
+		if (req.userGID == null) {
+			return new EntityTag(leaderboard.generation);
+		}
+		return new EntityTag(leaderboard.generation + "-" + Integer.toHexString(req.userGID.hashCode()));
 	}
 	
-	private static JSONObject getSubmissionResults(Connection conn, long submissionId) throws SQLException, JSONException {
-		PreparedStatement stmt = conn.prepareStatement("SELECT * FROM measure WHERE ref_submission = ?");
-		stmt.setLong(1, submissionId);
-		ResultSet rs = stmt.executeQuery();
-		JSONObject result = new JSONObject();
-		while(rs.next()) {
-			String evaluation = rs.getString("evaluation");
-			JSONObject scorings = ensure(result, evaluation);
-			String scoring = rs.getString("scoring");
-			JSONObject measures = ensure(scorings, scoring);
-			String name = rs.getString("name");
-			double val = rs.getDouble("val");
-			if (Double.isInfinite(val) || Double.isNaN(val)) {
-				measures.put(name, JSONObject.NULL);
-			}
-			else {
-				measures.put(name, val);
-			}
-		}
-		return result;
-	}
-	
-	private class SubmissionConverter {
+	private static class SubmissionConverter {
+		private final RequestState req;
+		private final String superuser;
 		private final Map<String,String> pseudonyms = new HashMap<String,String>();
 		private int nextPseudo = 0;
 		
-		protected String getOwnerName(ResultSet rs) throws SQLException {
-			String subOwner = rs.getString("user_gid");
+		private SubmissionConverter(RequestState req, String superuser) {
+			super();
+			this.req = req;
+			this.superuser = superuser;
+		}
+		
+		protected String getOwnerName(LeaderboardCache.Submission sub) {
+			String subOwner = sub.userGID;
 			if (subOwner == null) {
 				return "Anonymous";
 			}
-			if (userGID != null && userGID.equals(subOwner)) {
+			if (req.userGID != null && req.userGID.equals(subOwner)) {
 				return "me";
 			}
-			if (userGID != null && userGID.equals(superuser)) {
-				return rs.getString("user_name");
+			if (req.userGID != null && req.userGID.equals(superuser)) {
+				return sub.username;
 			}
-			boolean priv = rs.getBoolean("private");
-			if (!priv) {
-				return rs.getString("user_name");
+			if (!sub.priv) {
+				return sub.username;
 			}
 			if (pseudonyms.containsKey(subOwner)) {
 				return pseudonyms.get(subOwner);
@@ -595,96 +764,81 @@ public class BioNLPSTRest {
 			return pseudo;
 		}
 		
-		protected boolean isMe(ResultSet rs) throws SQLException {
-			return (userGID != null && ((userGID.equals(superuser) && rs.getString("user_gid") == null) || userGID.equals(rs.getString("user_gid"))));
+		protected boolean isMe(LeaderboardCache.Submission sub) {
+			return (req.userGID != null && ((req.userGID.equals(superuser) && sub.userGID == null) || req.userGID.equals(sub.userGID)));
 		}
 	}
 
-	private class SubmissionJsonConverter extends SubmissionConverter implements JsonConverter<ResultSet> {
-		private SubmissionJsonConverter() {
-			super();
+	private static class SubmissionJsonConverter extends SubmissionConverter implements JsonConverter<LeaderboardCache.Submission> {
+		private SubmissionJsonConverter(RequestState req, String superuser) {
+			super(req, superuser);
 		}
 
 		@Override
-		public JSONObject convert(ResultSet rs) throws Exception {
+		public JSONObject convert(LeaderboardCache.Submission submission) throws Exception {
 			JSONObject sub = new JSONObject();
-			long id = rs.getLong("id");
-			sub.put("id", id);
-			sub.put("owner", getOwnerName(rs));
-			sub.put("me", isMe(rs));
-			sub.put("date", rs.getTimestamp("creation_date").toString());
-			sub.put("set", rs.getString("data_set"));
-			sub.put("private", rs.getBoolean("private"));
-			sub.put("description", rs.getString("description"));
+			sub.put("id", submission.id);
+			sub.put("owner", getOwnerName(submission));
+			sub.put("me", isMe(submission));
+			sub.put("date", submission.date);
+			sub.put("set", submission.set);
+			sub.put("private", submission.priv);
+			sub.put("description", submission.description);
+			sub.put("evaluations", submission.evaluations);
 			return sub;
 		}
 	}
 
 	private static void storeSubmissionResults(Connection conn, long submissionId, List<EvaluationResult<Annotation>> evaluationResults) throws SQLException {
-		PreparedStatement stmt = conn.prepareStatement("INSERT INTO measure (ref_submission, evaluation, scoring, name, val, higher) VALUES (?, ?, ?, ?, ?, ?)");
-		stmt.setLong(1, submissionId);
-		for (EvaluationResult<Annotation> evalResult : evaluationResults) {
-			stmt.setString(2, evalResult.getEvaluation().getName());
-			for (ScoringResult<Annotation> scoringResult : evalResult.getScoringResults()) {
-				stmt.setString(3, scoringResult.getScoring().getName());
-				for (MeasureResult measureResult : scoringResult.getMeasureResults()) {
-					Measure measure = measureResult.getMeasure();
-					stmt.setString(4, measure.getName());
-					stmt.setDouble(5, measureResult.getResult().doubleValue());
-					stmt.setBoolean(6, measure.getMeasureDirection() == MeasureDirection.HIGHER_IS_BETTER);
-					int n = stmt.executeUpdate();
-					if (n == 0) {
-						throw new BioNLPSTException("database operation failed");
+		try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO measure (ref_submission, evaluation, scoring, name, val, higher) VALUES (?, ?, ?, ?, ?, ?)")) {
+			stmt.setLong(1, submissionId);
+			for (EvaluationResult<Annotation> evalResult : evaluationResults) {
+				stmt.setString(2, evalResult.getEvaluation().getName());
+				for (ScoringResult<Annotation> scoringResult : evalResult.getScoringResults()) {
+					stmt.setString(3, scoringResult.getScoring().getName());
+					for (MeasureResult measureResult : scoringResult.getMeasureResults()) {
+						Measure measure = measureResult.getMeasure();
+						stmt.setString(4, measure.getName());
+						stmt.setDouble(5, measureResult.getResult().doubleValue());
+						stmt.setBoolean(6, measure.getMeasureDirection() == MeasureDirection.HIGHER_IS_BETTER);
+						stmt.addBatch();
 					}
 				}
 			}
+			for (int n : stmt.executeBatch()) {
+				if (n == 0 || n == Statement.EXECUTE_FAILED) {
+					throw new BioNLPSTException("database operation failed");
+				}
+			}
 		}
 	}
 
-	private long storeSubmission(Connection conn) throws SQLException {
-		PreparedStatement stmt;
-		if (userGID != null && !userGID.isEmpty() && username != null && !username.isEmpty()) {
-			stmt = conn.prepareStatement("INSERT INTO submission (creation_date, user_gid, user_name, email, private, task, data_set) VALUES (now(), ?, ?, ?, true, ?, ?)", Statement.RETURN_GENERATED_KEYS);
-			stmt.setString(1, userGID);
-			stmt.setString(2, username);
-			stmt.setString(3, email);
-			stmt.setString(4, task.getName());
-			stmt.setString(5, dataset);
-		}
-		else {
-			stmt = conn.prepareStatement("INSERT INTO submission (creation_date, private, task, data_set) VALUES (now(), true, ?, ?)", Statement.RETURN_GENERATED_KEYS);
-			stmt.setString(1, task.getName());
-			stmt.setString(2, dataset);
-		}
-		stmt.executeUpdate();
-		ResultSet rs = stmt.getGeneratedKeys();
-		if (rs.first()) {
-			Long result = rs.getLong(1);
-			if (result.longValue() == 0) {
-				throw new BioNLPSTException("INSERT returned nothing");
+	private static long storeSubmission(RequestState req, Connection conn) throws SQLException {
+		boolean withUser = req.userGID != null && !req.userGID.isEmpty() && req.username != null && !req.username.isEmpty();
+		String sql = withUser ? "INSERT INTO submission (creation_date, user_gid, user_name, email, private, task, data_set) VALUES (now(), ?, ?, ?, true, ?, ?)" : "INSERT INTO submission (creation_date, private, task, data_set) VALUES (now(), true, ?, ?)";
+		try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+			if (withUser) {
+				stmt.setString(1, req.userGID);
+				stmt.setString(2, req.username);
+				stmt.setString(3, req.email);
+				stmt.setString(4, req.task.getName());
+				stmt.setString(5, req.dataset);
+			}
+			else {
+				stmt.setString(1, req.task.getName());
+				stmt.setString(2, req.dataset);
+			}
+			stmt.executeUpdate();
+			try (ResultSet rs = stmt.getGeneratedKeys()) {
+				if (rs.first()) {
+					Long result = rs.getLong(1);
+					if (result.longValue() == 0) {
+						throw new BioNLPSTException("INSERT returned nothing");
+					}
+					return result;
+				}
 			}
-			return result;
 		}
 		throw new BioNLPSTException("INSERT returned nothing");
 	}
-
-	private Connection connectDatabase() throws SQLException, ClassNotFoundException, IOException {
-		Class.forName("org.h2.Driver");
-		Connection conn = DriverManager.getConnection("jdbc:h2:" + databasePath, "bionlp-st", "");
-		Statement stmt = conn.createStatement();
-		try {
-			stmt.execute("SELECT id FROM submission LIMIT 1");
-		}
-		catch (SQLException e) {
-			createDatabase(conn);
-		}
-		return conn;
-	}
-
-	private static void createDatabase(Connection conn) throws IOException, SQLException {
-		try (InputStream is = BioNLPSTRest.class.getClassLoader().getResourceAsStream("org/bionlpst/app/web/createDB.sql")) {
-			Reader r = new InputStreamReader(is);
-			RunScript.execute(conn, r);
-		}
-	}
 }
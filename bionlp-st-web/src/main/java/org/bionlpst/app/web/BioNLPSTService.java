@@ -0,0 +1,312 @@
+package org.bionlpst.app.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import org.bionlpst.BioNLPSTException;
+import org.bionlpst.app.ReferenceCorpusCache;
+import org.bionlpst.app.Task;
+import org.bionlpst.app.TaskRegistry;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.tools.RunScript;
+
+/**
+ * Application-scoped state of the evaluation service: configuration, task registry, reference corpora, leaderboards, worker threads and evaluation jobs.
+ * The service is created once at servlet init by BioNLPSTServiceListener and shared by all requests.
+ * Normalization vocabularies are shared within the JVM by the task schemas themselves.
+ * This class is thread-safe.
+ * @author rbossy
+ *
+ */
+public class BioNLPSTService {
+	private static final String ATTRIBUTE_NAME = BioNLPSTService.class.getName();
+	private static final long JOB_TERMINATION_TIMEOUT = 30;
+	private static final Logger LOGGER = Logger.getLogger(BioNLPSTService.class.getName());
+
+	private final String checkGoogleTokenURL;
+	private final String databasePath;
+	private final int databaseMaxConnections;
+	private JdbcConnectionPool connectionPool = null;
+	private boolean closed = false;
+	private final String superuser;
+	private final TaskRegistry taskRegistry;
+	private final ReferenceCorpusCache referenceCache = new ReferenceCorpusCache();
+	private final LeaderboardCache leaderboardCache = new LeaderboardCache();
+	private final ExecutorService workerExecutor;
+	private final EvaluationJobQueue jobQueue;
+
+	private BioNLPSTService(Properties props, TaskRegistry taskRegistry) {
+		super();
+		this.checkGoogleTokenURL = props.getProperty("checkGoogleTokenURL");
+		this.databasePath = props.getProperty("databasePath");
+		this.databaseMaxConnections = Integer.parseInt(props.getProperty("databaseMaxConnections", "10"));
+		this.superuser = props.getProperty("superuser");
+		this.taskRegistry = taskRegistry;
+		this.workerExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "worker");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+		int jobThreads = Integer.parseInt(props.getProperty("jobThreads", "2"));
+		int maxPendingJobs = Integer.parseInt(props.getProperty("maxPendingJobs", "100"));
+		this.jobQueue = new EvaluationJobQueue(this, jobThreads, maxPendingJobs);
+	}
+
+	/**
+	 * Creates a service with the task definitions and properties found in the specified class loader.
+	 * @param classLoader
+	 * @throws Exception
+	 */
+	public static BioNLPSTService create(ClassLoader classLoader) throws Exception {
+		TaskRegistry taskRegistry = TaskRegistry.load(classLoader);
+		try (InputStream is = getPropertiesResourcesAsStream(classLoader)) {
+			Properties props = new Properties();
+			props.load(is);
+			BioNLPSTService result = new BioNLPSTService(props, taskRegistry);
+			result.openDatabase();
+			return result;
+		}
+	}
+
+	private static InputStream getPropertiesResourcesAsStream(ClassLoader classLoader) throws UnknownHostException {
+		String user = System.getenv("USER");
+		String host = System.getenv("HOSTNAME");
+		if (host == null) {
+			host = InetAddress.getLocalHost().getHostName();
+		}
+		for (String name : getPropertiesResourceNames(user, host)) {
+			String resName = "org/bionlpst/app/web/" + name + ".properties";
+			InputStream result = classLoader.getResourceAsStream(resName);
+			if (result != null) {
+				return result;
+			}
+		}
+		throw new RuntimeException();
+	}
+
+	private static String[] getPropertiesResourceNames(String user, String host) {
+		return new String[] {
+			user + "@" + host,
+			host,
+			user,
+			"default",
+			"rest"
+		};
+	}
+
+	/**
+	 * Returns the service of the specified servlet context.
+	 * If BioNLPSTServiceListener is not registered, then the service is created on the first call.
+	 * @param servletContext
+	 * @throws BioNLPSTException if the service could not be created.
+	 */
+	public static BioNLPSTService get(ServletContext servletContext) throws BioNLPSTException {
+		synchronized (servletContext) {
+			BioNLPSTService result = (BioNLPSTService) servletContext.getAttribute(ATTRIBUTE_NAME);
+			if (result == null) {
+				try {
+					result = create(BioNLPSTService.class.getClassLoader());
+				}
+				catch (RuntimeException e) {
+					throw e;
+				}
+				catch (Exception e) {
+					throw new BioNLPSTException("could not start the evaluation service: " + e.getMessage(), e);
+				}
+				servletContext.setAttribute(ATTRIBUTE_NAME, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Removes the service of the specified servlet context, stops its worker and job threads and closes its database connections.
+	 * Interrupted jobs are resumed when the service is created again.
+	 * Connections are closed once job threads have stopped, so that interrupted jobs are not recorded as failed.
+	 * @param servletContext
+	 */
+	static void remove(ServletContext servletContext) {
+		synchronized (servletContext) {
+			BioNLPSTService service = (BioNLPSTService) servletContext.getAttribute(ATTRIBUTE_NAME);
+			if (service != null) {
+				servletContext.removeAttribute(ATTRIBUTE_NAME);
+				service.jobQueue.shutdown();
+				service.workerExecutor.shutdownNow();
+				try {
+					service.jobQueue.awaitTermination(JOB_TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				service.closeConnectionPool();
+			}
+		}
+	}
+
+	/**
+	 * Converts the schema and evaluations of all tasks on the worker threads, so that the first requests do not pay for it.
+	 * Invalid task definitions are reported when the task is requested.
+	 */
+	void warmUp() {
+		for (final String name : taskRegistry.getTaskNames()) {
+			workerExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Task task = taskRegistry.getTask(name);
+						task.getEvaluations();
+						task.getSchema();
+					}
+					catch (RuntimeException e) {
+						// reported when the task is requested
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Opens the submission database so that evaluation jobs are resumed at startup.
+	 * The service starts even if the database cannot be opened, in that case the database is opened by the first request that needs it.
+	 */
+	private void openDatabase() {
+		try {
+			getConnectionPool();
+		}
+		catch (SQLException|IOException e) {
+			LOGGER.log(Level.WARNING, "could not open submission database, will retry on first request: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns a connection to the submission database from the connection pool, the caller must close it.
+	 * The pool is created by the first call, the database, the job table and the indexes are created at the same time if necessary.
+	 * Evaluation jobs are resumed once the pool is created.
+	 */
+	public Connection connectDatabase() throws SQLException, IOException {
+		return getConnectionPool().getConnection();
+	}
+
+	private synchronized JdbcConnectionPool getConnectionPool() throws SQLException, IOException {
+		if (closed) {
+			throw new SQLException("evaluation service is stopped");
+		}
+		if (connectionPool == null) {
+			JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:" + databasePath, "bionlp-st", "");
+			pool.setMaxConnections(databaseMaxConnections);
+			try (Connection conn = pool.getConnection()) {
+				initDatabase(conn);
+			}
+			catch (SQLException|IOException e) {
+				pool.dispose();
+				throw e;
+			}
+			connectionPool = pool;
+			jobQueue.scheduleResume();
+		}
+		return connectionPool;
+	}
+
+	private synchronized void closeConnectionPool() {
+		closed = true;
+		if (connectionPool != null) {
+			connectionPool.dispose();
+			connectionPool = null;
+		}
+	}
+
+	private static void initDatabase(Connection conn) throws SQLException, IOException {
+		try (Statement stmt = conn.createStatement()) {
+			try {
+				stmt.execute("SELECT id FROM submission LIMIT 1");
+			}
+			catch (SQLException e) {
+				runScript(conn, "createDB.sql");
+			}
+			try {
+				stmt.execute("SELECT id FROM job LIMIT 1");
+			}
+			catch (SQLException e) {
+				runScript(conn, "createJobDB.sql");
+			}
+			try {
+				stmt.execute("SELECT submission_id FROM job LIMIT 1");
+			}
+			catch (SQLException e) {
+				stmt.execute("ALTER TABLE job ADD COLUMN submission_id BIGINT NULL");
+			}
+		}
+		runScript(conn, "createIndexes.sql");
+	}
+
+	private static void runScript(Connection conn, String name) throws IOException, SQLException {
+		try (InputStream is = BioNLPSTService.class.getClassLoader().getResourceAsStream("org/bionlpst/app/web/" + name)) {
+			Reader r = new InputStreamReader(is);
+			RunScript.execute(conn, r);
+		}
+	}
+
+	public String getCheckGoogleTokenURL() {
+		return checkGoogleTokenURL;
+	}
+
+	public String getDatabasePath() {
+		return databasePath;
+	}
+
+	public String getSuperuser() {
+		return superuser;
+	}
+
+	public TaskRegistry getTaskRegistry() {
+		return taskRegistry;
+	}
+
+	/**
+	 * Returns the reference corpora shared by all requests, each request evaluates a copy.
+	 */
+	public ReferenceCorpusCache getReferenceCache() {
+		return referenceCache;
+	}
+
+	/**
+	 * Returns the submissions of each task, shared by all requests.
+	 */
+	public LeaderboardCache getLeaderboardCache() {
+		return leaderboardCache;
+	}
+
+	/**
+	 * Returns the queue of asynchronous evaluation jobs.
+	 */
+	public EvaluationJobQueue getJobQueue() {
+		return jobQueue;
+	}
+
+	/**
+	 * Returns the executor shared by all requests for loading reference documents and computing resamples.
+	 * Threads are daemons so that they do not prevent the container from shutting down.
+	 */
+	public ExecutorService getWorkerExecutor() {
+		return workerExecutor;
+	}
+}
@@ -0,0 +1,26 @@
+package org.bionlpst.app.web;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Creates the evaluation service when the web application starts, and stops it when the application stops.
+ * @author rbossy
+ *
+ */
+public class BioNLPSTServiceListener implements ServletContextListener {
+	public BioNLPSTServiceListener() {
+		super();
+	}
+
+	@Override
+	public void contextInitialized(ServletContextEvent sce) {
+		BioNLPSTService service = BioNLPSTService.get(sce.getServletContext());
+		service.warmUp();
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent sce) {
+		BioNLPSTService.remove(sce.getServletContext());
+	}
+}
@@ -0,0 +1,431 @@
+package org.bionlpst.app.web;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bionlpst.BioNLPSTException;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Queue of asynchronous evaluation jobs.
+ * Jobs are stored in the job table of the submission database with their predictions, so that queued and interrupted jobs are resumed when the service restarts.
+ * A fixed number of job threads run the evaluations, the number of pending jobs is bounded.
+ * Predictions are removed from the database once the job is finished, the response of the evaluation is stored instead.
+ * The submission of a job is stored in the same transaction as its identifier in the job row, so that a resumed job does not store it twice.
+ * This class is thread-safe.
+ * @author rbossy
+ *
+ */
+public class EvaluationJobQueue {
+	public static final String QUEUED = "queued";
+	public static final String RUNNING = "running";
+	public static final String DONE = "done";
+	public static final String FAILED = "failed";
+	private static final Logger LOGGER = Logger.getLogger(EvaluationJobQueue.class.getName());
+
+	private final BioNLPSTService service;
+	private final int maxPendingJobs;
+	private final ExecutorService jobExecutor;
+	private final Map<Long,RequestState> runningJobs = new ConcurrentHashMap<Long,RequestState>();
+	private volatile boolean shuttingDown = false;
+
+	EvaluationJobQueue(BioNLPSTService service, int jobThreads, int maxPendingJobs) {
+		super();
+		this.service = service;
+		this.maxPendingJobs = maxPendingJobs;
+		this.jobExecutor = Executors.newFixedThreadPool(jobThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "evaluation-job");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Schedules resume() on the job threads, before any job submitted afterwards.
+	 * Failures are logged, jobs are then resumed at the next start.
+	 */
+	void scheduleResume() {
+		jobExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					resume();
+				}
+				catch (Exception e) {
+					LOGGER.log(Level.WARNING, "could not resume evaluation jobs: " + e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Requeues jobs that were interrupted by a shutdown, and schedules all queued jobs in submission order.
+	 * @throws Exception
+	 */
+	private void resume() throws Exception {
+		List<Long> queued = new ArrayList<Long>();
+		try (Connection conn = service.connectDatabase()) {
+			try (PreparedStatement stmt = conn.prepareStatement("UPDATE job SET status = ?, start_date = NULL WHERE status = ?")) {
+				stmt.setString(1, QUEUED);
+				stmt.setString(2, RUNNING);
+				stmt.executeUpdate();
+			}
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM job WHERE status = ? ORDER BY id")) {
+				stmt.setString(1, QUEUED);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						queued.add(rs.getLong("id"));
+					}
+				}
+			}
+		}
+		for (long id : queued) {
+			jobExecutor.execute(new JobRunner(id));
+		}
+	}
+
+	/**
+	 * Interrupts the job threads, running jobs stay running in the database and are resumed at the next start.
+	 */
+	void shutdown() {
+		shuttingDown = true;
+		jobExecutor.shutdownNow();
+	}
+
+	/**
+	 * Waits for the job threads to stop after shutdown().
+	 * @param timeout
+	 * @param unit
+	 * @return either true if the job threads have stopped, or false if the timeout elapsed.
+	 * @throws InterruptedException
+	 */
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return jobExecutor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Stores a new job and schedules it.
+	 * @param req state of the submitting request, only the user identity is stored.
+	 * @param taskName task name, must be valid.
+	 * @param set document set.
+	 * @param predictions contents of the submitted zip archive.
+	 * @param fileName name of the submitted zip archive.
+	 * @param detailed
+	 * @param alternate
+	 * @param resamples
+	 * @return the job identifier.
+	 * @throws BioNLPSTException if there are too many pending jobs.
+	 */
+	synchronized long submit(RequestState req, String taskName, String set, byte[] predictions, String fileName, boolean detailed, boolean alternate, int resamples) throws Exception {
+		long id;
+		try (Connection conn = service.connectDatabase()) {
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM job WHERE status IN (?, ?)")) {
+				stmt.setString(1, QUEUED);
+				stmt.setString(2, RUNNING);
+				try (ResultSet rs = stmt.executeQuery()) {
+					rs.next();
+					if (rs.getInt(1) >= maxPendingJobs) {
+						throw new BioNLPSTException("too many pending jobs, try again later");
+					}
+				}
+			}
+			try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO job (creation_date, status, user_gid, user_name, email, task, data_set, detailed, alternate, resamples, file_name, predictions) VALUES (now(), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+				stmt.setString(1, QUEUED);
+				stmt.setString(2, req.userGID);
+				stmt.setString(3, req.username);
+				stmt.setString(4, req.email);
+				stmt.setString(5, taskName);
+				stmt.setString(6, set);
+				stmt.setBoolean(7, detailed);
+				stmt.setBoolean(8, alternate);
+				stmt.setInt(9, resamples);
+				stmt.setString(10, fileName);
+				stmt.setBytes(11, predictions);
+				stmt.executeUpdate();
+				try (ResultSet rs = stmt.getGeneratedKeys()) {
+					if (!rs.first()) {
+						throw new BioNLPSTException("INSERT returned nothing");
+					}
+					id = rs.getLong(1);
+				}
+			}
+		}
+		jobExecutor.execute(new JobRunner(id));
+		return id;
+	}
+
+	/**
+	 * Returns the status of the specified job, or null if there is no such job.
+	 * The status of running jobs includes the current stage and the number of documents evaluated, the status of queued jobs includes the number of jobs ahead.
+	 * @param conn
+	 * @param id
+	 * @param userGID identifier of the requesting user.
+	 * @throws BioNLPSTException if the job belongs to another user.
+	 */
+	JSONObject getStatus(Connection conn, long id, String userGID) throws SQLException, JSONException {
+		JSONObject result = new JSONObject();
+		String status;
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT id, creation_date, start_date, end_date, status, user_gid, task, data_set FROM job WHERE id = ?")) {
+			stmt.setLong(1, id);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.first()) {
+					return null;
+				}
+				checkOwnership(rs, userGID);
+				result.put("id", id);
+				result.put("task", rs.getString("task"));
+				result.put("set", rs.getString("data_set"));
+				status = rs.getString("status");
+				result.put("status", status);
+				result.put("date", rs.getTimestamp("creation_date").toString());
+				if (rs.getTimestamp("start_date") != null) {
+					result.put("start-date", rs.getTimestamp("start_date").toString());
+				}
+				if (rs.getTimestamp("end_date") != null) {
+					result.put("end-date", rs.getTimestamp("end_date").toString());
+				}
+			}
+		}
+		switch (status) {
+			case QUEUED: {
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM job WHERE status = ? AND id < ?")) {
+					stmt.setString(1, QUEUED);
+					stmt.setLong(2, id);
+					try (ResultSet ahead = stmt.executeQuery()) {
+						ahead.next();
+						result.put("jobs-ahead", ahead.getInt(1));
+					}
+				}
+				break;
+			}
+			case RUNNING: {
+				RequestState req = runningJobs.get(id);
+				if (req != null) {
+					JSONObject progress = new JSONObject();
+					progress.put("stage", req.stage);
+					if (req.documentsTotal > 0) {
+						progress.put("documents-done", req.documentsDone);
+						progress.put("documents-total", req.documentsTotal);
+					}
+					result.put("progress", progress);
+				}
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the response of the specified finished job.
+	 * @param conn
+	 * @param id
+	 * @param userGID identifier of the requesting user.
+	 * @param out
+	 * @return either true if the response was written, or false if the job does not exist or is not finished.
+	 * @throws BioNLPSTException if the job belongs to another user.
+	 */
+	boolean writeResult(Connection conn, long id, String userGID, Writer out) throws SQLException, IOException {
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT user_gid, result FROM job WHERE id = ? AND status IN (?, ?)")) {
+			stmt.setLong(1, id);
+			stmt.setString(2, DONE);
+			stmt.setString(3, FAILED);
+			try (ResultSet rs = stmt.executeQuery()) {
+				if (!rs.first()) {
+					return false;
+				}
+				checkOwnership(rs, userGID);
+				Clob result = rs.getClob("result");
+				try (Reader r = result.getCharacterStream()) {
+					char[] buf = new char[8192];
+					while (true) {
+						int n = r.read(buf);
+						if (n == -1) {
+							break;
+						}
+						out.write(buf, 0, n);
+					}
+				}
+				finally {
+					result.free();
+				}
+			}
+		}
+		out.flush();
+		return true;
+	}
+
+	/**
+	 * Records the submission stored by the specified job, call it in the transaction that stores the submission.
+	 * @param conn
+	 * @param id
+	 * @param submissionId
+	 */
+	static void setSubmissionId(Connection conn, long id, long submissionId) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement("UPDATE job SET submission_id = ? WHERE id = ?")) {
+			stmt.setLong(1, submissionId);
+			stmt.setLong(2, id);
+			stmt.executeUpdate();
+		}
+	}
+
+	private static void checkOwnership(ResultSet rs, String userGID) throws SQLException {
+		String owner = rs.getString("user_gid");
+		if (owner != null && !owner.isEmpty() && !owner.equals(userGID)) {
+			throw new BioNLPSTException("user is not owner");
+		}
+	}
+
+	private class JobRunner implements Runnable {
+		private final long id;
+
+		private JobRunner(long id) {
+			super();
+			this.id = id;
+		}
+
+		@Override
+		public void run() {
+			RequestState req = new RequestState();
+			try {
+				if (claim(req)) {
+					runningJobs.put(id, req);
+					File resultFile = File.createTempFile("bionlp-st-job-" + id + "-", ".json");
+					try {
+						run(req, resultFile);
+						if (req.error != null && isInterrupted()) {
+							// the interruption was reported in the response, do not store it: the job is resumed at the next start
+							return;
+						}
+						try (Reader r = new InputStreamReader(new FileInputStream(resultFile), StandardCharsets.UTF_8)) {
+							finish(DONE, r);
+						}
+					}
+					catch (Exception e) {
+						if (isInterrupted()) {
+							// the job stays running in the database and is resumed at the next start
+							return;
+						}
+						req.logger.serious(BioNLPSTRest.REST_URL_LOCATION, "Server problem: " + e.getMessage());
+						finish(FAILED, new StringReader(BioNLPSTRest.finish(req, new JSONObject())));
+					}
+					finally {
+						runningJobs.remove(id);
+						resultFile.delete();
+					}
+				}
+			}
+			catch (Exception e) {
+				// the job stays in the database and is resumed at the next start
+			}
+		}
+
+		/**
+		 * Returns either the job was interrupted by a shutdown, evaluation code may report the interruption as any exception.
+		 */
+		private boolean isInterrupted() {
+			return shuttingDown || Thread.currentThread().isInterrupted();
+		}
+
+		/**
+		 * Marks the job as running, unless another thread has already claimed it.
+		 */
+		private boolean claim(RequestState req) throws Exception {
+			try (Connection conn = service.connectDatabase()) {
+				try (PreparedStatement stmt = conn.prepareStatement("UPDATE job SET status = ?, start_date = now() WHERE id = ? AND status = ?")) {
+					stmt.setString(1, RUNNING);
+					stmt.setLong(2, id);
+					stmt.setString(3, QUEUED);
+					if (stmt.executeUpdate() == 0) {
+						return false;
+					}
+				}
+				req.setStage("starting");
+				return true;
+			}
+		}
+
+		/**
+		 * Evaluates the job predictions, the response is written in the specified file so that it is not held in memory.
+		 */
+		private void run(RequestState req, File resultFile) throws Exception {
+			String taskName;
+			String set;
+			boolean detailed;
+			boolean alternate;
+			int resamples;
+			String fileName;
+			byte[] predictions;
+			try (Connection conn = service.connectDatabase()) {
+				try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM job WHERE id = ?")) {
+					stmt.setLong(1, id);
+					try (ResultSet rs = stmt.executeQuery()) {
+						if (!rs.first()) {
+							throw new BioNLPSTException("job disappeared: " + id);
+						}
+						req.jobId = id;
+						long submissionId = rs.getLong("submission_id");
+						if (!rs.wasNull()) {
+							req.submissionId = submissionId;
+						}
+						req.userGID = rs.getString("user_gid");
+						req.username = rs.getString("user_name");
+						req.email = rs.getString("email");
+						taskName = rs.getString("task");
+						set = rs.getString("data_set");
+						detailed = rs.getBoolean("detailed");
+						alternate = rs.getBoolean("alternate");
+						resamples = rs.getInt("resamples");
+						fileName = rs.getString("file_name");
+						predictions = rs.getBytes("predictions");
+					}
+				}
+			}
+			try (InputStream zipStream = new ByteArrayInputStream(predictions);
+					Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultFile), StandardCharsets.UTF_8))) {
+				BioNLPSTRest.evaluate(service, req, taskName, set, zipStream, fileName, detailed, alternate, resamples, out);
+			}
+		}
+
+		private void finish(String status, Reader result) throws Exception {
+			try (Connection conn = service.connectDatabase()) {
+				try (PreparedStatement stmt = conn.prepareStatement("UPDATE job SET status = ?, end_date = now(), result = ?, predictions = NULL WHERE id = ?")) {
+					stmt.setString(1, status);
+					stmt.setCharacterStream(2, result);
+					stmt.setLong(3, id);
+					stmt.executeUpdate();
+				}
+			}
+		}
+	}
+}
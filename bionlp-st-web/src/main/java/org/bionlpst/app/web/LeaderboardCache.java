@@ -0,0 +1,180 @@
+package org.bionlpst.app.web;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * In-memory cache of the submissions of each task, and of their evaluations.
+ * Leaderboards are loaded from the submission database on the first request with two queries, and served from memory until a submission changes.
+ * Operations that modify submissions must call invalidate() or invalidateSubmission() after the modification is committed.
+ * Each loaded leaderboard has a distinct generation, so that clients can revalidate their copy.
+ * Cached submissions are independent of the requesting user, owner names are computed for each request.
+ * This class is thread-safe.
+ * @author rbossy
+ *
+ */
+public class LeaderboardCache {
+	private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+	private final Map<String,Leaderboard> leaderboards = new HashMap<String,Leaderboard>();
+	private final Map<Long,String> submissionTasks = new HashMap<Long,String>();
+	private long modifications = 0;
+	private long generations = 0;
+
+	LeaderboardCache() {
+		super();
+	}
+
+	/**
+	 * Returns the leaderboard of the specified task, the database is only queried if the leaderboard is not cached.
+	 * A leaderboard loaded while submissions are modified is returned but not cached.
+	 * @param service
+	 * @param task
+	 * @throws Exception
+	 */
+	Leaderboard get(BioNLPSTService service, String task) throws Exception {
+		long mod;
+		String generation;
+		synchronized (this) {
+			Leaderboard result = leaderboards.get(task);
+			if (result != null) {
+				return result;
+			}
+			mod = modifications;
+			generation = epoch + "-" + (++generations);
+		}
+		Leaderboard result;
+		try (Connection conn = service.connectDatabase()) {
+			result = load(conn, task, generation);
+		}
+		synchronized (this) {
+			if (mod == modifications) {
+				leaderboards.put(task, result);
+				for (Submission sub : result.submissions) {
+					submissionTasks.put(sub.id, task);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the leaderboard of the specified task, call it after a submission is added to the task.
+	 * @param task
+	 */
+	synchronized void invalidate(String task) {
+		modifications++;
+		Leaderboard leaderboard = leaderboards.remove(task);
+		if (leaderboard != null) {
+			for (Submission sub : leaderboard.submissions) {
+				submissionTasks.remove(sub.id);
+			}
+		}
+	}
+
+	/**
+	 * Removes the leaderboard that contains the specified submission, call it after a submission is modified or deleted.
+	 * @param submissionId
+	 */
+	synchronized void invalidateSubmission(long submissionId) {
+		modifications++;
+		String task = submissionTasks.get(submissionId);
+		if (task != null) {
+			invalidate(task);
+		}
+	}
+
+	private static Leaderboard load(Connection conn, String task, String generation) throws SQLException, JSONException {
+		Map<Long,JSONObject> evaluations = new HashMap<Long,JSONObject>();
+		List<Submission> submissions = new ArrayList<Submission>();
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM submission WHERE task = ? ORDER BY id")) {
+			stmt.setString(1, task);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				Submission sub = new Submission(rs);
+				submissions.add(sub);
+				evaluations.put(sub.id, sub.evaluations);
+			}
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT m.ref_submission, m.evaluation, m.scoring, m.name, m.val FROM measure m JOIN submission s ON m.ref_submission = s.id WHERE s.task = ? ORDER BY m._ROWID_")) {
+			stmt.setString(1, task);
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				JSONObject result = evaluations.get(rs.getLong("ref_submission"));
+				if (result == null) {
+					continue;
+				}
+				JSONObject scorings = ensure(result, rs.getString("evaluation"));
+				JSONObject measures = ensure(scorings, rs.getString("scoring"));
+				String name = rs.getString("name");
+				double val = rs.getDouble("val");
+				if (Double.isInfinite(val) || Double.isNaN(val)) {
+					measures.put(name, JSONObject.NULL);
+				}
+				else {
+					measures.put(name, val);
+				}
+			}
+		}
+		return new Leaderboard(generation, submissions);
+	}
+
+	private static JSONObject ensure(JSONObject obj, String key) throws JSONException {
+		if (obj.has(key)) {
+			return obj.getJSONObject(key);
+		}
+		JSONObject result = new JSONObject();
+		obj.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Submissions of a task, in submission order.
+	 * Leaderboards are not modified once loaded.
+	 */
+	static class Leaderboard {
+		final String generation;
+		final List<Submission> submissions;
+
+		private Leaderboard(String generation, List<Submission> submissions) {
+			super();
+			this.generation = generation;
+			this.submissions = Collections.unmodifiableList(submissions);
+		}
+	}
+
+	/**
+	 * Cached submission row with its evaluations.
+	 * The evaluations object must not be modified.
+	 */
+	static class Submission {
+		final long id;
+		final String userGID;
+		final String username;
+		final boolean priv;
+		final String date;
+		final String set;
+		final String description;
+		final JSONObject evaluations = new JSONObject();
+
+		private Submission(ResultSet rs) throws SQLException {
+			super();
+			this.id = rs.getLong("id");
+			this.userGID = rs.getString("user_gid");
+			this.username = rs.getString("user_name");
+			this.priv = rs.getBoolean("private");
+			this.date = rs.getTimestamp("creation_date").toString();
+			this.set = rs.getString("data_set");
+			this.description = rs.getString("description");
+		}
+	}
+}
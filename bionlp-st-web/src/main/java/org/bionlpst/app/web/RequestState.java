@@ -0,0 +1,39 @@
+package org.bionlpst.app.web;
+
+import org.bionlpst.app.Task;
+import org.bionlpst.corpus.Corpus;
+import org.bionlpst.evaluation.BootstrapConfig;
+import org.bionlpst.util.message.CheckLogger;
+
+/**
+ * State of a single request, or of a single evaluation job.
+ * The stage and document counts report the progress of evaluation jobs, they are read by other threads.
+ * For evaluation jobs, the submission identifier is set once the submission is stored, possibly by an interrupted run of the same job.
+ * The error is set if the evaluation failed after the response was started.
+ * @author rbossy
+ *
+ */
+class RequestState {
+	final CheckLogger logger = new CheckLogger();
+	Task task = null;
+	Corpus corpus = null;
+	String dataset = null;
+	BootstrapConfig bootstrapConfig = null;
+	String userGID = null;
+	String username = null;
+	String email = null;
+	Long jobId = null;
+	Long submissionId = null;
+	Exception error = null;
+	volatile String stage = null;
+	volatile int documentsDone = 0;
+	volatile int documentsTotal = 0;
+
+	RequestState() {
+		super();
+	}
+
+	void setStage(String stage) {
+		this.stage = stage;
+	}
+}
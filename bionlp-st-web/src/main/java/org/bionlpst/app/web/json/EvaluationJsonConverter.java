@@ -1,13 +1,13 @@
 package org.bionlpst.app.web.json;
 
-import org.bionlpst.evaluation.AnnotationEvaluation;
+import org.bionlpst.app.TaskSummary.EvaluationSummary;
 import org.codehaus.jettison.json.JSONObject;
 
-public enum EvaluationJsonConverter implements JsonConverter<AnnotationEvaluation> {
+public enum EvaluationJsonConverter implements JsonConverter<EvaluationSummary> {
 	INSTANCE;
 
 	@Override
-	public JSONObject convert(AnnotationEvaluation eval) throws Exception {
+	public JSONObject convert(EvaluationSummary eval) throws Exception {
 		JSONObject result = new JSONObject();
 		result.put("name", eval.getName());
 		result.put("scorings", ListJsonConverter.convert(ScoringJsonConverter.INSTANCE, eval.getScorings()));
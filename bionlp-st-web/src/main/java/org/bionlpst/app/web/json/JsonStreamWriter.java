@@ -0,0 +1,169 @@
+package org.bionlpst.app.web.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Writes indented JSON incrementally, so that large responses are not built in memory.
+ * Containers are opened and closed explicitly, values may be scalars or JSON objects and arrays built by converters.
+ */
+public class JsonStreamWriter {
+	private final Writer out;
+	private final int indentFactor;
+	private final Deque<Boolean> empty = new ArrayDeque<Boolean>();
+	private final Deque<Character> closing = new ArrayDeque<Character>();
+	private boolean afterKey = false;
+
+	public JsonStreamWriter(Writer out, int indentFactor) {
+		super();
+		this.out = out;
+		this.indentFactor = indentFactor;
+	}
+
+	public JsonStreamWriter beginObject() throws IOException {
+		return begin('{', '}');
+	}
+
+	public JsonStreamWriter endObject() throws IOException {
+		return end('}');
+	}
+
+	public JsonStreamWriter beginArray() throws IOException {
+		return begin('[', ']');
+	}
+
+	public JsonStreamWriter endArray() throws IOException {
+		return end(']');
+	}
+
+	/**
+	 * Returns the number of open containers.
+	 */
+	public int getDepth() {
+		return empty.size();
+	}
+
+	/**
+	 * Closes open containers until the specified depth, a pending key gets a null value.
+	 * Used to keep the output valid when writing is interrupted by an error.
+	 * @param depth
+	 */
+	public JsonStreamWriter closeTo(int depth) throws IOException, JSONException {
+		if (afterKey) {
+			value(null);
+		}
+		while (empty.size() > depth) {
+			end(closing.peek());
+		}
+		return this;
+	}
+
+	public JsonStreamWriter key(String key) throws IOException {
+		if (afterKey || empty.isEmpty()) {
+			throw new IllegalStateException("misplaced key: " + key);
+		}
+		separate();
+		out.write(JSONObject.quote(key));
+		out.write(": ");
+		afterKey = true;
+		return this;
+	}
+
+	/**
+	 * Writes a scalar, a JSONObject or a JSONArray.
+	 * @param value
+	 */
+	public JsonStreamWriter value(Object value) throws IOException, JSONException {
+		separate();
+		afterKey = false;
+		String s = valueToString(value);
+		out.write(s.replace("\n", "\n" + indent(empty.size())));
+		return this;
+	}
+
+	/**
+	 * Writes an array of the specified objects, each object is converted and written before the next is converted.
+	 * @param converter
+	 * @param list
+	 */
+	public <T> JsonStreamWriter values(JsonConverter<T> converter, Collection<? extends T> list) throws Exception {
+		beginArray();
+		for (T obj : list) {
+			value(converter.convert(obj));
+		}
+		return endArray();
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	private JsonStreamWriter begin(char c, char close) throws IOException {
+		separate();
+		afterKey = false;
+		out.write(c);
+		empty.push(true);
+		closing.push(close);
+		return this;
+	}
+
+	private JsonStreamWriter end(char c) throws IOException {
+		if (afterKey || empty.isEmpty() || closing.peek() != c) {
+			throw new IllegalStateException("misplaced " + c);
+		}
+		closing.pop();
+		if (!empty.pop()) {
+			out.write('\n');
+			out.write(indent(empty.size()));
+		}
+		out.write(c);
+		return this;
+	}
+
+	private void separate() throws IOException {
+		if (afterKey || empty.isEmpty()) {
+			return;
+		}
+		if (!empty.peek()) {
+			out.write(',');
+		}
+		out.write('\n');
+		out.write(indent(empty.size()));
+		empty.pop();
+		empty.push(false);
+	}
+
+	private String indent(int depth) {
+		StringBuilder result = new StringBuilder(depth * indentFactor);
+		for (int i = 0; i < depth * indentFactor; ++i) {
+			result.append(' ');
+		}
+		return result.toString();
+	}
+
+	private String valueToString(Object value) throws JSONException {
+		if (value == null || JSONObject.NULL.equals(value)) {
+			return "null";
+		}
+		if (value instanceof JSONObject) {
+			return ((JSONObject) value).toString(indentFactor);
+		}
+		if (value instanceof JSONArray) {
+			return ((JSONArray) value).toString(indentFactor);
+		}
+		if (value instanceof Number) {
+			return JSONObject.numberToString((Number) value);
+		}
+		if (value instanceof Boolean) {
+			return value.toString();
+		}
+		return JSONObject.quote(value.toString());
+	}
+}
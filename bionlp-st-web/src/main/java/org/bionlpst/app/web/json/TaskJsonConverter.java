@@ -1,13 +1,13 @@
 package org.bionlpst.app.web.json;
 
-import org.bionlpst.app.Task;
+import org.bionlpst.app.TaskSummary;
 import org.codehaus.jettison.json.JSONObject;
 
-public enum TaskJsonConverter implements JsonConverter<Task> {
+public enum TaskJsonConverter implements JsonConverter<TaskSummary> {
 	INSTANCE;
 
 	@Override
-	public JSONObject convert(Task task) throws Exception {
+	public JSONObject convert(TaskSummary task) throws Exception {
 		JSONObject result = new JSONObject();
 		result.put("name", task.getName());
 		result.put("description", task.getDescription());
@@ -0,0 +1,3 @@
+create index if not exists measure_ref_submission on measure(ref_submission);
+
+create index if not exists submission_task on submission(task);
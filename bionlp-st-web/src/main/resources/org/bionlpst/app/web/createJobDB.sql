@@ -0,0 +1,19 @@
+create table job (
+	id identity,
+	creation_date timestamp not null,
+	start_date timestamp null,
+	end_date timestamp null,
+	status varchar(10) not null,
+	user_gid varchar(24) null,
+	user_name varchar(512) null,
+	email varchar(512) null,
+	task varchar(24) not null,
+	data_set varchar(10) not null,
+	detailed boolean not null,
+	alternate boolean not null,
+	resamples int not null,
+	file_name varchar(1024) not null,
+	predictions blob null,
+	submission_id bigint null,
+	result clob null
+);